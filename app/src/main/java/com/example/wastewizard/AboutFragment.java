@@ -13,36 +13,37 @@ import androidx.fragment.app.Fragment;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-
 public class AboutFragment extends Fragment {
 
+    private static final int DEBUG_TAPS = 7;
+    private int versionTaps;
+
     @Nullable @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View v = inflater.inflate(R.layout.fragment_about, container, false);
 
         ((TextView) v.findViewById(R.id.txtAppName)).setText(getString(R.string.app_name));
         ((TextView) v.findViewById(R.id.txtVersion)).setText("1.0.0");
-        ((TextView) v.findViewById(R.id.txtModelVersion)).setText(readModelVersion());
+        ((TextView) v.findViewById(R.id.txtModelVersion)).setText(
+                TFLiteClassifier.modelVersion(requireContext()) + "\nResult cache: " + ResultCache.get(requireContext()).stats()
+                        + (ModelSelector.get(requireContext()).lastReport() != null
+                                ? "\n" + ModelSelector.get(requireContext()).lastReport() : ""));
 
         v.findViewById(R.id.btnLicenses).setOnClickListener(view -> showLicenses());
+        v.findViewById(R.id.txtVersion).setOnClickListener(view -> {
+            // Hidden: seven taps open the inference timings screen
+            if (++versionTaps < DEBUG_TAPS) return;
+            versionTaps = 0;
+            getParentFragmentManager()
+                    .beginTransaction()
+                    .setReorderingAllowed(true)
+                    .replace(R.id.fragmentContainer, new DebugStatsFragment())
+                    .addToBackStack("debug_stats")
+                    .commit();
+        });
         return v;
     }
 
-    private String readModelVersion() {
-        try {
-            // Put a file named model_version.txt in assets (e.g., "1.0.0")
-            java.io.InputStream is = requireContext().getAssets().open("model_version.txt");
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            String ver = br.readLine();
-            br.close();
-            return ver != null ? ver.trim() : "unknown";
-        } catch (Exception e) {
-            return "unknown";
-        }
-    }
-
     private void showLicenses() {
         View content = LayoutInflater.from(requireContext()).inflate(R.layout.dialog_licenses, null, false);
         WebView web = content.findViewById(R.id.webLicenses);
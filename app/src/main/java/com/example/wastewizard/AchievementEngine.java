@@ -0,0 +1,212 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental achievement evaluation.
+ *
+ * Each rule subscribes to the one stat it depends on. When the {@link GameLedger}
+ * folds an event, only the stats that actually changed are looked up, and only the
+ * still-locked rules subscribed to them are checked; unlocked rules unsubscribe.
+ * Unlocks are persisted with their timestamp, so reading achievements is a list
+ * copy and nothing runs while the app is idle. Each {@link Profiles} profile has
+ * its own unlocks.
+ */
+public class AchievementEngine implements GameLedger.StateListener {
+
+    private static final String PREFS_NAME = "WasteWizardAchievements"; // rule id -> unlock time, one file per profile
+
+    public enum Stat { ACCURACY, BEST_STREAK, LEVEL, TOTAL_PREDICTIONS }
+
+    // Accuracy counts only from this many predictions on; unlocks are permanent, 1/1 is not 100%
+    static final int MIN_PREDICTIONS_FOR_ACCURACY = 20;
+
+    static final class Rule {
+        final String id;
+        final String title;
+        final String description;
+        final Stat stat;
+        final double threshold;
+
+        Rule(String id, String title, String description, Stat stat, double threshold) {
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.stat = stat;
+            this.threshold = threshold;
+        }
+    }
+
+    private static final Rule[] RULES = {
+        new Rule("accuracy_90", "Accuracy Master", "Achieve 90% accuracy over 20+ predictions", Stat.ACCURACY, 90),
+        new Rule("accuracy_95", "Perfect Shot", "Achieve 95% accuracy over 20+ predictions", Stat.ACCURACY, 95),
+        new Rule("streak_5", "Hot Streak", "Get 5 predictions in a row", Stat.BEST_STREAK, 5),
+        new Rule("streak_10", "Unstoppable", "Get 10 predictions in a row", Stat.BEST_STREAK, 10),
+        new Rule("level_5", "Rising Star", "Reach level 5", Stat.LEVEL, 5),
+        new Rule("level_10", "Waste Warrior", "Reach level 10", Stat.LEVEL, 10),
+        new Rule("predictions_50", "Dedicated Learner", "Make 50 predictions", Stat.TOTAL_PREDICTIONS, 50),
+        new Rule("predictions_100", "Expert Classifier", "Make 100 predictions", Stat.TOTAL_PREDICTIONS, 100),
+    };
+
+    /** Unlock state of one profile, loaded the first time that profile is touched. */
+    private static final class Book {
+        final SharedPreferences prefs;
+        final Map<Stat, List<Rule>> subscriptions = new EnumMap<>(Stat.class);
+        final List<GameManager.Achievement> unlocked = new ArrayList<>();   // in unlock order
+        final List<GameManager.Achievement> newUnlocks = new ArrayList<>(); // not yet consumed
+
+        Book(SharedPreferences prefs) {
+            this.prefs = prefs;
+            for (Stat s : Stat.values()) subscriptions.put(s, new ArrayList<>());
+            List<GameManager.Achievement> restored = new ArrayList<>();
+            for (Rule r : RULES) {
+                long at = prefs.getLong(r.id, 0L);
+                if (at > 0) restored.add(toAchievement(r, at));
+                else subscriptions.get(r.stat).add(r);
+            }
+            restored.sort((a, b) -> Long.compare(a.unlockedAt, b.unlockedAt));
+            unlocked.addAll(restored);
+        }
+    }
+
+    private static AchievementEngine instance;
+
+    private final Context context;
+    private final GameLedger ledger;
+    private final Profiles profiles;
+    private final Map<String, Book> books = new HashMap<>(); // guarded by this
+
+    public static synchronized AchievementEngine get(@NonNull Context context) {
+        if (instance == null) {
+            instance = new AchievementEngine(context.getApplicationContext());
+            instance.ledger.addStateListener(instance);
+        }
+        return instance;
+    }
+
+    private AchievementEngine(Context context) {
+        this.context = context;
+        this.ledger = GameLedger.get(context);
+        this.profiles = Profiles.get(context);
+    }
+
+    /** Unlocked achievements of the active profile, oldest first. */
+    @NonNull
+    public List<GameManager.Achievement> getUnlocked() {
+        Book b = activeBook();
+        synchronized (this) {
+            return new ArrayList<>(b.unlocked);
+        }
+    }
+
+    /** Achievements the active profile unlocked since the previous call. */
+    @NonNull
+    public List<GameManager.Achievement> consumeNewUnlocks() {
+        Book b = activeBook();
+        synchronized (this) {
+            if (b.newUnlocks.isEmpty()) return Collections.emptyList();
+            List<GameManager.Achievement> out = new ArrayList<>(b.newUnlocks);
+            b.newUnlocks.clear();
+            return out;
+        }
+    }
+
+    /** Forget the active profile's unlocks, e.g. when its game data is reset. */
+    public void reset() {
+        Book b = activeBook();
+        synchronized (this) {
+            b.prefs.edit().clear().apply();
+            b.unlocked.clear();
+            b.newUnlocks.clear();
+            for (List<Rule> l : b.subscriptions.values()) l.clear();
+            for (Rule r : RULES) b.subscriptions.get(r.stat).add(r);
+        }
+    }
+
+    // Called by the ledger, under its lock, after each folded event
+    @Override
+    public synchronized void onStateChanged(@NonNull String profileId, @NonNull GameState before, @NonNull GameState after) {
+        Book b = books.get(profileId);
+        if (b == null) {
+            // First sight of this profile: the new state covers everything before it
+            book(profileId, after);
+            return;
+        }
+        for (Stat stat : Stat.values()) {
+            double v = value(stat, after);
+            if (v != value(stat, before)) evaluate(b, stat, v);
+        }
+    }
+
+    // Reads the ledger before taking our lock; the ledger calls us under its own
+    private Book activeBook() {
+        String profileId = profiles.activeId();
+        synchronized (this) {
+            Book b = books.get(profileId);
+            if (b != null) return b;
+        }
+        GameState state = ledger.state(profileId);
+        synchronized (this) {
+            return book(profileId, state);
+        }
+    }
+
+    // Caller holds the lock. Catches up once on state reached before the book existed.
+    private Book book(String profileId, GameState state) {
+        Book b = books.get(profileId);
+        if (b != null) return b;
+        b = new Book(context.getSharedPreferences(prefsName(profileId), Context.MODE_PRIVATE));
+        for (Stat stat : Stat.values()) evaluate(b, stat, value(stat, state));
+        books.put(profileId, b);
+        return b;
+    }
+
+    private static String prefsName(String profileId) {
+        return Profiles.DEFAULT_ID.equals(profileId) ? PREFS_NAME : PREFS_NAME + "_" + profileId;
+    }
+
+    private static void evaluate(Book b, Stat stat, double v) {
+        List<Rule> rules = b.subscriptions.get(stat);
+        if (rules.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor edit = null;
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            Rule r = rules.get(i);
+            if (v < r.threshold) continue;
+            rules.remove(i); // unlocked rules stop listening
+            if (edit == null) edit = b.prefs.edit();
+            edit.putLong(r.id, now);
+            GameManager.Achievement a = toAchievement(r, now);
+            b.unlocked.add(a);
+            b.newUnlocks.add(a);
+        }
+        if (edit != null) edit.apply();
+    }
+
+    private static double value(Stat stat, GameState s) {
+        switch (stat) {
+            case ACCURACY: return s.total >= MIN_PREDICTIONS_FOR_ACCURACY ? s.accuracy() : 0;
+            case BEST_STREAK: return s.bestStreak;
+            case LEVEL: return s.level;
+            case TOTAL_PREDICTIONS: return s.total;
+            default: return 0;
+        }
+    }
+
+    private static GameManager.Achievement toAchievement(Rule r, long unlockedAt) {
+        GameManager.Achievement a = new GameManager.Achievement(r.title, r.description, true);
+        a.id = r.id;
+        a.unlockedAt = unlockedAt;
+        return a;
+    }
+}
@@ -18,6 +18,8 @@ public class AppThemeManager {
     private static final String KEY_DYNAMIC_COLOR = "dynamic_color"; // boolean
     private static final String KEY_REALTIME = "realtime_enabled";
     private static final String KEY_AUTO_CLASSIFY = "auto_classify";
+    private static final String KEY_CASCADE = "cascade_enabled";
+    private static final String KEY_PERF_HUD = "perf_hud_enabled";
 
     private static SharedPreferences prefs;
 
@@ -99,6 +101,22 @@ public class AppThemeManager {
     public static void setAutoClassifyEnabled(boolean enabled) {
         prefs.edit().putBoolean(KEY_AUTO_CLASSIFY, enabled).apply();
     }
+
+    // Cascade: cheap pass first, full model / multi-crop only when unsure
+    public static boolean isCascadeEnabled() {
+        return prefs.getBoolean(KEY_CASCADE, true);
+    }
+    public static void setCascadeEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_CASCADE, enabled).apply();
+    }
+
+    // Performance overlay on the live camera preview
+    public static boolean isPerfHudEnabled() {
+        return prefs.getBoolean(KEY_PERF_HUD, false);
+    }
+    public static void setPerfHudEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_PERF_HUD, enabled).apply();
+    }
 }
 
 
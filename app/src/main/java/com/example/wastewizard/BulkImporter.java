@@ -0,0 +1,222 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Classifies many picked images as a streaming pipeline:
+ *
+ * decode (DECODERS threads, sampled down) -> batched inference -> durable copy,
+ * thumbnail and one history transaction per batch.
+ *
+ * A semaphore caps how many decoded bitmaps exist at once, so peak memory
+ * depends on {@link #MAX_IN_FLIGHT} and not on how many images were picked.
+ * Imports record no correctness feedback, so they don't touch points or streaks.
+ */
+public class BulkImporter {
+
+    private static final String TAG = "BulkImporter";
+    private static final int DECODERS = 2;
+    private static final int BATCH_SIZE = 8;
+    private static final int MAX_IN_FLIGHT = BATCH_SIZE * 2;
+    // Short edge after sampled decode: enough for the model and the stored copy
+    private static final int DECODE_MIN_EDGE_PX = 512;
+
+    /** Called on the main thread. */
+    public interface Listener {
+        void onProgress(int done, int total);
+        void onDone(@NonNull Summary summary);
+    }
+
+    public static class Summary {
+        public int total;
+        public int classified;
+        public int failed;
+        public int duplicates; // near-identical to a recent scan; stored and marked
+        public long elapsedMs;
+        public boolean cancelled;
+        public final Map<String, Integer> perLabel = new LinkedHashMap<>();
+    }
+
+    private static final class Decoded {
+        final Uri uri;
+        @Nullable final Bitmap bitmap; // null if decoding failed
+
+        Decoded(Uri uri, @Nullable Bitmap bitmap) {
+            this.uri = uri;
+            this.bitmap = bitmap;
+        }
+    }
+
+    private final Context appContext;
+    private TFLiteClassifier classifier; // held for the whole import, consumer thread only
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    public BulkImporter(@NonNull Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /** Stop after the batch in progress; already written results are kept. */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public void start(@NonNull List<Uri> uris, @NonNull Listener listener) {
+        List<Uri> work = new ArrayList<>(uris);
+        ExecutorService decoders = Executors.newFixedThreadPool(DECODERS);
+        ExecutorService feeder = Executors.newSingleThreadExecutor();
+        ExecutorService consumer = Executors.newSingleThreadExecutor();
+        BlockingQueue<Decoded> decoded = new LinkedBlockingQueue<>();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        AtomicBoolean finished = new AtomicBoolean(); // consumer gone; nobody else will take from decoded
+
+        // Feed decode jobs, blocking whenever MAX_IN_FLIGHT bitmaps are undelivered
+        feeder.execute(() -> {
+            for (Uri uri : work) {
+                if (cancelled.get()) break;
+                try {
+                    inFlight.acquire();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                decoders.execute(() -> {
+                    decoded.add(new Decoded(uri, cancelled.get() ? null : decode(uri)));
+                    // Finished after a cancel: the consumer's final sweep may have missed this one
+                    if (finished.get()) recycleAll(decoded);
+                });
+            }
+            decoders.shutdown();
+        });
+
+        consumer.execute(() -> {
+            Summary summary = new Summary();
+            summary.total = work.size();
+            long start = System.currentTimeMillis();
+            String profileId = Profiles.get(appContext).activeId();
+            List<Decoded> batch = new ArrayList<>(BATCH_SIZE);
+            int done = 0;
+            ModelRegistry registry = ModelRegistry.get(appContext);
+            try {
+                // Hold our own reference so a variant switch mid-import can't close it
+                classifier = registry.acquire();
+                while (done < work.size() && !cancelled.get()) {
+                    // Block for the first item, then take whatever else is ready
+                    batch.add(decoded.take());
+                    decoded.drainTo(batch, BATCH_SIZE - batch.size());
+                    int n = batch.size();
+                    processBatch(batch, profileId, summary);
+                    for (Decoded d : batch) if (d.bitmap != null) d.bitmap.recycle();
+                    batch.clear();
+                    inFlight.release(n);
+                    done += n;
+                    final int progress = done;
+                    main.post(() -> listener.onProgress(progress, work.size()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (java.io.IOException e) {
+                android.util.Log.w(TAG, "model unavailable: " + e.getMessage());
+                cancelled.set(true);
+            } finally {
+                registry.release(classifier);
+                feeder.shutdownNow();
+                // Let a blocked feeder or decoder finish; drop anything decoded after a cancel
+                inFlight.release(MAX_IN_FLIGHT);
+                for (Decoded d : batch) if (d.bitmap != null) d.bitmap.recycle();
+                finished.set(true);
+                recycleAll(decoded);
+                consumer.shutdown();
+            }
+            summary.cancelled = cancelled.get();
+            summary.elapsedMs = System.currentTimeMillis() - start;
+            android.util.Log.d(TAG, "imported " + summary.classified + "/" + summary.total
+                    + " (" + summary.failed + " failed) in " + summary.elapsedMs + "ms");
+            if (summary.classified > 0) CaptureStorage.get(appContext).compactAsync();
+            main.post(() -> listener.onDone(summary));
+        });
+    }
+
+    private void processBatch(List<Decoded> batch, String profileId, Summary summary) {
+        List<Bitmap> bitmaps = new ArrayList<>(batch.size());
+        List<Decoded> ok = new ArrayList<>(batch.size());
+        for (Decoded d : batch) {
+            if (d.bitmap != null) {
+                bitmaps.add(d.bitmap);
+                ok.add(d);
+            } else {
+                summary.failed++;
+            }
+        }
+        if (ok.isEmpty()) return;
+
+        float[][] probs;
+        try {
+            probs = classifier.inferProbsBatch(bitmaps);
+        } catch (RuntimeException e) {
+            android.util.Log.w(TAG, "batch inference failed: " + e.getMessage());
+            summary.failed += ok.size();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<GameManager.ScanHistory> rows = new ArrayList<>(ok.size());
+        for (int i = 0; i < ok.size(); i++) {
+            float[] p = probs[i];
+            int best = 0;
+            for (int k = 1; k < p.length; k++) if (p[k] > p[best]) best = k;
+            String label = classifier.getLabelAt(best);
+            // Picker grants expire, so store our own copy like single imports do
+            String path = CaptureStorage.get(appContext).importNow(bitmaps.get(i)).getAbsolutePath();
+            ThumbnailCache.get(appContext).storeNow(path, bitmaps.get(i));
+            GameManager.ScanHistory row = new GameManager.ScanHistory(path, label, p[best], now, null);
+            row.imageHash = PerceptualHash.dHash(bitmaps.get(i));
+            rows.add(row);
+            summary.classified++;
+            Integer c = summary.perLabel.get(label);
+            summary.perLabel.put(label, c == null ? 1 : c + 1);
+        }
+        HistoryStore.get(appContext).insertAll(profileId, rows);
+        for (GameManager.ScanHistory row : rows) if (row.duplicateOf != 0) summary.duplicates++;
+    }
+
+    @Nullable
+    private Bitmap decode(Uri uri) {
+        try {
+            ImageDecoder.Source src = ImageDecoder.createSource(appContext.getContentResolver(), uri);
+            return ImageDecoder.decodeBitmap(src, (decoder, info, s) -> {
+                decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+                decoder.setTargetSampleSize(ThumbnailCache.sampleSizeFor(
+                        info.getSize().getWidth(), info.getSize().getHeight(), DECODE_MIN_EDGE_PX));
+            });
+        } catch (Exception | OutOfMemoryError e) {
+            android.util.Log.w(TAG, "decode failed for " + uri + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Bitmaps decoded for an import that is over; safe to call from several threads
+    private static void recycleAll(BlockingQueue<Decoded> decoded) {
+        List<Decoded> left = new ArrayList<>();
+        decoded.drainTo(left);
+        for (Decoded d : left) if (d.bitmap != null) d.bitmap.recycle();
+    }
+}
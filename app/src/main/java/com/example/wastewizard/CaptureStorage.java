@@ -0,0 +1,239 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps app-owned full-size images under a byte budget: camera captures in
+ * cacheDir and downscaled WebP copies of picker images in filesDir/imports.
+ *
+ * Compaction evicts, oldest first, files no history entry refers to, then the
+ * oldest images still referenced from history. Thumbnails live in their own
+ * directory (see {@link ThumbnailCache}) and are never touched here; they are
+ * kept until their history row is deleted, so evicted entries keep showing in
+ * the list and can still be re-classified.
+ */
+public class CaptureStorage {
+
+    private static final String TAG = "CaptureStorage";
+    private static final long BUDGET_BYTES = 64L * 1024 * 1024;
+    // A capture may still be waiting on the "Was this correct?" dialog
+    private static final long GRACE_MS = 10 * 60 * 1000L;
+    private static final String[] PREFIXES = { "capture_", "live_" };
+    private static final String IMPORTS_DIR = "imports";
+    // Long edge of imported copies; well above the model input, small on disk
+    private static final int IMPORT_MAX_EDGE_PX = 1024;
+    private static final int IMPORT_QUALITY = 85;
+
+    private static CaptureStorage instance;
+
+    private final Context appContext;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final java.util.concurrent.atomic.AtomicInteger importSeq = new java.util.concurrent.atomic.AtomicInteger();
+
+    public static synchronized CaptureStorage get(@NonNull Context context) {
+        if (instance == null) instance = new CaptureStorage(context.getApplicationContext());
+        return instance;
+    }
+
+    private CaptureStorage(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /** New capture file in the managed directory. */
+    @NonNull
+    public File newCaptureFile(@NonNull String prefix) {
+        return new File(appContext.getCacheDir(), prefix + System.currentTimeMillis() + ".jpg");
+    }
+
+    /**
+     * Durable copy of a picker image. content:// grants expire, so history records
+     * the returned path instead; the downscaled WebP is written in the background
+     * from the bitmap that was already decoded for classification.
+     */
+    @NonNull
+    public File importAsync(@NonNull android.graphics.Bitmap source) {
+        File out = newImportFile();
+        worker.execute(() -> writeImport(source, out));
+        return out;
+    }
+
+    /**
+     * Blocking {@link #importAsync}, for callers that already run off the main
+     * thread and must not queue bitmaps faster than they are written.
+     */
+    @NonNull
+    public File importNow(@NonNull android.graphics.Bitmap source) {
+        File out = newImportFile();
+        writeImport(source, out);
+        return out;
+    }
+
+    /**
+     * Delete captures that will never reach history, with their thumbnails. Runs
+     * on the import worker, so it follows a still-pending write of the same file.
+     */
+    public void discardAsync(@NonNull java.util.List<String> paths) {
+        worker.execute(() -> {
+            ThumbnailCache thumbs = ThumbnailCache.get(appContext);
+            for (String path : paths) {
+                //noinspection ResultOfMethodCallIgnored
+                new File(path).delete();
+                thumbs.remove(path);
+            }
+        });
+    }
+
+    private File newImportFile() {
+        File dir = new File(appContext.getFilesDir(), IMPORTS_DIR);
+        // Bulk imports can land within the same millisecond
+        return new File(dir, "import_" + System.currentTimeMillis() + "_" + importSeq.incrementAndGet() + ".webp");
+    }
+
+    private static void writeImport(android.graphics.Bitmap source, File out) {
+        File dir = out.getParentFile();
+        if (dir == null || (!dir.exists() && !dir.mkdirs())) return;
+        android.graphics.Bitmap scaled = downscale(source, IMPORT_MAX_EDGE_PX);
+        File tmp = new File(dir, out.getName() + ".tmp");
+        try (java.io.FileOutputStream fos = new java.io.FileOutputStream(tmp)) {
+            scaled.compress(webpFormat(), IMPORT_QUALITY, fos);
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "import failed: " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        } finally {
+            if (scaled != source) scaled.recycle();
+        }
+        if (!tmp.renameTo(out)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static android.graphics.Bitmap.CompressFormat webpFormat() {
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.R) {
+            return android.graphics.Bitmap.CompressFormat.WEBP_LOSSY;
+        }
+        return android.graphics.Bitmap.CompressFormat.WEBP;
+    }
+
+    private static android.graphics.Bitmap downscale(android.graphics.Bitmap src, int maxEdge) {
+        int w = src.getWidth(), h = src.getHeight();
+        int longEdge = Math.max(w, h);
+        if (longEdge <= maxEdge) return src;
+        float s = (float) maxEdge / longEdge;
+        return android.graphics.Bitmap.createScaledBitmap(src,
+                Math.max(1, Math.round(w * s)), Math.max(1, Math.round(h * s)), true);
+    }
+
+    /** Schedule a compaction pass; repeated calls while one is queued collapse into it. */
+    public void compactAsync() {
+        if (!pending.compareAndSet(false, true)) return;
+        worker.execute(() -> {
+            pending.set(false);
+            try {
+                compact();
+            } catch (Exception e) {
+                android.util.Log.w(TAG, "compaction failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Total bytes of managed image files. */
+    public long usedBytes() {
+        long total = 0;
+        for (File f : listManaged()) total += f.length();
+        return total;
+    }
+
+    private void compact() {
+        List<File> files = listManaged();
+        long used = 0;
+        for (File f : files) used += f.length();
+        if (used <= BUDGET_BYTES) return;
+
+        Set<String> referenced = referencedPaths();
+        long now = System.currentTimeMillis();
+        files.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        List<File> unreferenced = new ArrayList<>();
+        List<File> inHistory = new ArrayList<>();
+        for (File f : files) {
+            if (now - f.lastModified() < GRACE_MS) continue;
+            if (referenced.contains(f.getAbsolutePath())) inHistory.add(f);
+            else unreferenced.add(f);
+        }
+
+        int evicted = 0;
+        long before = used;
+        for (File f : unreferenced) {
+            if (used <= BUDGET_BYTES) break;
+            long len = f.length();
+            if (f.delete()) { used -= len; evicted++; }
+        }
+        for (File f : inHistory) {
+            if (used <= BUDGET_BYTES) break;
+            long len = f.length();
+            if (f.delete()) { used -= len; evicted++; }
+        }
+        android.util.Log.d(TAG, "compacted " + evicted + " files, " + before + " -> " + used + " bytes");
+    }
+
+    private List<File> listManaged() {
+        List<File> out = new ArrayList<>();
+        File[] files = appContext.getCacheDir().listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isFile() && isManagedName(f.getName())) out.add(f);
+            }
+        }
+        File[] imports = new File(appContext.getFilesDir(), IMPORTS_DIR).listFiles();
+        if (imports != null) {
+            for (File f : imports) {
+                if (f.isFile() && !f.getName().endsWith(".tmp")) out.add(f);
+            }
+        }
+        return out;
+    }
+
+    private static boolean isManagedName(String name) {
+        for (String p : PREFIXES) if (name.startsWith(p)) return true;
+        return false;
+    }
+
+    private Set<String> referencedPaths() {
+        Set<String> out = new HashSet<>();
+        for (String path : HistoryStore.get(appContext).imagePaths()) {
+            File f = toFile(path);
+            if (f != null) out.add(f.getAbsolutePath());
+        }
+        return out;
+    }
+
+    /** File behind a history imagePath, or null for content URIs and empty paths. */
+    @Nullable
+    static File toFile(@Nullable String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) return null;
+        if (imagePath.startsWith("file:")) {
+            String p = Uri.parse(imagePath).getPath();
+            return p != null ? new File(p) : null;
+        }
+        if (imagePath.contains("://")) return null;
+        return new File(imagePath);
+    }
+}
@@ -127,16 +127,14 @@ public class DashboardFragment extends Fragment {
         if (gameManager == null) return;
         
         // Update welcome text with username
-        txtWelcome.setText("Welcome, " + AppThemeManager.getUsername() + "!");
-        
-        // Core stats (points/level/streak still from prefs)
-        txtLevel.setText("Level " + gameManager.getLevel());
-        txtPoints.setText(String.valueOf(gameManager.getTotalPoints()));
-        txtStreak.setText(String.valueOf(gameManager.getCurrentStreak()));
-
-        // Accuracy based on confirmed history
-        double acc = gameManager.getAccuracyFromHistory();
-        txtAccuracy.setText(String.format(java.util.Locale.getDefault(), "%.1f%%", acc));
+        txtWelcome.setText("Welcome, " + Profiles.get(requireContext()).activeName() + "!");
+        
+        // Core stats from the gamification ledger (same source as ProfileFragment)
+        GameState state = gameManager.getState();
+        txtLevel.setText("Level " + state.level);
+        txtPoints.setText(String.valueOf(state.points));
+        txtStreak.setText(String.valueOf(state.streak));
+        txtAccuracy.setText(String.format(java.util.Locale.getDefault(), "%.1f%%", state.accuracy()));
 
         // Today / Weekly / Total from history
         int today = gameManager.getScanCountToday();
@@ -0,0 +1,63 @@
+package com.example.wastewizard;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+/** Hidden screen with live stage percentiles; opened from About. */
+public class DebugStatsFragment extends Fragment {
+
+    private static final long REFRESH_MS = 1000;
+
+    private TextView txtStats;
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            if (txtStats == null || !isAdded()) return;
+            txtStats.setText(buildReport());
+            txtStats.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    @Nullable @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View v = inflater.inflate(R.layout.fragment_debug_stats, container, false);
+        txtStats = v.findViewById(R.id.txtStats);
+        v.findViewById(R.id.btnResetStats).setOnClickListener(view -> {
+            InferenceStats.reset();
+            txtStats.setText(buildReport());
+        });
+        return v;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        refresh.run();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (txtStats != null) txtStats.removeCallbacks(refresh);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        txtStats = null;
+    }
+
+    private String buildReport() {
+        ModelRegistry.Spec spec = ModelRegistry.get(requireContext()).active();
+        return "model " + spec.id + " (" + spec.version + ")\n"
+                + android.os.Build.MANUFACTURER + " " + android.os.Build.MODEL + ", Android " + android.os.Build.VERSION.RELEASE
+                + "\n\n" + InferenceStats.report();
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.wastewizard;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of gamification events with periodic state snapshots.
+ *
+ * Points, level and streaks are never stored as mutable counters; they are the
+ * fold of the event log through {@link GameState#apply}. On first use the latest
+ * snapshot for the current {@link GameState#RULES_VERSION} is loaded and only
+ * the events after it are replayed. After that the in-memory state is updated
+ * as events are appended, and a new snapshot is written every
+ * {@link #SNAPSHOT_INTERVAL} events to bound replay cost.
+ *
+ * Every event and snapshot belongs to a {@link Profiles} profile. States are
+ * cached per profile, so switching profiles is a map lookup, and a profile's
+ * first load reads only its own rows.
+ */
+public class GameLedger extends SQLiteOpenHelper {
+
+    private static final String TAG = "GameLedger";
+    private static final String DB_NAME = "game_ledger.db";
+    private static final int DB_VERSION = 2;
+
+    private static final int SNAPSHOT_INTERVAL = 64;
+    private static final int SNAPSHOTS_KEPT = 3;
+
+    private static final String T_EVENTS = "events";
+    private static final String T_SNAPSHOTS = "snapshots";
+
+    /** Notified under the ledger lock after each event is folded in. */
+    public interface StateListener {
+        void onStateChanged(@NonNull String profileId, @NonNull GameState before, @NonNull GameState after);
+    }
+
+    /** One logged event, as read back for sync. */
+    public static class Event {
+        public final long seq;
+        public final String profileId;
+        public final int type;
+        public final long ts;
+        public final long value;
+        @Nullable public final String payload;
+
+        Event(long seq, String profileId, int type, long ts, long value, @Nullable String payload) {
+            this.seq = seq;
+            this.profileId = profileId;
+            this.type = type;
+            this.ts = ts;
+            this.value = value;
+            this.payload = payload;
+        }
+    }
+
+    private static GameLedger instance;
+
+    private final Profiles profiles;
+    // Guarded by this; a profile is absent until its first load
+    private final Map<String, GameState> states = new HashMap<>();
+    private final Map<String, Integer> sinceSnapshot = new HashMap<>();
+    private final List<StateListener> listeners = new ArrayList<>();
+
+    public static synchronized GameLedger get(@NonNull Context context) {
+        if (instance == null) instance = new GameLedger(context.getApplicationContext());
+        return instance;
+    }
+
+    private GameLedger(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        profiles = Profiles.get(context);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_EVENTS + " ("
+                + "seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "type INTEGER NOT NULL, "
+                + "ts INTEGER NOT NULL, "
+                + "value INTEGER NOT NULL DEFAULT 0, "
+                + "payload TEXT, "
+                + "profile TEXT NOT NULL DEFAULT '" + Profiles.DEFAULT_ID + "')");
+        db.execSQL("CREATE INDEX idx_events_profile ON " + T_EVENTS + "(profile, seq)");
+        db.execSQL("CREATE TABLE " + T_SNAPSHOTS + " ("
+                + "seq INTEGER NOT NULL, "
+                + "rules INTEGER NOT NULL, "
+                + "points INTEGER NOT NULL, "
+                + "level INTEGER NOT NULL, "
+                + "total INTEGER NOT NULL, "
+                + "correct INTEGER NOT NULL, "
+                + "streak INTEGER NOT NULL, "
+                + "best INTEGER NOT NULL, "
+                + "profile TEXT NOT NULL DEFAULT '" + Profiles.DEFAULT_ID + "', "
+                + "PRIMARY KEY (rules, seq))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Everything recorded before kiosk mode belongs to the default profile
+            String col = " ADD COLUMN profile TEXT NOT NULL DEFAULT '" + Profiles.DEFAULT_ID + "'";
+            db.execSQL("ALTER TABLE " + T_EVENTS + col);
+            db.execSQL("ALTER TABLE " + T_SNAPSHOTS + col);
+            db.execSQL("CREATE INDEX idx_events_profile ON " + T_EVENTS + "(profile, seq)");
+        }
+    }
+
+    /** Current derived state of the active profile (a copy). */
+    @NonNull
+    public GameState state() {
+        return state(profiles.activeId());
+    }
+
+    @NonNull
+    public synchronized GameState state(@NonNull String profileId) {
+        return ensureLoaded(profileId).copy();
+    }
+
+    public synchronized void addStateListener(@NonNull StateListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    /** True if the profile has no events. */
+    public synchronized boolean isEmpty(@NonNull String profileId) {
+        return android.database.DatabaseUtils.queryNumEntries(getReadableDatabase(), T_EVENTS,
+                "profile = ?", new String[]{ profileId }) == 0;
+    }
+
+    /** Append an event for the active profile and fold it into its in-memory state. */
+    @NonNull
+    public GameState append(int type, long value, @Nullable String payload) {
+        return append(profiles.activeId(), type, value, payload);
+    }
+
+    @NonNull
+    public synchronized GameState append(@NonNull String profileId, int type, long value, @Nullable String payload) {
+        GameState s = ensureLoaded(profileId);
+        ContentValues v = new ContentValues();
+        v.put("type", type);
+        v.put("ts", System.currentTimeMillis());
+        v.put("value", value);
+        if (payload != null) v.put("payload", payload);
+        v.put("profile", profileId);
+        long seq = getWritableDatabase().insert(T_EVENTS, null, v);
+        if (seq < 0) {
+            android.util.Log.e(TAG, "event append failed, type=" + type);
+            return s.copy();
+        }
+        GameState before = s.copy();
+        s.apply(seq, type, value, payload);
+        // Seqs are shared by all profiles, so count this profile's events instead
+        int pending = sinceSnapshot.getOrDefault(profileId, 0) + 1;
+        if (pending >= SNAPSHOT_INTERVAL) {
+            writeSnapshot(profileId, s);
+            pending = 0;
+        }
+        sinceSnapshot.put(profileId, pending);
+        notifyListeners(profileId, before, s);
+        return s.copy();
+    }
+
+    /**
+     * Append many events of one type in a single transaction. Listeners hear one
+     * change covering the whole batch.
+     */
+    @NonNull
+    public synchronized GameState appendBatch(@NonNull String profileId, int type, @NonNull long[] values) {
+        GameState s = ensureLoaded(profileId);
+        if (values.length == 0) return s.copy();
+        GameState before = s.copy();
+        SQLiteDatabase db = getWritableDatabase();
+        long now = System.currentTimeMillis();
+        int pending = sinceSnapshot.getOrDefault(profileId, 0);
+        boolean ok = false;
+        db.beginTransaction();
+        try {
+            for (long value : values) {
+                ContentValues v = new ContentValues();
+                v.put("type", type);
+                v.put("ts", now);
+                v.put("value", value);
+                v.put("profile", profileId);
+                long seq = db.insert(T_EVENTS, null, v);
+                if (seq < 0) throw new android.database.SQLException("event append failed, type=" + type);
+                s.apply(seq, type, value, null);
+            }
+            if (pending + values.length >= SNAPSHOT_INTERVAL) {
+                writeSnapshot(profileId, s);
+                pending = 0;
+            } else {
+                pending += values.length;
+            }
+            db.setTransactionSuccessful();
+            ok = true;
+        } catch (android.database.SQLException e) {
+            android.util.Log.e(TAG, e.getMessage());
+        } finally {
+            db.endTransaction();
+        }
+        if (!ok) {
+            // Nothing was committed; drop the partly folded state and reload it
+            states.remove(profileId);
+            return ensureLoaded(profileId).copy();
+        }
+        sinceSnapshot.put(profileId, pending);
+        notifyListeners(profileId, before, s);
+        return s.copy();
+    }
+
+    /**
+     * Rebuild the active profile's state from its full log, e.g. after scoring
+     * rules changed. Writes a fresh snapshot so the next start is cheap again.
+     */
+    @NonNull
+    public synchronized GameState recompute() {
+        String profileId = profiles.activeId();
+        GameState before = ensureLoaded(profileId).copy();
+        GameState s = new GameState();
+        replay(profileId, s);
+        states.put(profileId, s);
+        writeSnapshot(profileId, s);
+        sinceSnapshot.put(profileId, 0);
+        notifyListeners(profileId, before, s);
+        return s.copy();
+    }
+
+    /** Events of every profile with seq above afterSeq, oldest first. */
+    @NonNull
+    public synchronized List<Event> eventsAfter(long afterSeq, int limit) {
+        List<Event> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(T_EVENTS,
+                new String[]{ "seq", "profile", "type", "ts", "value", "payload" },
+                "seq > ?", new String[]{ String.valueOf(afterSeq) }, null, null, "seq", String.valueOf(limit))) {
+            while (c.moveToNext()) {
+                out.add(new Event(c.getLong(0), c.getString(1), c.getInt(2), c.getLong(3), c.getLong(4),
+                        c.isNull(5) ? null : c.getString(5)));
+            }
+        }
+        return out;
+    }
+
+    private void notifyListeners(String profileId, GameState before, GameState after) {
+        for (StateListener l : listeners) l.onStateChanged(profileId, before, after.copy());
+    }
+
+    /** Drop the active profile's events and snapshots. */
+    public synchronized void reset() {
+        String profileId = profiles.activeId();
+        GameState before = ensureLoaded(profileId).copy();
+        SQLiteDatabase db = getWritableDatabase();
+        String[] args = { profileId };
+        db.beginTransaction();
+        try {
+            db.delete(T_EVENTS, "profile = ?", args);
+            db.delete(T_SNAPSHOTS, "profile = ?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        GameState s = new GameState();
+        states.put(profileId, s);
+        sinceSnapshot.put(profileId, 0);
+        notifyListeners(profileId, before, s);
+    }
+
+    // Caller holds the lock
+    private GameState ensureLoaded(String profileId) {
+        GameState s = states.get(profileId);
+        if (s == null) {
+            long start = System.nanoTime();
+            GameState base = latestSnapshot(profileId);
+            boolean fromSnapshot = base != null;
+            s = base != null ? base : new GameState();
+            int replayed = replay(profileId, s);
+            android.util.Log.d(TAG, "loaded " + profileId + " seq=" + s.seq + (fromSnapshot ? " from snapshot" : " from full replay")
+                    + " in " + (System.nanoTime() - start) / 1000 + "us");
+            // Old or missing snapshot: persist one so the next start skips the replay
+            if (!fromSnapshot && replayed > 0) {
+                writeSnapshot(profileId, s);
+                replayed = 0;
+            }
+            states.put(profileId, s);
+            sinceSnapshot.put(profileId, replayed);
+        }
+        return s;
+    }
+
+    // Fold the profile's events after into.seq; returns how many were applied
+    private int replay(String profileId, GameState into) {
+        int n = 0;
+        try (Cursor c = getReadableDatabase().query(T_EVENTS,
+                new String[]{ "seq", "type", "value", "payload" },
+                "profile = ? AND seq > ?", new String[]{ profileId, String.valueOf(into.seq) }, null, null, "seq")) {
+            while (c.moveToNext()) {
+                into.apply(c.getLong(0), c.getInt(1), c.getLong(2), c.isNull(3) ? null : c.getString(3));
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Nullable
+    private GameState latestSnapshot(String profileId) {
+        try (Cursor c = getReadableDatabase().query(T_SNAPSHOTS,
+                new String[]{ "seq", "points", "level", "total", "correct", "streak", "best" },
+                "rules = ? AND profile = ?", new String[]{ String.valueOf(GameState.RULES_VERSION), profileId },
+                null, null, "seq DESC", "1")) {
+            if (!c.moveToFirst()) return null;
+            GameState s = new GameState();
+            s.seq = c.getLong(0);
+            s.points = c.getInt(1);
+            s.level = c.getInt(2);
+            s.total = c.getInt(3);
+            s.correct = c.getInt(4);
+            s.streak = c.getInt(5);
+            s.bestStreak = c.getInt(6);
+            return s;
+        }
+    }
+
+    private void writeSnapshot(String profileId, GameState s) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues v = new ContentValues();
+        v.put("seq", s.seq);
+        v.put("rules", GameState.RULES_VERSION);
+        v.put("points", s.points);
+        v.put("level", s.level);
+        v.put("total", s.total);
+        v.put("correct", s.correct);
+        v.put("streak", s.streak);
+        v.put("best", s.bestStreak);
+        v.put("profile", profileId);
+        db.insertWithOnConflict(T_SNAPSHOTS, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+        // Keep a few recent snapshots per profile for the current rules; older rule versions are useless
+        db.execSQL("DELETE FROM " + T_SNAPSHOTS + " WHERE profile = ? AND (rules != ? OR seq NOT IN (SELECT seq FROM "
+                + T_SNAPSHOTS + " WHERE profile = ? AND rules = ? ORDER BY seq DESC LIMIT " + SNAPSHOTS_KEPT + "))",
+                new Object[]{ profileId, GameState.RULES_VERSION, profileId, GameState.RULES_VERSION });
+    }
+}
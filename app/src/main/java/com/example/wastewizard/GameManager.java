@@ -2,56 +2,94 @@ package com.example.wastewizard;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import java.util.ArrayList;
 import java.util.List;
 
 public class GameManager {
     private static final String PREFS_NAME = "WasteWizardGame";
+    // Pre-ledger counters; read once to seed the event log, then removed
     private static final String KEY_TOTAL_POINTS = "total_points";
-    private static final String KEY_LEVEL = "level";
     private static final String KEY_CORRECT_PREDICTIONS = "correct_predictions";
     private static final String KEY_TOTAL_PREDICTIONS = "total_predictions";
     private static final String KEY_STREAK = "current_streak";
     private static final String KEY_BEST_STREAK = "best_streak";
+    // Level last announced by checkLevelUp (the level itself is derived); per profile, see levelKey()
+    private static final String KEY_LEVEL = "level";
     
     private SharedPreferences prefs;
     private Context context;
+    private final HistoryStore history;
+    private final GameLedger ledger;
+    private final AchievementEngine achievements;
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    /** Outcome of {@link #recordScanAsync}, on the main thread. */
+    public interface ScanRecorded {
+        void onRecorded(@NonNull ScanHistory row, boolean levelUp, @NonNull List<Achievement> unlocked);
+    }
     
     public GameManager(Context context) {
         this.context = context;
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.history = HistoryStore.get(context);
+        this.ledger = GameLedger.get(context);
+        migrateLegacyHistory();
+        migrateLegacyCounters();
+        this.achievements = AchievementEngine.get(context);
+        Leaderboard.get(context); // keeps every profile's score in step with the ledger
+    }
+
+    private String levelKey() {
+        String profileId = Profiles.get(context).activeId();
+        return Profiles.DEFAULT_ID.equals(profileId) ? KEY_LEVEL : KEY_LEVEL + "_" + profileId;
+    }
+
+    private void migrateLegacyCounters() {
+        if (!prefs.contains(KEY_TOTAL_POINTS) && !prefs.contains(KEY_TOTAL_PREDICTIONS)) return;
+        // Counters from before kiosk mode belong to the device owner
+        if (ledger.isEmpty(Profiles.DEFAULT_ID)) {
+            ledger.append(Profiles.DEFAULT_ID, GameState.EVENT_BASELINE, 0, GameState.baselinePayload(
+                    prefs.getInt(KEY_TOTAL_POINTS, 0), prefs.getInt(KEY_LEVEL, 1),
+                    prefs.getInt(KEY_TOTAL_PREDICTIONS, 0), prefs.getInt(KEY_CORRECT_PREDICTIONS, 0),
+                    prefs.getInt(KEY_STREAK, 0), prefs.getInt(KEY_BEST_STREAK, 0)));
+        }
+        prefs.edit()
+            .remove(KEY_TOTAL_POINTS)
+            .remove(KEY_TOTAL_PREDICTIONS)
+            .remove(KEY_CORRECT_PREDICTIONS)
+            .remove(KEY_STREAK)
+            .remove(KEY_BEST_STREAK)
+            .apply();
     }
     
-    // Points and Level System
+    // Points and Level System (all derived from the event ledger)
     public void addPoints(int points) {
-        int currentPoints = getTotalPoints();
-        int newPoints = currentPoints + points;
-        prefs.edit().putInt(KEY_TOTAL_POINTS, newPoints).apply();
+        ledger.append(GameState.EVENT_POINTS, points, null);
     }
     
     public int getTotalPoints() {
-        return prefs.getInt(KEY_TOTAL_POINTS, 0);
+        return ledger.state().points;
     }
     
     public int getLevel() {
-        return prefs.getInt(KEY_LEVEL, 1);
+        return ledger.state().level;
     }
     
     public int getPointsToNextLevel() {
-        int currentLevel = getLevel();
-        int pointsNeeded = currentLevel * 100; // 100 points per level
-        int currentPoints = getTotalPoints();
-        return Math.max(0, pointsNeeded - currentPoints);
+        GameState s = ledger.state();
+        int pointsNeeded = s.level * 100; // 100 points per level
+        return Math.max(0, pointsNeeded - s.points);
     }
     
+    /** True once per level reached since the last call. */
     public boolean checkLevelUp() {
-        int currentLevel = getLevel();
-        int pointsForNextLevel = (currentLevel + 1) * 100;
-        int currentPoints = getTotalPoints();
-        
-        if (currentPoints >= pointsForNextLevel) {
-            prefs.edit().putInt(KEY_LEVEL, currentLevel + 1).apply();
+        int level = getLevel();
+        String key = levelKey();
+        if (level > prefs.getInt(key, 1)) {
+            prefs.edit().putInt(key, level).apply();
             return true;
         }
         return false;
@@ -60,58 +98,33 @@ public class GameManager {
     // Statistics
     public void recordPrediction(boolean isCorrect) {
         android.util.Log.d("GM", "recordPrediction isCorrect=" + isCorrect);
-        int total = getTotalPredictions() + 1;
-        int correct = getCorrectPredictions();
-        if (isCorrect) {
-            correct++;
-            addStreak();
-            addPoints(calculatePoints());
-        } else {
-            resetStreak();
-        }
-        
-        prefs.edit()
-            .putInt(KEY_TOTAL_PREDICTIONS, total)
-            .putInt(KEY_CORRECT_PREDICTIONS, correct)
-            .apply();
+        ledger.append(GameState.EVENT_PREDICTION, isCorrect ? 1 : 0, null);
     }
     
     public int getTotalPredictions() {
-        return prefs.getInt(KEY_TOTAL_PREDICTIONS, 0);
+        return ledger.state().total;
     }
     
     public int getCorrectPredictions() {
-        return prefs.getInt(KEY_CORRECT_PREDICTIONS, 0);
+        return ledger.state().correct;
     }
     
     public double getAccuracy() {
-        int total = getTotalPredictions();
-        if (total == 0) return 0.0;
-        return (double) getCorrectPredictions() / total * 100;
+        return ledger.state().accuracy();
     }
-    
-    // Streak System
-    public void addStreak() {
-        int currentStreak = getCurrentStreak() + 1;
-        int bestStreak = getBestStreak();
-        
-        prefs.edit().putInt(KEY_STREAK, currentStreak).apply();
-        
-        if (currentStreak > bestStreak) {
-            prefs.edit().putInt(KEY_BEST_STREAK, currentStreak).apply();
-        }
-    }
-    
-    public void resetStreak() {
-        prefs.edit().putInt(KEY_STREAK, 0).apply();
+
+    /** One consistent read of every derived stat, for screens showing several of them. */
+    public GameState getState() {
+        return ledger.state();
     }
     
+    // Streak System
     public int getCurrentStreak() {
-        return prefs.getInt(KEY_STREAK, 0);
+        return ledger.state().streak;
     }
     
     public int getBestStreak() {
-        return prefs.getInt(KEY_BEST_STREAK, 0);
+        return ledger.state().bestStreak;
     }
     
     // Additional methods for compatibility
@@ -119,45 +132,39 @@ public class GameManager {
         return getCurrentStreak();
     }
     
-    public void incrementStreak() {
-        addStreak();
-    }
-    
     // Scan History Management
+    // Legacy pipe/comma-separated history string, migrated into HistoryStore on first use
     private static final String KEY_SCAN_HISTORY = "scan_history";
     
     public void addScanHistory(String imagePath, String predictedLabel, float confidence, long timestamp, boolean isCorrect) {
-        android.util.Log.d("GM", "addScanHistory correct=" + isCorrect + " label=" + predictedLabel + " confidence=" + confidence);
-        String historyStr = prefs.getString(KEY_SCAN_HISTORY, "");
-        java.util.List<ScanHistory> list = new java.util.ArrayList<>();
-        if (historyStr != null && !historyStr.isEmpty() && !"[]".equals(historyStr)) {
-            String[] entries = historyStr.split("\\|");
-            for (String entry : entries) {
-                String[] p = entry.split(",");
-                try {
-                    if (p.length >= 5) {
-                        list.add(new ScanHistory(p[0], p[1], Float.parseFloat(p[2]), Long.parseLong(p[3]), Boolean.parseBoolean(p[4])));
-                    } else if (p.length >= 4) {
-                        list.add(new ScanHistory(p[0], p[1], Float.parseFloat(p[2]), Long.parseLong(p[3]), null));
-                    }
-                } catch (Exception ignored) {}
-            }
-        }
+        addScanHistory(imagePath, predictedLabel, confidence, timestamp, isCorrect, null);
+    }
 
-        list.add(new ScanHistory(imagePath, predictedLabel, confidence, timestamp, isCorrect));
-        if (list.size() > 50) list = list.subList(list.size() - 50, list.size());
+    /** Store a scan; the returned row has duplicateOf set if it repeats a recent scan. */
+    public ScanHistory addScanHistory(String imagePath, String predictedLabel, float confidence, long timestamp,
+                                      boolean isCorrect, @Nullable Long imageHash) {
+        android.util.Log.d("GM", "addScanHistory correct=" + isCorrect + " label=" + predictedLabel + " confidence=" + confidence);
+        ScanHistory s = new ScanHistory(imagePath, predictedLabel, confidence, timestamp, isCorrect);
+        s.imageHash = imageHash;
+        history.insert(s);
+        return s;
+    }
 
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < list.size(); i++) {
-            if (i > 0) sb.append("|");
-            ScanHistory s = list.get(i);
-            sb.append(s.imagePath).append(",")
-              .append(s.predictedLabel).append(",")
-              .append(String.format("%.6f", s.confidence)).append(",")
-              .append(s.timestamp).append(",")
-              .append(s.isCorrect == null ? "false" : s.isCorrect.toString());
-        }
-        prefs.edit().putString(KEY_SCAN_HISTORY, sb.toString()).apply();
+    /**
+     * Store a scan with the user's verdict and score it unless it repeats a recent
+     * scan. The insert and ledger append run on the history worker, so dialog
+     * handlers can call this; callback gets the result on the main thread.
+     */
+    public void recordScanAsync(String imagePath, String predictedLabel, float confidence, long timestamp,
+                                boolean isCorrect, @Nullable Long imageHash, @Nullable ScanRecorded callback) {
+        history.execute(() -> {
+            ScanHistory row = addScanHistory(imagePath, predictedLabel, confidence, timestamp, isCorrect, imageHash);
+            // A rescan of the same item is kept in history but earns nothing
+            if (row.duplicateOf == 0) recordPrediction(isCorrect);
+            boolean levelUp = row.duplicateOf == 0 && checkLevelUp();
+            List<Achievement> unlocked = consumeNewAchievements();
+            if (callback != null) main.post(() -> callback.onRecorded(row, levelUp, unlocked));
+        });
     }
 
     @Deprecated
@@ -166,88 +173,50 @@ public class GameManager {
         addScanHistory(imagePath, predictedLabel, confidence, timestamp, false);
     }
     
+    /** Full history, newest first. UI lists should page through {@link #getScanHistoryPage}. */
     public java.util.List<ScanHistory> getScanHistory() {
-        java.util.List<ScanHistory> list = new java.util.ArrayList<>();
+        return history.all();
+    }
+
+    /** Newest-first page of entries older than beforeId (Long.MAX_VALUE for the first page). */
+    public java.util.List<ScanHistory> getScanHistoryPage(long beforeId, int limit) {
+        return history.page(beforeId, limit);
+    }
+
+    private void migrateLegacyHistory() {
+        if (!prefs.contains(KEY_SCAN_HISTORY)) return;
         String historyStr = prefs.getString(KEY_SCAN_HISTORY, "");
-        if (historyStr != null && !historyStr.isEmpty() && !"[]".equals(historyStr)) {
-            String[] entries = historyStr.split("\\|");
-            for (String entry : entries) {
-                String[] p = entry.split(",");
-                try {
-                    if (p.length >= 5) {
-                        float conf = Float.parseFloat(p[2]);
-                        android.util.Log.d("GM", "Retrieved confidence: " + conf + " for label: " + p[1]);
-                        list.add(new ScanHistory(p[0], p[1], conf, Long.parseLong(p[3]), Boolean.parseBoolean(p[4])));
-                    } else if (p.length >= 4) {
-                        float conf = Float.parseFloat(p[2]);
-                        android.util.Log.d("GM", "Retrieved confidence: " + conf + " for label: " + p[1]);
-                        list.add(new ScanHistory(p[0], p[1], conf, Long.parseLong(p[3]), null));
-                    }
-                } catch (Exception ignored) {}
+        // Off the main thread; importLegacy skips rows a killed earlier run already stored
+        history.execute(() -> {
+            java.util.List<ScanHistory> list = new java.util.ArrayList<>();
+            for (LegacyHistoryFormat.Entry e : LegacyHistoryFormat.parse(historyStr)) {
+                list.add(new ScanHistory(e.imagePath, e.label, e.confidence, e.timestamp, e.correct));
             }
-        }
-        java.util.Collections.reverse(list); // newest first
-        return list;
+            int added = history.importLegacy(Profiles.DEFAULT_ID, list); // stored oldest first, same as the string
+            prefs.edit().remove(KEY_SCAN_HISTORY).apply();
+            android.util.Log.d("GM", "Migrated " + added + " of " + list.size() + " legacy history entries");
+        });
     }
     
-    // Clear scan history method
+    // Clear scan history: empties the store now, deletes files in the background
     public void clearScanHistory() {
-        String historyStr = prefs.getString(KEY_SCAN_HISTORY, "");
-        if (historyStr != null && !historyStr.isEmpty() && !"[]".equals(historyStr)) {
-            String[] entries = historyStr.split("\\|");
-            for (String entry : entries) {
-                String[] parts = entry.split(",");
-                if (parts.length >= 1) {
-                    String path = parts[0];
-                    try {
-                        if (path != null && !path.isEmpty()) {
-                            java.io.File f;
-                            if (path.startsWith("file:")) {
-                                android.net.Uri u = android.net.Uri.parse(path);
-                                f = new java.io.File(u.getPath());
-                            } else {
-                                f = new java.io.File(path);
-                            }
-                            if (f.exists() && isAppOwnedFile(f)) {
-                                // Best-effort delete
-                                //noinspection ResultOfMethodCallIgnored
-                                f.delete();
-                            }
-                        }
-                    } catch (Exception ignored) { }
-                }
-            }
-        }
-        prefs.edit().remove(KEY_SCAN_HISTORY).apply();
-    }
-
-    private boolean isAppOwnedFile(java.io.File f) {
-        try {
-            String p = f.getCanonicalPath();
-            String files = context.getFilesDir().getCanonicalPath();
-            String cache = context.getCacheDir().getCanonicalPath();
-            return p.startsWith(files) || p.startsWith(cache);
-        } catch (java.io.IOException e) {
-            return false;
-        }
+        HistoryPurge.get(context).start();
     }
     
-    // Reset all game data (optional)
+    // Reset the active profile's game data (optional)
     public void resetAllData() {
-        prefs.edit().clear().apply();
+        prefs.edit().remove(levelKey()).apply();
+        ledger.reset();
+        achievements.reset();
     }
     
     // Stats helpers (today, week, accuracy)
     public int getScanHistoryCount() {
-        return getScanHistory().size();
+        return history.count();
     }
 
     public int getScanCountBetween(long startMs, long endMs) {
-        int c = 0;
-        for (ScanHistory s : getScanHistory()) {
-            if (s.timestamp >= startMs && s.timestamp < endMs) c++;
-        }
-        return c;
+        return history.countBetween(startMs, endMs);
     }
 
     public int getScanCountToday() {
@@ -267,23 +236,28 @@ public class GameManager {
     }
 
     public double getAccuracyFromHistory() {
-        int total = 0, correct = 0;
-        for (ScanHistory s : getScanHistory()) {
-            if (s.isCorrect != null) {
-                total++;
-                if (s.isCorrect) correct++;
-            }
-        }
+        int[] counts = history.feedbackCounts();
+        int total = counts[0], correct = counts[1];
         if (total == 0) return 0.0;
         return (correct * 100.0) / total;
     }
     
     public static class ScanHistory {
+        // Built once and shared; unlike SimpleDateFormat it is thread-safe
+        private static final java.time.format.DateTimeFormatter TIME_FORMAT =
+                java.time.format.DateTimeFormatter.ofPattern("MMM dd, HH:mm", java.util.Locale.getDefault())
+                        .withZone(java.time.ZoneId.systemDefault());
+
+        public long id; // HistoryStore row id, 0 until stored
+        public String profileId; // set when read back from HistoryStore
         public String imagePath;
         public String predictedLabel;
         public float confidence;
         public long timestamp;
         public Boolean isCorrect; // null = unknown (old entries)
+        @Nullable public Long imageHash; // PerceptualHash.dHash of the image, if known
+        public long duplicateOf; // id of the scan this repeats, 0 if none
+        @Nullable public String modelVersion; // model that produced the label; stamped on insert
         
         public ScanHistory(String imagePath, String predictedLabel, float confidence, long timestamp, @Nullable Boolean isCorrect) {
             this.imagePath = imagePath;
@@ -294,61 +268,26 @@ public class GameManager {
         }
         
         public String getFormattedTime() {
-            java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MMM dd, HH:mm", java.util.Locale.getDefault());
-            return sdf.format(new java.util.Date(timestamp));
+            return TIME_FORMAT.format(java.time.Instant.ofEpochMilli(timestamp));
         }
     }
     
-    // Achievement System
+    // Achievement System: rules are evaluated incrementally as ledger stats change
     public List<Achievement> getAchievements() {
-        List<Achievement> achievements = new ArrayList<>();
-        
-        // Accuracy achievements
-        if (getAccuracy() >= 90) {
-            achievements.add(new Achievement("Accuracy Master", "Achieve 90% accuracy", true));
-        }
-        if (getAccuracy() >= 95) {
-            achievements.add(new Achievement("Perfect Shot", "Achieve 95% accuracy", true));
-        }
-        
-        // Streak achievements
-        if (getBestStreak() >= 5) {
-            achievements.add(new Achievement("Hot Streak", "Get 5 predictions in a row", true));
-        }
-        if (getBestStreak() >= 10) {
-            achievements.add(new Achievement("Unstoppable", "Get 10 predictions in a row", true));
-        }
-        
-        // Level achievements
-        if (getLevel() >= 5) {
-            achievements.add(new Achievement("Rising Star", "Reach level 5", true));
-        }
-        if (getLevel() >= 10) {
-            achievements.add(new Achievement("Waste Warrior", "Reach level 10", true));
-        }
-        
-        // Prediction count achievements
-        if (getTotalPredictions() >= 50) {
-            achievements.add(new Achievement("Dedicated Learner", "Make 50 predictions", true));
-        }
-        if (getTotalPredictions() >= 100) {
-            achievements.add(new Achievement("Expert Classifier", "Make 100 predictions", true));
-        }
-        
-        return achievements;
+        return achievements.getUnlocked();
     }
-    
-    private int calculatePoints() {
-        int basePoints = 10;
-        int streakBonus = getCurrentStreak() * 2;
-        int accuracyBonus = (int) (getAccuracy() / 10);
-        return basePoints + streakBonus + accuracyBonus;
+
+    /** Achievements unlocked since the last call, for one-off unlock notifications. */
+    public List<Achievement> consumeNewAchievements() {
+        return achievements.consumeNewUnlocks();
     }
     
     public static class Achievement {
+        public String id;
         public String title;
         public String description;
         public boolean unlocked;
+        public long unlockedAt; // 0 if locked
         
         public Achievement(String title, String description, boolean unlocked) {
             this.title = title;
@@ -1,7 +1,5 @@
 package com.example.wastewizard;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,25 +10,44 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.color.MaterialColors;
 
-import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HistoryFragment extends Fragment {
 
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 10; // rows from the end before loading the next page
+    private static final int SIMILAR_MAX_DISTANCE = 10; // bits; looser than duplicate marking
+    private static final int SIMILAR_LIMIT = 20;
+
     private GameManager gameManager;
     private RecyclerView recyclerViewHistory;
+    private HistoryAdapter adapter;
+
+    // Paging state, touched on the main thread only
+    private final List<GameManager.ScanHistory> loaded = new ArrayList<>();
+    private boolean loading = false;
+    private boolean endReached = false;
+    private int generation = 0; // bumped on refresh so in-flight pages are dropped
+
+    private ExecutorService dbExecutor;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_history, container, false);
         
         gameManager = new GameManager(requireContext());
+        dbExecutor = Executors.newSingleThreadExecutor();
         initializeViews(view);
         setupHistory();
         
@@ -42,31 +59,152 @@ public class HistoryFragment extends Fragment {
     }
     
     private void setupHistory() {
-        recyclerViewHistory.setLayoutManager(new LinearLayoutManager(getContext()));
-        
-        List<GameManager.ScanHistory> history = gameManager.getScanHistory();
-        HistoryAdapter adapter = new HistoryAdapter(history);
+        LinearLayoutManager lm = new LinearLayoutManager(getContext());
+        recyclerViewHistory.setLayoutManager(lm);
+        adapter = new HistoryAdapter();
+        adapter.setOnItemLongClickListener(this::showSimilarScans);
         recyclerViewHistory.setAdapter(adapter);
+        recyclerViewHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy <= 0) return;
+                if (lm.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
     }
     
+    /**
+     * Re-reads the pages already shown (at least one) and lets DiffUtil apply the
+     * changes, so scroll position is kept and only changed rows rebind.
+     */
     public void refreshData() {
-        if (gameManager != null) {
-            setupHistory();
+        if (gameManager == null || dbExecutor == null) return;
+        final int gen = ++generation;
+        final int limit = Math.max(PAGE_SIZE, loaded.size());
+        loading = true;
+        dbExecutor.execute(() -> {
+            List<GameManager.ScanHistory> page = gameManager.getScanHistoryPage(Long.MAX_VALUE, limit);
+            postToMain(() -> {
+                if (gen != generation) return;
+                loaded.clear();
+                loaded.addAll(page);
+                endReached = page.size() < limit;
+                loading = false;
+                adapter.submitList(new ArrayList<>(loaded));
+            });
+        });
+    }
+
+    private void loadNextPage() {
+        if (loading || endReached || loaded.isEmpty()) return;
+        final int gen = generation;
+        final long beforeId = loaded.get(loaded.size() - 1).id;
+        loading = true;
+        dbExecutor.execute(() -> {
+            List<GameManager.ScanHistory> page = gameManager.getScanHistoryPage(beforeId, PAGE_SIZE);
+            postToMain(() -> {
+                if (gen != generation) return;
+                loaded.addAll(page);
+                endReached = page.size() < PAGE_SIZE;
+                loading = false;
+                adapter.submitList(new ArrayList<>(loaded));
+            });
+        });
+    }
+
+    /** "Similar past scans": the active profile's scans whose image hash is close to this one. */
+    private void showSimilarScans(GameManager.ScanHistory scan) {
+        if (dbExecutor == null) return;
+        if (scan.imageHash == null) {
+            android.widget.Toast.makeText(requireContext(), R.string.history_similar_no_hash, android.widget.Toast.LENGTH_SHORT).show();
+            return;
         }
+        final long hash = scan.imageHash;
+        final HistoryStore store = HistoryStore.get(requireContext());
+        dbExecutor.execute(() -> {
+            List<HistoryStore.Similar> similar = store.similar(hash, SIMILAR_MAX_DISTANCE, scan.id, SIMILAR_LIMIT);
+            postToMain(() -> {
+                StringBuilder msg = new StringBuilder();
+                for (HistoryStore.Similar s : similar) {
+                    if (msg.length() > 0) msg.append('\n');
+                    msg.append(getString(R.string.history_similar_item, s.scan.predictedLabel,
+                            s.scan.getFormattedTime(), s.distance));
+                }
+                new com.google.android.material.dialog.MaterialAlertDialogBuilder(requireContext())
+                        .setTitle(R.string.history_similar_title)
+                        .setMessage(similar.isEmpty() ? getString(R.string.history_similar_none) : msg.toString())
+                        .setPositiveButton(android.R.string.ok, null)
+                        .show();
+            });
+        });
+    }
+
+    private void postToMain(Runnable r) {
+        View root = getView();
+        if (root == null) return;
+        root.post(() -> {
+            if (isAdded() && getView() != null) r.run();
+        });
     }
     
     @Override
     public void onResume() {
         super.onResume();
-        refreshData(); // rebuilds the adapter from prefs
+        refreshData(); // picks up scans recorded while we were away
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        generation++;
+        loaded.clear();
+        loading = false;
+        endReached = false;
+        if (dbExecutor != null) dbExecutor.shutdown();
+        dbExecutor = null;
     }
+
+    private static final DiffUtil.ItemCallback<GameManager.ScanHistory> DIFF =
+            new DiffUtil.ItemCallback<GameManager.ScanHistory>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull GameManager.ScanHistory a, @NonNull GameManager.ScanHistory b) {
+            return a.id == b.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull GameManager.ScanHistory a, @NonNull GameManager.ScanHistory b) {
+            return a.timestamp == b.timestamp
+                    && Float.compare(a.confidence, b.confidence) == 0
+                    && java.util.Objects.equals(a.predictedLabel, b.predictedLabel)
+                    && java.util.Objects.equals(a.imagePath, b.imagePath)
+                    && java.util.Objects.equals(a.isCorrect, b.isCorrect)
+                    && a.duplicateOf == b.duplicateOf;
+        }
+    };
     
     // History Adapter
-    public static class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHolder> {
-        private List<GameManager.ScanHistory> history;
+    public static class HistoryAdapter extends ListAdapter<GameManager.ScanHistory, HistoryAdapter.ViewHolder> {
+
+        public interface OnItemLongClickListener {
+            void onItemLongClick(GameManager.ScanHistory scan);
+        }
+
+        @Nullable private OnItemLongClickListener longClickListener;
+        
+        public HistoryAdapter() {
+            super(DIFF);
+            setHasStableIds(true);
+        }
         
-        public HistoryAdapter(List<GameManager.ScanHistory> history) {
-            this.history = history;
+        public void setOnItemLongClickListener(@Nullable OnItemLongClickListener listener) {
+            this.longClickListener = listener;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).id;
         }
         
         @NonNull
@@ -78,34 +216,22 @@ public class HistoryFragment extends Fragment {
         
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            GameManager.ScanHistory scan = history.get(position);
+            GameManager.ScanHistory scan = getItem(position);
             
             holder.txtLabel.setText(scan.predictedLabel);
             holder.txtConfidence.setText(String.format("%.1f%%", scan.confidence * 100f));
             holder.txtConfidenceBadge.setText(String.format("%.0f%%", scan.confidence * 100f));
-            holder.txtTime.setText(scan.getFormattedTime());
+            holder.txtTime.setText(scan.duplicateOf != 0
+                    ? holder.itemView.getContext().getString(R.string.history_duplicate_time, scan.getFormattedTime())
+                    : scan.getFormattedTime());
+            holder.itemView.setOnLongClickListener(v -> {
+                if (longClickListener == null) return false;
+                longClickListener.onItemLongClick(scan);
+                return true;
+            });
             
-            // Load image if available
-            if (scan.imagePath != null && !scan.imagePath.isEmpty()) {
-                try {
-                    File imageFile = new File(scan.imagePath);
-                    if (imageFile.exists()) {
-                        Bitmap bitmap = BitmapFactory.decodeFile(imageFile.getAbsolutePath());
-                        if (bitmap != null) {
-                            holder.imgThumbnail.setImageBitmap(bitmap);
-                            holder.imgThumbnail.setVisibility(View.VISIBLE);
-                        } else {
-                            holder.imgThumbnail.setVisibility(View.GONE);
-                        }
-                    } else {
-                        holder.imgThumbnail.setVisibility(View.GONE);
-                    }
-                } catch (Exception e) {
-                    holder.imgThumbnail.setVisibility(View.GONE);
-                }
-            } else {
-                holder.imgThumbnail.setVisibility(View.GONE);
-            }
+            // Thumbnail comes from the memory/disk cache, decoded off the UI thread
+            ThumbnailCache.get(holder.itemView.getContext()).load(scan.imagePath, holder.imgThumbnail);
             
             // Set harmonized category color for stroke
             int stroke = CategoryColors.accent(holder.itemView.getContext(), scan.predictedLabel);
@@ -121,8 +247,9 @@ public class HistoryFragment extends Fragment {
         }
         
         @Override
-        public int getItemCount() {
-            return history.size();
+        public void onViewRecycled(@NonNull ViewHolder holder) {
+            super.onViewRecycled(holder);
+            ThumbnailCache.get(holder.itemView.getContext()).cancel(holder.imgThumbnail);
         }
         
         private int getClassColor(android.content.Context context, String label) {
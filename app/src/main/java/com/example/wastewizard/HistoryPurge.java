@@ -0,0 +1,129 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Background clear-history job.
+ *
+ * {@link #start} empties the history and queues its image paths in one SQLite
+ * transaction, run on its own thread so it never waits behind a running purge
+ * and the UI sees an empty history right away. Files are then deleted in
+ * batches on the purge worker; each batch is removed from the queue only
+ * after its files are gone, so a purge killed mid-way resumes from
+ * {@link #resumeIfPending} on next launch without losing or repeating work.
+ */
+public class HistoryPurge {
+
+    private static final String TAG = "HistoryPurge";
+    private static final int BATCH_SIZE = 50;
+
+    public interface Listener {
+        /** Called on the main thread after each batch. */
+        void onProgress(int deleted, int total);
+        /** Called on the main thread once the queue is empty. */
+        void onDone(int deleted);
+    }
+
+    private static HistoryPurge instance;
+
+    private final Context appContext;
+    private final ExecutorService clearer = Executors.newSingleThreadExecutor(); // the clear transaction
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();  // file deletion
+    private final Handler main = new Handler(Looper.getMainLooper());
+    @Nullable private volatile Listener listener;
+
+    public static synchronized HistoryPurge get(@NonNull Context context) {
+        if (instance == null) instance = new HistoryPurge(context.getApplicationContext());
+        return instance;
+    }
+
+    private HistoryPurge(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /** Replace the progress listener; pass null when the screen goes away. */
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Clear the active profile's history now and delete its files in the background. */
+    public void start() {
+        String profileId = Profiles.get(appContext).activeId();
+        clearer.execute(() -> {
+            int queued = HistoryStore.get(appContext).clearIntoPurgeQueue(profileId);
+            android.util.Log.d(TAG, "history cleared, " + queued + " files queued");
+            worker.execute(this::drain);
+        });
+    }
+
+    /** Continue a purge interrupted by process death. Cheap no-op when nothing is queued. */
+    public void resumeIfPending() {
+        worker.execute(() -> {
+            if (HistoryStore.get(appContext).pendingPurgeCount() > 0) {
+                android.util.Log.d(TAG, "resuming interrupted purge");
+                drain();
+            }
+        });
+    }
+
+    // Runs on worker
+    private void drain() {
+        HistoryStore store = HistoryStore.get(appContext);
+        ThumbnailCache thumbs = ThumbnailCache.get(appContext);
+        int total = store.pendingPurgeCount();
+        int deleted = 0;
+        while (true) {
+            List<HistoryStore.PurgeEntry> batch = store.nextPurgeBatch(BATCH_SIZE);
+            if (batch.isEmpty()) break;
+            for (HistoryStore.PurgeEntry e : batch) {
+                deleteIfAppOwned(e.path);
+                // Only this profile's thumbnails; other profiles' may be all that's left of theirs
+                thumbs.remove(e.path);
+            }
+            store.removePurgedThrough(batch.get(batch.size() - 1).id);
+            deleted += batch.size();
+            final int d = deleted, t = total;
+            main.post(() -> {
+                Listener l = listener;
+                if (l != null) l.onProgress(d, t);
+            });
+        }
+        final int d = deleted;
+        main.post(() -> {
+            Listener l = listener;
+            if (l != null) l.onDone(d);
+        });
+    }
+
+    private void deleteIfAppOwned(String path) {
+        try {
+            File f = CaptureStorage.toFile(path);
+            if (f != null && f.exists() && isAppOwnedFile(f)) {
+                // Best-effort delete
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+            }
+        } catch (Exception ignored) { }
+    }
+
+    private boolean isAppOwnedFile(File f) {
+        try {
+            String p = f.getCanonicalPath();
+            String files = appContext.getFilesDir().getCanonicalPath();
+            String cache = appContext.getCacheDir().getCanonicalPath();
+            return p.startsWith(files) || p.startsWith(cache);
+        } catch (java.io.IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package com.example.wastewizard;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SQLite-backed scan history.
+ *
+ * Rows are keyed by an autoincrement id, which doubles as the stable RecyclerView
+ * id and as the cursor for keyset paging (newest first), so reading a page costs
+ * the same no matter how long the history is. Counts and accuracy are computed
+ * in SQL instead of by parsing the whole list.
+ *
+ * Rows belong to a {@link Profiles} profile and every read is scoped to the
+ * active one through the (profile, id) index, so other players' scans are never
+ * loaded. {@link #imagePaths()} is the exception: file cleanup must see them all.
+ *
+ * Scans may carry a {@link PerceptualHash} of their image. Hashes are indexed
+ * in memory per profile ({@link HashIndex}, loaded from the table in the
+ * background when the store opens and on each profile switch) so an
+ * insert can spot a near-duplicate of a recent scan without a table scan; the
+ * new row is kept but marked with the id of the scan it repeats.
+ *
+ * Each row records the model family that labelled it, so {@link Reclassifier}
+ * can find rows left behind by a model update.
+ */
+public class HistoryStore extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "scan_history.db";
+    private static final int DB_VERSION = 5;
+
+    static final String TABLE = "scans";
+    static final String COL_ID = "_id";
+    static final String COL_PATH = "image_path";
+    static final String COL_LABEL = "label";
+    static final String COL_CONFIDENCE = "confidence";
+    static final String COL_TIMESTAMP = "timestamp";
+    static final String COL_CORRECT = "correct"; // NULL = unknown
+    static final String COL_PROFILE = "profile";
+    static final String COL_HASH = "phash";    // NULL = no image hash
+    static final String COL_DUP_OF = "dup_of"; // 0 = original scan
+    static final String COL_MODEL = "model_version";
+
+    // Near-duplicate = within this many bits of a scan of the same profile taken this close in time
+    static final int DUPLICATE_MAX_DISTANCE = 6;
+    static final long DUPLICATE_WINDOW_MS = 10 * 60_000;
+
+    // Files still to delete after a clear; survives process death so the purge can resume
+    static final String PURGE_TABLE = "purge_queue";
+
+    private static final String[] ALL_COLUMNS = {
+            COL_ID, COL_PATH, COL_LABEL, COL_CONFIDENCE, COL_TIMESTAMP, COL_CORRECT, COL_PROFILE, COL_HASH, COL_DUP_OF, COL_MODEL
+    };
+
+    private static HistoryStore instance;
+
+    public static synchronized HistoryStore get(@NonNull Context context) {
+        if (instance == null) instance = new HistoryStore(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Context appContext;
+    private final Profiles profiles;
+    // Profile id -> hash index of its scans, loaded on first use. Guarded by itself.
+    private final java.util.Map<String, HashIndex> hashIndexes = new java.util.HashMap<>();
+    // Store work that must stay off the main thread (migration, index loads)
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    private HistoryStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        appContext = context;
+        profiles = Profiles.get(context);
+        // Have the index ready before the first insert
+        warmUpAsync();
+        profiles.addListener(id -> warmUpAsync());
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.enableWriteAheadLogging(); // list paging reads while a scan is being written
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_PATH + " TEXT NOT NULL DEFAULT '', "
+                + COL_LABEL + " TEXT NOT NULL, "
+                + COL_CONFIDENCE + " REAL NOT NULL, "
+                + COL_TIMESTAMP + " INTEGER NOT NULL, "
+                + COL_CORRECT + " INTEGER, "
+                + COL_PROFILE + " TEXT NOT NULL DEFAULT '" + Profiles.DEFAULT_ID + "', "
+                + COL_HASH + " INTEGER, "
+                + COL_DUP_OF + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_MODEL + " TEXT)");
+        createProfileIndexes(db);
+        createPurgeTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) createPurgeTable(db);
+        if (oldVersion < 3) {
+            // Existing scans belong to the default profile
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COL_PROFILE
+                    + " TEXT NOT NULL DEFAULT '" + Profiles.DEFAULT_ID + "'");
+            db.execSQL("DROP INDEX IF EXISTS idx_scans_ts");
+            createProfileIndexes(db);
+        }
+        if (oldVersion < 4) {
+            // Older scans have no hash; they are simply never matched
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COL_HASH + " INTEGER");
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COL_DUP_OF + " INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 5) {
+            // Which model labelled existing scans is unknown; NULL counts as stale, so they are re-run
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COL_MODEL + " TEXT");
+        }
+    }
+
+    private static void createProfileIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_scans_profile ON " + TABLE + "(" + COL_PROFILE + ", " + COL_ID + ")");
+        db.execSQL("CREATE INDEX idx_scans_profile_ts ON " + TABLE + "(" + COL_PROFILE + ", " + COL_TIMESTAMP + ")");
+    }
+
+    private static void createPurgeTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + PURGE_TABLE + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_PATH + " TEXT NOT NULL)");
+    }
+
+    /**
+     * Insert a scan for the active profile and return its id. Sets
+     * {@code s.duplicateOf} if it repeats a recent scan.
+     */
+    public long insert(@NonNull GameManager.ScanHistory s) {
+        String profile = profiles.activeId();
+        synchronized (hashIndexes) {
+            HashIndex index = hashIndex(profile);
+            s.duplicateOf = findDuplicate(index, s);
+            s.id = getWritableDatabase().insert(TABLE, null, toValues(s, profile, currentModel()));
+            if (s.id != -1 && s.imageHash != null) index.add(s.imageHash, s.id, originalId(s), s.timestamp);
+        }
+        return s.id;
+    }
+
+    /**
+     * Insert many scans for a profile in one transaction (oldest first). Items
+     * repeating an earlier one, in the list or in history, get {@code duplicateOf} set.
+     */
+    public void insertAll(@NonNull String profile, @NonNull List<GameManager.ScanHistory> list) {
+        insertRows(profile, list, currentModel());
+    }
+
+    // model: stamped on rows without a version; null leaves them unstamped, so the reclassifier re-runs them
+    private void insertRows(String profile, List<GameManager.ScanHistory> list, @Nullable String model) {
+        SQLiteDatabase db = getWritableDatabase();
+        synchronized (hashIndexes) {
+            HashIndex index = hashIndex(profile);
+            boolean ok = false;
+            db.beginTransaction();
+            try {
+                for (GameManager.ScanHistory s : list) {
+                    s.duplicateOf = findDuplicate(index, s);
+                    s.id = db.insert(TABLE, null, toValues(s, profile, model));
+                    if (s.id != -1 && s.imageHash != null) index.add(s.imageHash, s.id, originalId(s), s.timestamp);
+                }
+                db.setTransactionSuccessful();
+                ok = true;
+            } finally {
+                db.endTransaction();
+                // The index already holds rows that were rolled back; rebuild it next time
+                if (!ok) hashIndexes.remove(profile);
+            }
+        }
+    }
+
+    /**
+     * Insert legacy scans for a profile, oldest first, in one transaction. Rows
+     * already stored (same timestamp and path) are skipped, so an import cut
+     * short before its source was removed can simply run again. Rows keep a
+     * NULL model version, like pre-v5 rows upgraded in place, so they are
+     * re-classified. Returns the number of rows added.
+     */
+    public int importLegacy(@NonNull String profile, @NonNull List<GameManager.ScanHistory> list) {
+        SQLiteDatabase db = getWritableDatabase();
+        List<GameManager.ScanHistory> missing = new ArrayList<>(list.size());
+        synchronized (hashIndexes) { // same lock order as insertAll: index lock, then transaction
+            db.beginTransaction();
+            try {
+                for (GameManager.ScanHistory s : list) {
+                    String path = s.imagePath != null ? s.imagePath : "";
+                    if (android.database.DatabaseUtils.queryNumEntries(db, TABLE,
+                            COL_PROFILE + " = ? AND " + COL_TIMESTAMP + " = ? AND " + COL_PATH + " = ?",
+                            new String[]{ profile, String.valueOf(s.timestamp), path }) == 0) {
+                        missing.add(s);
+                    }
+                }
+                insertRows(profile, missing, null); // nests in this transaction
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return missing.size();
+    }
+
+    /** Load the active profile's hash index on the store worker, so the first insert needn't. */
+    public void warmUpAsync() {
+        String profile = profiles.activeId();
+        worker.execute(() -> {
+            synchronized (hashIndexes) {
+                hashIndex(profile);
+            }
+        });
+    }
+
+    /** Run task on the store's background thread, after earlier tasks. */
+    public void execute(@NonNull Runnable task) {
+        worker.execute(task);
+    }
+
+    /**
+     * The active profile's hashed scans within maxDistance bits of hash, nearest
+     * first, excluding excludeId. Rows are read by id, so this is cheap however
+     * long the history is.
+     */
+    @NonNull
+    public List<Similar> similar(long hash, int maxDistance, long excludeId, int limit) {
+        List<HashIndex.Match> matches;
+        synchronized (hashIndexes) {
+            matches = hashIndex(profiles.activeId()).within(hash, maxDistance);
+        }
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance) : Long.compare(b.timestamp, a.timestamp));
+        List<Similar> out = new ArrayList<>();
+        for (HashIndex.Match m : matches) {
+            if (out.size() >= limit) break;
+            if (m.id == excludeId) continue;
+            List<GameManager.ScanHistory> row = query(COL_ID + " = ?", new String[]{ String.valueOf(m.id) }, "1");
+            if (!row.isEmpty()) out.add(new Similar(row.get(0), m.distance));
+        }
+        return out;
+    }
+
+    // Caller holds hashIndexes
+    @NonNull
+    private HashIndex hashIndex(String profile) {
+        HashIndex index = hashIndexes.get(profile);
+        if (index != null) return index;
+        long start = System.nanoTime();
+        index = new HashIndex();
+        try (Cursor c = getReadableDatabase().query(TABLE, new String[]{ COL_ID, COL_HASH, COL_TIMESTAMP, COL_DUP_OF },
+                COL_PROFILE + " = ? AND " + COL_HASH + " IS NOT NULL", new String[]{ profile },
+                null, null, COL_ID)) {
+            while (c.moveToNext()) {
+                long id = c.getLong(0);
+                long dupOf = c.getLong(3);
+                index.add(c.getLong(1), id, dupOf != 0 ? dupOf : id, c.getLong(2));
+            }
+        }
+        hashIndexes.put(profile, index);
+        android.util.Log.d("HistoryStore", "hash index for " + profile + ": " + index.size() + " scans in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return index;
+    }
+
+    // Id of the original behind the nearest recent scan this one repeats, or 0
+    private static long findDuplicate(HashIndex index, GameManager.ScanHistory s) {
+        if (s.imageHash == null) return 0;
+        long start = System.nanoTime();
+        long best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (HashIndex.Match m : index.within(s.imageHash, DUPLICATE_MAX_DISTANCE)) {
+            if (Math.abs(s.timestamp - m.timestamp) > DUPLICATE_WINDOW_MS) continue;
+            if (m.distance < bestDistance) {
+                bestDistance = m.distance;
+                best = m.originalId;
+            }
+        }
+        if (best != 0) {
+            android.util.Log.d("HistoryStore", "duplicate of #" + best + " (" + bestDistance + " bits) found in "
+                    + (System.nanoTime() - start) / 1000 + "us");
+        }
+        return best;
+    }
+
+    private static long originalId(GameManager.ScanHistory s) {
+        return s.duplicateOf != 0 ? s.duplicateOf : s.id;
+    }
+
+    /**
+     * Newest-first page of scans with id below beforeId (use Long.MAX_VALUE for the
+     * first page).
+     */
+    @NonNull
+    public List<GameManager.ScanHistory> page(long beforeId, int limit) {
+        return query(COL_PROFILE + " = ? AND " + COL_ID + " < ?",
+                new String[]{ profiles.activeId(), String.valueOf(beforeId) }, String.valueOf(limit));
+    }
+
+    /** Every scan, newest first. Prefer {@link #page} for UI. */
+    @NonNull
+    public List<GameManager.ScanHistory> all() {
+        return query(COL_PROFILE + " = ?", new String[]{ profiles.activeId() }, null);
+    }
+
+    /** Scans of every profile with id above afterId, oldest first (for sync). */
+    @NonNull
+    public List<GameManager.ScanHistory> scansAfter(long afterId, int limit) {
+        List<GameManager.ScanHistory> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(TABLE, ALL_COLUMNS, COL_ID + " > ?",
+                new String[]{ String.valueOf(afterId) }, null, null, COL_ID, String.valueOf(limit))) {
+            while (c.moveToNext()) out.add(fromCursor(c));
+        }
+        return out;
+    }
+
+    /**
+     * Scans of every profile labelled by a model other than modelVersion, with id
+     * above afterId, oldest first (for re-classification).
+     */
+    @NonNull
+    public List<GameManager.ScanHistory> staleAfter(long afterId, @NonNull String modelVersion, int limit) {
+        List<GameManager.ScanHistory> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(TABLE, ALL_COLUMNS,
+                COL_ID + " > ? AND (" + COL_MODEL + " IS NULL OR " + COL_MODEL + " != ?)",
+                new String[]{ String.valueOf(afterId), modelVersion }, null, null, COL_ID, String.valueOf(limit))) {
+            while (c.moveToNext()) out.add(fromCursor(c));
+        }
+        return out;
+    }
+
+    public int countStale(@NonNull String modelVersion) {
+        return (int) android.database.DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE,
+                COL_MODEL + " IS NULL OR " + COL_MODEL + " != ?", new String[]{ modelVersion });
+    }
+
+    /** Write back label, confidence, correctness and model version of re-classified scans, in one transaction. */
+    public void updateClassifications(@NonNull List<GameManager.ScanHistory> list) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (GameManager.ScanHistory s : list) {
+                ContentValues v = new ContentValues();
+                v.put(COL_LABEL, s.predictedLabel);
+                v.put(COL_CONFIDENCE, s.confidence);
+                if (s.isCorrect == null) v.putNull(COL_CORRECT);
+                else v.put(COL_CORRECT, s.isCorrect ? 1 : 0);
+                v.put(COL_MODEL, s.modelVersion);
+                db.update(TABLE, v, COL_ID + " = ?", new String[]{ String.valueOf(s.id) });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Image paths of every profile's scans. */
+    @NonNull
+    public List<String> imagePaths() {
+        List<String> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(TABLE, new String[]{ COL_PATH },
+                COL_PATH + " != ''", null, null, null, null)) {
+            while (c.moveToNext()) out.add(c.getString(0));
+        }
+        return out;
+    }
+
+    public int count() {
+        return (int) android.database.DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE,
+                COL_PROFILE + " = ?", new String[]{ profiles.activeId() });
+    }
+
+    public int countBetween(long startMs, long endMs) {
+        return (int) android.database.DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE,
+                COL_PROFILE + " = ? AND " + COL_TIMESTAMP + " >= ? AND " + COL_TIMESTAMP + " < ?",
+                new String[]{ profiles.activeId(), String.valueOf(startMs), String.valueOf(endMs) });
+    }
+
+    /** {confirmed, correct} over entries with known correctness. */
+    @NonNull
+    public int[] feedbackCounts() {
+        try (Cursor c = getReadableDatabase().rawQuery(
+                "SELECT COUNT(" + COL_CORRECT + "), COALESCE(SUM(" + COL_CORRECT + "), 0) FROM " + TABLE
+                        + " WHERE " + COL_PROFILE + " = ?", new String[]{ profiles.activeId() })) {
+            if (c.moveToFirst()) return new int[]{ c.getInt(0), c.getInt(1) };
+        }
+        return new int[]{ 0, 0 };
+    }
+
+    public void clear() {
+        String profile = profiles.activeId();
+        synchronized (hashIndexes) {
+            getWritableDatabase().delete(TABLE, COL_PROFILE + " = ?", new String[]{ profile });
+            hashIndexes.remove(profile);
+        }
+    }
+
+    /**
+     * Empties a profile's history and queues its image paths for deletion
+     * in a single transaction: either both happen or neither. Returns the number
+     * of queued paths.
+     */
+    public int clearIntoPurgeQueue(@NonNull String profileId) {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] args = { profileId };
+        synchronized (hashIndexes) {
+            db.beginTransaction();
+            try {
+                db.execSQL("INSERT INTO " + PURGE_TABLE + " (" + COL_PATH + ") SELECT " + COL_PATH
+                        + " FROM " + TABLE + " WHERE " + COL_PROFILE + " = ? AND " + COL_PATH + " != ''", args);
+                db.delete(TABLE, COL_PROFILE + " = ?", args);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            hashIndexes.remove(profileId);
+        }
+        return pendingPurgeCount();
+    }
+
+    public int pendingPurgeCount() {
+        return (int) android.database.DatabaseUtils.queryNumEntries(getReadableDatabase(), PURGE_TABLE);
+    }
+
+    /** Oldest queued purge entries. */
+    @NonNull
+    public List<PurgeEntry> nextPurgeBatch(int limit) {
+        List<PurgeEntry> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(PURGE_TABLE, new String[]{ COL_ID, COL_PATH },
+                null, null, null, null, COL_ID, String.valueOf(limit))) {
+            while (c.moveToNext()) out.add(new PurgeEntry(c.getLong(0), c.getString(1)));
+        }
+        return out;
+    }
+
+    /** Drop purge entries up to and including maxId (they are processed in id order). */
+    public void removePurgedThrough(long maxId) {
+        getWritableDatabase().delete(PURGE_TABLE, COL_ID + " <= ?", new String[]{ String.valueOf(maxId) });
+    }
+
+    @NonNull
+    private List<GameManager.ScanHistory> query(@Nullable String selection, @Nullable String[] args,
+                                                @Nullable String limit) {
+        List<GameManager.ScanHistory> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().query(TABLE, ALL_COLUMNS, selection, args,
+                null, null, COL_ID + " DESC", limit)) {
+            while (c.moveToNext()) out.add(fromCursor(c));
+        }
+        return out;
+    }
+
+    private static GameManager.ScanHistory fromCursor(Cursor c) {
+        Boolean correct = c.isNull(5) ? null : c.getInt(5) != 0;
+        GameManager.ScanHistory s = new GameManager.ScanHistory(
+                c.getString(1), c.getString(2), c.getFloat(3), c.getLong(4), correct);
+        s.id = c.getLong(0);
+        s.profileId = c.getString(6);
+        s.imageHash = c.isNull(7) ? null : c.getLong(7);
+        s.duplicateOf = c.getLong(8);
+        s.modelVersion = c.getString(9);
+        return s;
+    }
+
+    private String currentModel() {
+        return TFLiteClassifier.modelFamily(appContext);
+    }
+
+    private static ContentValues toValues(GameManager.ScanHistory s, String profile, @Nullable String currentModel) {
+        if (s.modelVersion == null) s.modelVersion = currentModel;
+        ContentValues v = new ContentValues();
+        v.put(COL_PROFILE, profile);
+        v.put(COL_PATH, s.imagePath != null ? s.imagePath : "");
+        v.put(COL_LABEL, s.predictedLabel);
+        v.put(COL_CONFIDENCE, s.confidence);
+        v.put(COL_TIMESTAMP, s.timestamp);
+        if (s.isCorrect == null) v.putNull(COL_CORRECT);
+        else v.put(COL_CORRECT, s.isCorrect ? 1 : 0);
+        if (s.imageHash != null) v.put(COL_HASH, s.imageHash);
+        v.put(COL_DUP_OF, s.duplicateOf);
+        v.put(COL_MODEL, s.modelVersion);
+        return v;
+    }
+
+    public static class Similar {
+        public final GameManager.ScanHistory scan;
+        public final int distance; // bits
+
+        Similar(GameManager.ScanHistory scan, int distance) {
+            this.scan = scan;
+            this.distance = distance;
+        }
+    }
+
+    public static class PurgeEntry {
+        public final long id;
+        public final String path;
+
+        PurgeEntry(long id, String path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+}
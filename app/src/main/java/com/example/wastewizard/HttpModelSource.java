@@ -0,0 +1,76 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link ModelSource} over plain HttpURLConnection: GET {base}/manifest.json
+ * and GET {base}/{file}. A 404 on the manifest means nothing is published.
+ */
+public class HttpModelSource implements ModelSource {
+
+    private static final int TIMEOUT_MS = 15_000;
+
+    private final String baseUrl;
+
+    public HttpModelSource(@NonNull String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Nullable
+    @Override
+    public Manifest manifest() throws IOException {
+        HttpURLConnection conn = connect(baseUrl + "/manifest.json");
+        try {
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_FOUND) return null;
+            if (code < 200 || code >= 300) throw new IOException("manifest HTTP " + code);
+            try (InputStream in = conn.getInputStream()) {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                int n;
+                while ((n = in.read(chunk)) > 0) buf.write(chunk, 0, n);
+                return Manifest.parse(new String(buf.toByteArray(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    @NonNull
+    @Override
+    public InputStream open(@NonNull String name) throws IOException {
+        HttpURLConnection conn = connect(baseUrl + "/" + name);
+        int code = conn.getResponseCode();
+        if (code < 200 || code >= 300) {
+            conn.disconnect();
+            throw new IOException(name + " HTTP " + code);
+        }
+        // Disconnect when the caller closes the stream
+        return new FilterInputStream(conn.getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    conn.disconnect();
+                }
+            }
+        };
+    }
+
+    private static HttpURLConnection connect(String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        return conn;
+    }
+}
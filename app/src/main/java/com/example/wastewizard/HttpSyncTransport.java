@@ -0,0 +1,83 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link SyncTransport} over plain HttpURLConnection.
+ *
+ * POST {base}/events with a gzip body; GET {base}/leaderboard?since=N with
+ * If-None-Match. Response bodies may come back gzip-encoded.
+ */
+public class HttpSyncTransport implements SyncTransport {
+
+    private static final int TIMEOUT_MS = 15_000;
+
+    private final String baseUrl;
+
+    public HttpSyncTransport(@NonNull String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @NonNull
+    @Override
+    public Response upload(@NonNull byte[] gzippedJson) throws IOException {
+        HttpURLConnection conn = open(baseUrl + "/events");
+        try {
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setRequestProperty("Content-Encoding", "gzip");
+            conn.setFixedLengthStreamingMode(gzippedJson.length);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(gzippedJson);
+            }
+            return read(conn);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Response fetchLeaderboard(long sinceVersion, @Nullable String etag) throws IOException {
+        HttpURLConnection conn = open(baseUrl + "/leaderboard?since=" + sinceVersion);
+        try {
+            if (etag != null) conn.setRequestProperty("If-None-Match", etag);
+            return read(conn);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        return conn;
+    }
+
+    private static Response read(HttpURLConnection conn) throws IOException {
+        int code = conn.getResponseCode();
+        String etag = conn.getHeaderField("ETag");
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED) return new Response(code, etag, null);
+        InputStream raw = code >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (raw == null) return new Response(code, etag, null);
+        try (InputStream in = "gzip".equalsIgnoreCase(conn.getContentEncoding()) ? new GZIPInputStream(raw) : raw) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) buf.write(chunk, 0, n);
+            return new Response(code, etag, buf.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.wastewizard;
+
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Per-stage timings of the scan pipeline, from image decode to probabilities.
+ *
+ * Each stage is wrapped as {@code long t = begin(s); ... end(s, t);}. That
+ * opens an {@link Trace} section, visible in Perfetto/systrace captures, and
+ * records the elapsed nanoseconds into the stage's {@link LatencyHistogram}.
+ * Stages of different threads interleave freely; sections nest per thread.
+ * Percentiles are shown on the hidden debug screen (tap the version in About
+ * seven times).
+ */
+public final class InferenceStats {
+
+    public enum Stage {
+        DECODE("decode"),           // file/URI → Bitmap
+        CONVERT("convert"),         // camera frame → ARGB Bitmap
+        CROP_RESIZE("crop_resize"), // center crop and resize to the input size
+        PACK("pack"),               // pixels → input tensor buffer
+        INVOKE("invoke"),           // interpreter run
+        POSTPROCESS("postprocess"); // dequantize, softmax, smoothing
+
+        final String label;
+        final String section;
+
+        Stage(String label) {
+            this.label = label;
+            this.section = "WW:" + label;
+        }
+    }
+
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[Stage.values().length];
+    // Per-thread sums for the scan being timed, see beginScan
+    private static final ThreadLocal<long[]> CURRENT_SCAN = new ThreadLocal<>();
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) HISTOGRAMS[i] = new LatencyHistogram();
+    }
+
+    private InferenceStats() { }
+
+    public static long begin(@NonNull Stage stage) {
+        Trace.beginSection(stage.section);
+        return System.nanoTime();
+    }
+
+    public static void end(@NonNull Stage stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        HISTOGRAMS[stage.ordinal()].record(elapsed);
+        long[] scan = CURRENT_SCAN.get();
+        if (scan != null) scan[stage.ordinal()] += elapsed;
+        Trace.endSection();
+    }
+
+    /**
+     * Also sum this thread's stage times into into (one slot per stage) until
+     * {@link #endScan}, for a {@link PerfTelemetry} record.
+     */
+    public static void beginScan(@NonNull long[] into) {
+        java.util.Arrays.fill(into, 0);
+        CURRENT_SCAN.set(into);
+    }
+
+    public static void endScan() {
+        CURRENT_SCAN.set(null);
+    }
+
+    @NonNull
+    public static LatencyHistogram histogram(@NonNull Stage stage) {
+        return HISTOGRAMS[stage.ordinal()];
+    }
+
+    /** Percentile in milliseconds, e.g. {@code percentileMs(INVOKE, 0.95)}. */
+    public static double percentileMs(@NonNull Stage stage, double q) {
+        return HISTOGRAMS[stage.ordinal()].percentileNanos(q) / 1e6;
+    }
+
+    /** One line per stage that has samples. */
+    @NonNull
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage s : Stage.values()) {
+            LatencyHistogram h = HISTOGRAMS[s.ordinal()];
+            if (h.count() == 0) continue;
+            sb.append(String.format(java.util.Locale.US, "%-12s ", s.label)).append(h.summary()).append('\n');
+        }
+        return sb.length() == 0 ? "no samples yet" : sb.toString().trim();
+    }
+
+    public static void reset() {
+        for (LatencyHistogram h : HISTOGRAMS) h.reset();
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.wastewizard;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local multi-profile leaderboard.
+ *
+ * Profiles are persisted in SQLite and mirrored in a {@link RankIndex}, so rank,
+ * top-N and neighbour queries are O(log n) even for 100k profiles. The index is
+ * built lazily on the first query (call that off the main thread); point updates
+ * are written through to the table and applied to the index incrementally.
+ * Score changes from the ledger are applied on a background thread, in order;
+ * that listener is the only writer of local profiles' points.
+ */
+public class Leaderboard extends SQLiteOpenHelper implements GameLedger.StateListener {
+
+    private static final String TAG = "Leaderboard";
+    private static final String DB_NAME = "leaderboard.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "profiles";
+
+    /** Profile id of the device owner; kiosk profiles get their own ids from {@link Profiles}. */
+    public static final String LOCAL_PROFILE_ID = "local";
+
+    public static class Row {
+        public final String id;
+        public final String name;
+        public final int points;
+        public final int level;
+        public final int rank; // competition rank: ties share a rank
+
+        Row(String id, String name, int points, int level, int rank) {
+            this.id = id;
+            this.name = name;
+            this.points = points;
+            this.level = level;
+            this.rank = rank;
+        }
+    }
+
+    private static final class Profile {
+        final String name;
+        final int points;
+        final int level;
+
+        Profile(String name, int points, int level) {
+            this.name = name;
+            this.points = points;
+            this.level = level;
+        }
+    }
+
+    private static Leaderboard instance;
+
+    // Guarded by this; null until the first query
+    @Nullable private RankIndex index;
+    @Nullable private Map<String, Profile> profiles;
+
+    public static synchronized Leaderboard get(@NonNull Context context) {
+        if (instance == null) {
+            instance = new Leaderboard(context.getApplicationContext());
+            GameLedger.get(context).addStateListener(instance);
+        }
+        return instance;
+    }
+
+    private final Context context;
+    // Ledger updates; they may wait for an index build and must not block the ledger
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private Leaderboard(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        this.context = context;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "name TEXT NOT NULL, "
+                + "points INTEGER NOT NULL, "
+                + "level INTEGER NOT NULL, "
+                + "updated INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // No older schema yet
+    }
+
+    /** Insert or update a profile's score. */
+    public synchronized void update(@NonNull String id, @NonNull String name, int points, int level) {
+        ContentValues v = new ContentValues();
+        v.put("id", id);
+        v.put("name", name);
+        v.put("points", points);
+        v.put("level", level);
+        v.put("updated", System.currentTimeMillis());
+        getWritableDatabase().insertWithOnConflict(TABLE, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+        if (index != null) {
+            Profile old = profiles.get(id);
+            if (old != null) index.remove(id, old.points);
+            index.insert(id, points);
+            profiles.put(id, new Profile(name, points, level));
+        }
+    }
+
+    /**
+     * Set a profile's display name, leaving its score to the ledger listener. A
+     * profile with no row yet is added with its current ledger score.
+     */
+    public synchronized void rename(@NonNull String id, @NonNull String name) {
+        ensureIndex();
+        Profile p = profiles.get(id);
+        if (p == null) {
+            GameState s = GameLedger.get(context).state(id);
+            update(id, name, s.points, s.level);
+            return;
+        }
+        if (p.name.equals(name)) return;
+        ContentValues v = new ContentValues();
+        v.put("name", name);
+        getWritableDatabase().update(TABLE, v, "id = ?", new String[]{ id });
+        profiles.put(id, new Profile(name, p.points, p.level));
+    }
+
+    /** Drop a profile, e.g. one deleted on the server. */
+    public synchronized void remove(@NonNull String id) {
+        getWritableDatabase().delete(TABLE, "id = ?", new String[]{ id });
+        if (index != null) {
+            Profile old = profiles.remove(id);
+            if (old != null) index.remove(id, old.points);
+        }
+    }
+
+    public synchronized int size() {
+        return ensureIndex().size();
+    }
+
+    /** 1-based competition rank, or 0 if the profile is unknown. */
+    public synchronized int rankOf(@NonNull String id) {
+        ensureIndex();
+        Profile p = profiles.get(id);
+        return p == null ? 0 : index.countAbove(p.points) + 1;
+    }
+
+    @NonNull
+    public synchronized List<Row> top(int n) {
+        ensureIndex();
+        return toRows(index.range(0, n));
+    }
+
+    /** Up to radius profiles on either side of id, including id itself. */
+    @NonNull
+    public synchronized List<Row> around(@NonNull String id, int radius) {
+        ensureIndex();
+        Profile p = profiles.get(id);
+        if (p == null) return new ArrayList<>();
+        int pos = index.positionOf(id, p.points);
+        return toRows(index.range(pos - radius, 2 * radius + 1));
+    }
+
+    // Keep each profile's row in step with the ledger. Called under the ledger lock, often
+    // on the main thread, so the write is handed off instead of waiting for our lock.
+    @Override
+    public void onStateChanged(@NonNull String profileId, @NonNull GameState before, @NonNull GameState after) {
+        if (before.points == after.points && before.level == after.level) return;
+        int points = after.points, level = after.level;
+        writer.execute(() -> update(profileId, Profiles.get(context).nameOf(profileId), points, level));
+    }
+
+    private List<Row> toRows(List<RankIndex.Entry> entries) {
+        List<Row> out = new ArrayList<>(entries.size());
+        for (RankIndex.Entry e : entries) {
+            Profile p = profiles.get(e.id);
+            if (p == null) continue;
+            out.add(new Row(e.id, p.name, p.points, p.level, index.countAbove(p.points) + 1));
+        }
+        return out;
+    }
+
+    // Caller holds the lock
+    private RankIndex ensureIndex() {
+        if (index != null) return index;
+        long start = System.nanoTime();
+        RankIndex idx = new RankIndex();
+        Map<String, Profile> map = new HashMap<>();
+        try (Cursor c = getReadableDatabase().query(TABLE, new String[]{ "id", "name", "points", "level" },
+                null, null, null, null, null)) {
+            while (c.moveToNext()) {
+                String id = c.getString(0);
+                int points = c.getInt(2);
+                map.put(id, new Profile(c.getString(1), points, c.getInt(3)));
+                idx.insert(id, points);
+            }
+        }
+        index = idx;
+        profiles = map;
+        android.util.Log.d(TAG, "indexed " + idx.size() + " profiles in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return index;
+    }
+}
@@ -17,21 +17,27 @@ import com.google.android.material.color.MaterialColors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class LeaderboardFragment extends Fragment {
 
+    private static final int TOP_N = 10;
+    private static final int NEIGHBOR_RADIUS = 2;
+
     private GameManager gameManager;
     private RecyclerView recyclerViewLeaderboard;
     private TextView txtYourRank, txtYourPoints, txtTotalPlayers;
+    private ExecutorService queryExecutor;
     
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_leaderboard, container, false);
         
         gameManager = new GameManager(requireContext());
+        queryExecutor = Executors.newSingleThreadExecutor();
         initializeViews(view);
         setupLeaderboard();
-        refreshData();
         
         return view;
     }
@@ -45,66 +51,59 @@ public class LeaderboardFragment extends Fragment {
     
     private void setupLeaderboard() {
         recyclerViewLeaderboard.setLayoutManager(new LinearLayoutManager(getContext()));
-        
-        // Create mock leaderboard data (in real app, this would be stored locally)
-        List<LeaderboardEntry> entries = createMockLeaderboard();
-        
-        LeaderboardAdapter adapter = new LeaderboardAdapter(entries);
-        recyclerViewLeaderboard.setAdapter(adapter);
-    }
-    
-    private List<LeaderboardEntry> createMockLeaderboard() {
-        List<LeaderboardEntry> entries = new ArrayList<>();
-        
-        // Add current user at their position
-        entries.add(new LeaderboardEntry("You", gameManager.getTotalPoints(), gameManager.getLevel(), true));
-        
-        // Add mock players
-        entries.add(new LeaderboardEntry("EcoWarrior", 1250, 13, false));
-        entries.add(new LeaderboardEntry("GreenHero", 1180, 12, false));
-        entries.add(new LeaderboardEntry("RecycleMaster", 1100, 11, false));
-        entries.add(new LeaderboardEntry("WasteHunter", 980, 10, false));
-        entries.add(new LeaderboardEntry("EcoFighter", 920, 9, false));
-        entries.add(new LeaderboardEntry("GreenGuardian", 850, 9, false));
-        entries.add(new LeaderboardEntry("RecyclePro", 780, 8, false));
-        entries.add(new LeaderboardEntry("EcoChampion", 720, 8, false));
-        entries.add(new LeaderboardEntry("WasteWizard", 650, 7, false));
-        
-        // Sort by points (descending)
-        entries.sort((a, b) -> Integer.compare(b.points, a.points));
-        
-        // Assign ranks
-        for (int i = 0; i < entries.size(); i++) {
-            entries.get(i).rank = i + 1;
-        }
-        
-        return entries;
     }
     
     public void refreshData() {
-        if (gameManager == null) return;
-        
-        txtYourPoints.setText(String.valueOf(gameManager.getTotalPoints()));
-        txtTotalPlayers.setText("10"); // Mock total players
-        
-        // Calculate user's rank
-        int userRank = calculateUserRank();
-        txtYourRank.setText("#" + userRank);
+        if (gameManager == null || queryExecutor == null) return;
+        
+        SyncManager.get(requireContext()).syncNow(); // cheap when nothing changed (ETag)
+        Leaderboard board = Leaderboard.get(requireContext());
+        Profiles profiles = Profiles.get(requireContext());
+        String profileId = profiles.activeId();
+        String username = profiles.activeName();
+        GameState state = gameManager.getState();
+        queryExecutor.execute(() -> {
+            // Picks up username changes; points come only from the ledger listener.
+            // The first query builds the rank index.
+            board.rename(profileId, username);
+            int rank = board.rankOf(profileId);
+            int players = board.size();
+            List<LeaderboardEntry> entries = toEntries(board.top(TOP_N), profileId);
+            if (rank > TOP_N) {
+                // Show where the user sits if they are outside the top N
+                java.util.Set<String> shown = new java.util.HashSet<>();
+                for (LeaderboardEntry e : entries) shown.add(e.id);
+                for (LeaderboardEntry e : toEntries(board.around(profileId, NEIGHBOR_RADIUS), profileId)) {
+                    if (shown.add(e.id)) entries.add(e);
+                }
+            }
+            View root = getView();
+            if (root == null) return;
+            root.post(() -> {
+                if (!isAdded() || getView() == null) return;
+                txtYourPoints.setText(String.valueOf(state.points));
+                txtTotalPlayers.setText(String.valueOf(players));
+                txtYourRank.setText("#" + rank);
+                recyclerViewLeaderboard.setAdapter(new LeaderboardAdapter(entries));
+            });
+        });
     }
-    
-    private int calculateUserRank() {
-        int userPoints = gameManager.getTotalPoints();
-        // Mock calculation - in real app, this would be based on stored data
-        if (userPoints >= 1200) return 1;
-        if (userPoints >= 1000) return 2;
-        if (userPoints >= 800) return 3;
-        if (userPoints >= 600) return 4;
-        if (userPoints >= 400) return 5;
-        return 6;
+
+    private static List<LeaderboardEntry> toEntries(List<Leaderboard.Row> rows, String currentId) {
+        List<LeaderboardEntry> out = new ArrayList<>(rows.size());
+        for (Leaderboard.Row r : rows) {
+            boolean isUser = currentId.equals(r.id);
+            LeaderboardEntry e = new LeaderboardEntry(isUser ? "You" : r.name, r.points, r.level, isUser);
+            e.id = r.id;
+            e.rank = r.rank;
+            out.add(e);
+        }
+        return out;
     }
     
     // Leaderboard Entry class
     public static class LeaderboardEntry {
+        public String id;
         public String name;
         public int points;
         public int level;
@@ -193,4 +192,11 @@ public class LeaderboardFragment extends Fragment {
         super.onResume();
         refreshData();
     }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (queryExecutor != null) queryExecutor.shutdown();
+        queryExecutor = null;
+    }
 }
@@ -0,0 +1,86 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What happened to each camera frame in live mode.
+ *
+ * Frames CameraX delivers are either throttled by the analyze interval or
+ * analyzed. Analyzed frames whose result arrives after a newer one was posted
+ * are also counted as stale. With KEEP_ONLY_LATEST, frames the camera produced
+ * while the analyzer was busy never reach us; they are counted as skipped from
+ * gaps in the sensor timestamps of delivered frames, taking the shortest gap
+ * seen as the camera's frame period. Inference time and frame-to-chip latency
+ * (from delivery to the result on screen) go into histograms.
+ */
+public final class LiveFrameStats {
+
+    public final AtomicLong delivered = new AtomicLong();
+    public final AtomicLong throttled = new AtomicLong();
+    public final AtomicLong skipped = new AtomicLong();
+    public final AtomicLong analyzed = new AtomicLong();
+    public final AtomicLong staleDiscarded = new AtomicLong();
+    public final LatencyHistogram inference = new LatencyHistogram();
+    public final LatencyHistogram frameToChip = new LatencyHistogram();
+
+    // Analyzer thread, but cleared by reset()
+    private final AtomicLong lastFrameNanos = new AtomicLong();
+    private final AtomicLong framePeriodNanos = new AtomicLong(Long.MAX_VALUE);
+
+    // Main thread (HUD refresh)
+    private long fpsAnalyzed;
+    private long fpsAtNanos;
+    private float fps;
+
+    public void reset() {
+        delivered.set(0);
+        throttled.set(0);
+        skipped.set(0);
+        lastFrameNanos.set(0);
+        framePeriodNanos.set(Long.MAX_VALUE);
+        analyzed.set(0);
+        staleDiscarded.set(0);
+        inference.reset();
+        frameToChip.reset();
+        fpsAnalyzed = 0;
+        fpsAtNanos = 0;
+        fps = 0f;
+    }
+
+    /** Count a delivered frame; timestampNanos is its sensor timestamp (ImageInfo#getTimestamp). */
+    public void onDelivered(long timestampNanos) {
+        delivered.incrementAndGet();
+        long last = lastFrameNanos.getAndSet(timestampNanos);
+        long gap = timestampNanos - last;
+        if (last == 0 || gap <= 0) return;
+        long period = Math.min(gap, framePeriodNanos.get());
+        framePeriodNanos.set(period);
+        // Round so frame-time jitter doesn't count as a skip
+        long missed = (gap + period / 2) / period - 1;
+        if (missed > 0) skipped.addAndGet(missed);
+    }
+
+    /** Analyzed frames per second since the previous call. */
+    public float effectiveFps() {
+        long now = System.nanoTime();
+        long n = analyzed.get();
+        if (fpsAtNanos != 0 && now > fpsAtNanos) fps = (n - fpsAnalyzed) * 1e9f / (now - fpsAtNanos);
+        fpsAnalyzed = n;
+        fpsAtNanos = now;
+        return fps;
+    }
+
+    /** Overlay text; call from the main thread about once a second. */
+    @NonNull
+    public String hudText() {
+        return String.format(java.util.Locale.US,
+                "%.1f fps  infer p50 %.0f ms\nlatency p50 %.0f p95 %.0f p99 %.0f ms\n"
+                        + "frames %d: %d run, %d throttled, %d stale; %d skipped by camera",
+                effectiveFps(), inference.percentileNanos(0.5) / 1e6,
+                frameToChip.percentileNanos(0.5) / 1e6, frameToChip.percentileNanos(0.95) / 1e6,
+                frameToChip.percentileNanos(0.99) / 1e6,
+                delivered.get(), analyzed.get(), throttled.get(), staleDiscarded.get(), skipped.get());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * {@link ModelSource} backed by a directory: drop manifest.json plus the files
+ * it names, e.g. with adb push into the app's external files.
+ */
+public class LocalModelSource implements ModelSource {
+
+    private final File dir;
+
+    public LocalModelSource(@NonNull File dir) {
+        this.dir = dir;
+    }
+
+    @Nullable
+    @Override
+    public Manifest manifest() throws IOException {
+        File f = new File(dir, "manifest.json");
+        if (!f.exists()) return null;
+        return Manifest.parse(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @NonNull
+    @Override
+    public InputStream open(@NonNull String name) throws IOException {
+        File f = new File(dir, name);
+        // Manifest names are plain file names; never follow them out of the drop
+        if (!dir.getCanonicalPath().equals(f.getCanonicalFile().getParent())) throw new IOException("bad name " + name);
+        return new FileInputStream(f);
+    }
+}
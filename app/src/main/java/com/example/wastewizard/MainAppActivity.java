@@ -51,6 +51,9 @@ public class MainAppActivity extends AppCompatActivity {
 
   private Uri currentPhotoUri;
 
+  // Kiosk profile switches keep this activity and the scanner alive
+  private final Profiles.Listener profileListener = id -> onProfileChanged();
+
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
@@ -82,6 +85,7 @@ public class MainAppActivity extends AppCompatActivity {
       if (savedInstanceState == null) {
         loadFragment(dashboardFragment);
       }
+      Profiles.get(this).addListener(profileListener);
 
       Toast.makeText(this, "Welcome to WasteWizard!", Toast.LENGTH_SHORT)
           .show();
@@ -105,7 +109,7 @@ public class MainAppActivity extends AppCompatActivity {
         setSupportActionBar(toolbar);
         if (getSupportActionBar() != null) {
           getSupportActionBar().setTitle("WasteWizard");
-          getSupportActionBar().setSubtitle(AppThemeManager.getUsername());
+          getSupportActionBar().setSubtitle(Profiles.get(this).activeName());
         }
       }
     } catch (Exception e) {
@@ -393,6 +397,72 @@ public class MainAppActivity extends AppCompatActivity {
     return true;
   }
 
+  @Override
+  public boolean onPrepareOptionsMenu(android.view.Menu menu) {
+    android.view.MenuItem switchItem = menu.findItem(R.id.action_switch_profile);
+    if (switchItem != null)
+      switchItem.setVisible(Profiles.get(this).isKioskMode());
+    return super.onPrepareOptionsMenu(menu);
+  }
+
+  /** Pick or create a kiosk profile. */
+  public void showProfileSwitcher() {
+    Profiles profiles = Profiles.get(this);
+    java.util.List<Profiles.Profile> list = profiles.list();
+    String[] items = new String[list.size() + 1];
+    int checked = 0;
+    for (int i = 0; i < list.size(); i++) {
+      items[i] = list.get(i).name;
+      if (list.get(i).id.equals(profiles.activeId()))
+        checked = i;
+    }
+    items[list.size()] = getString(R.string.add_profile);
+    new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+        .setTitle(R.string.switch_profile)
+        .setSingleChoiceItems(items, checked, (d, which) -> {
+          d.dismiss();
+          if (which < list.size()) {
+            profiles.switchTo(list.get(which).id);
+          } else {
+            showAddProfileDialog();
+          }
+        })
+        .setNegativeButton(android.R.string.cancel, null)
+        .show();
+  }
+
+  private void showAddProfileDialog() {
+    android.widget.EditText input = new android.widget.EditText(this);
+    input.setSingleLine(true);
+    input.setHint(R.string.profile_name_hint);
+    new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+        .setTitle(R.string.add_profile)
+        .setView(input)
+        .setNegativeButton(android.R.string.cancel, null)
+        .setPositiveButton(android.R.string.ok, (d, w) -> {
+          String name = input.getText().toString().trim();
+          if (name.isEmpty())
+            return;
+          Profiles profiles = Profiles.get(this);
+          profiles.switchTo(profiles.create(name));
+        })
+        .show();
+  }
+
+  private void onProfileChanged() {
+    String name = Profiles.get(this).activeName();
+    if (getSupportActionBar() != null) {
+      getSupportActionBar().setSubtitle(name);
+    }
+    // Only the visible screen refreshes now; the others do in onResume
+    Fragment current = getSupportFragmentManager().findFragmentById(R.id.fragmentContainer);
+    if (current == dashboardFragment) refreshDashboard();
+    else if (current == leaderboardFragment) refreshLeaderboard();
+    else if (current == profileFragment) refreshProfile();
+    else if (current == historyFragment) refreshHistory();
+    Toast.makeText(this, getString(R.string.profile_switched, name), Toast.LENGTH_SHORT).show();
+  }
+
   @Override
   public boolean onOptionsItemSelected(android.view.MenuItem item) {
     if (item.getItemId() == R.id.action_settings) {
@@ -403,6 +473,9 @@ public class MainAppActivity extends AppCompatActivity {
               .addToBackStack("settings")
               .commit();
       return true;
+    } else if (item.getItemId() == R.id.action_switch_profile) {
+      showProfileSwitcher();
+      return true;
     } else if (item.getItemId() == R.id.action_about) {
       // Navigate to AboutFragment
       getSupportFragmentManager()
@@ -419,10 +492,16 @@ public class MainAppActivity extends AppCompatActivity {
   protected void onResume() {
     super.onResume();
     if (getSupportActionBar() != null) {
-      getSupportActionBar().setSubtitle(AppThemeManager.getUsername());
+      getSupportActionBar().setSubtitle(Profiles.get(this).activeName());
     }
   }
 
+  @Override
+  protected void onDestroy() {
+    super.onDestroy();
+    Profiles.get(this).removeListener(profileListener);
+  }
+
   private void setupEdgeToEdgeInsets() {
     // Simplified edge-to-edge implementation
     // The app will work fine without complex insets handling
@@ -0,0 +1,135 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The file side of {@link ModelUpdater}: fetching and verifying a published
+ * model, and the checks that decide whether an install is kept. No Android
+ * dependencies, so it runs in plain JVM tests.
+ */
+final class ModelFiles {
+
+    static final String MODEL_NAME = "model.tflite";
+    static final String LABELS_NAME = "labels.txt";
+
+    /** A download whose digest doesn't match the manifest; retrying won't help. */
+    static final class DigestMismatch extends IOException {
+        DigestMismatch(String message) {
+            super(message);
+        }
+    }
+
+    private ModelFiles() { }
+
+    /**
+     * Download m's files into a staging directory under root, verifying digests
+     * while streaming, then move it into place. Returns the version directory.
+     * Nothing is left under root on failure.
+     */
+    @NonNull
+    static File fetch(@NonNull ModelSource src, @NonNull ModelSource.Manifest m, @NonNull File root) throws IOException {
+        File staging = new File(root, dirName(m.version) + ".tmp");
+        File dir = new File(root, dirName(m.version));
+        try {
+            deleteDir(staging);
+            if (!staging.mkdirs()) throw new IOException("cannot create " + staging);
+            download(src, m.modelFile, m.modelSha256, new File(staging, MODEL_NAME));
+            download(src, m.labelsFile, m.labelsSha256, new File(staging, LABELS_NAME));
+            deleteDir(dir);
+            if (!staging.renameTo(dir)) throw new IOException("cannot move " + staging);
+        } catch (IOException e) {
+            deleteDir(staging);
+            throw e;
+        }
+        return dir;
+    }
+
+    private static void download(ModelSource src, String name, String expectedSha, File dest) throws IOException {
+        MessageDigest md = newSha256();
+        try (InputStream in = new DigestInputStream(src.open(name), md);
+             OutputStream out = new FileOutputStream(dest)) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        }
+        String actual = hex(md.digest());
+        if (!actual.equals(expectedSha)) throw new DigestMismatch(name + " sha256 " + actual + " != " + expectedSha);
+    }
+
+    /** One output per non-blank label line. */
+    static void checkLabels(int numClasses, @NonNull File labelsFile) throws IOException {
+        int labelLines = 0;
+        for (String line : Files.readAllLines(labelsFile.toPath())) if (!line.trim().isEmpty()) labelLines++;
+        if (numClasses != labelLines) throw new IOException(labelLines + " labels for " + numClasses + " outputs");
+    }
+
+    /** Outputs for a plain input must be a probability distribution. */
+    static void checkProbs(@NonNull float[] p) throws IOException {
+        float sum = 0f;
+        for (float x : p) {
+            if (Float.isNaN(x) || x < 0f) throw new IOException("bad output " + x);
+            sum += x;
+        }
+        if (Math.abs(sum - 1f) > 0.01f) throw new IOException("outputs sum to " + sum);
+    }
+
+    /**
+     * Cheap startup check that an installed model is the file we verified:
+     * both files exist and the model's size and mtime are as recorded.
+     */
+    static boolean unchanged(@NonNull File dir, long size, long mtime) {
+        File model = new File(dir, MODEL_NAME);
+        return new File(dir, LABELS_NAME).exists() && model.length() == size && model.lastModified() == mtime;
+    }
+
+    @NonNull
+    static String sha256(@NonNull File f) throws IOException {
+        MessageDigest md = newSha256();
+        try (InputStream in = new DigestInputStream(new FileInputStream(f), md)) {
+            byte[] buf = new byte[64 * 1024];
+            //noinspection StatementWithEmptyBody
+            while (in.read(buf) > 0) { }
+        }
+        return hex(md.digest());
+    }
+
+    private static MessageDigest newSha256() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) sb.append(String.format(java.util.Locale.US, "%02x", b));
+        return sb.toString();
+    }
+
+    @NonNull
+    static String dirName(@NonNull String version) {
+        return version.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    static void deleteDir(@NonNull File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) {
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+}
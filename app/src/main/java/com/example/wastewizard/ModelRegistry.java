@@ -0,0 +1,418 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.tensorflow.lite.DataType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The model variants the app can run and the interpreters loaded for them.
+ *
+ * Each {@link Spec} names a model file, its labels, input size and type, and
+ * its version (stamped on cached results) and family (stamped on history). Models come from assets or, once
+ * {@link ModelUpdater} installs one, from filesDir. Interpreters are created on first
+ * {@link #acquire} and kept in an LRU under a memory budget. Entries still in
+ * use are never closed, so switching variants at runtime costs at most one
+ * load and never interrupts a running inference. The registry lock only covers
+ * bookkeeping; interpreters are built outside it.
+ */
+public class ModelRegistry {
+
+    private static final String TAG = "ModelRegistry";
+    private static final String PREFS_NAME = "WasteWizardModels";
+    private static final String KEY_ACTIVE = "active";
+    private static final String KEY_USER_CHOSEN = "user_chosen"; // active variant was picked in Settings
+    private static final String VERSION_ASSET = "model_version.txt";
+
+    public static final String DEFAULT_ID = "garbage";
+
+    public static class Spec {
+        public final String id;
+        public final String title;
+        @Nullable public final String modelAsset;  // in assets, or
+        @Nullable public final String labelsAsset;
+        @Nullable public final java.io.File modelFile; // in filesDir (installed updates)
+        @Nullable public final java.io.File labelsFile;
+        public final int inputSize;      // expected; the model's input tensor wins
+        public final DataType inputType; // expected; the interpreter's actual type wins
+        public final String version;     // this exact file; stamped on cache entries
+        // The model this variant was built from; float and quantized builds of one model share it.
+        // Stamped on history rows, so switching between speed variants doesn't re-run history.
+        public final String family;
+
+        public Spec(String id, String title, String modelAsset, String labelsAsset, int inputSize,
+                    DataType inputType, String version, String family) {
+            this.id = id;
+            this.title = title;
+            this.modelAsset = modelAsset;
+            this.labelsAsset = labelsAsset;
+            this.modelFile = null;
+            this.labelsFile = null;
+            this.inputSize = inputSize;
+            this.inputType = inputType;
+            this.version = version;
+            this.family = family;
+        }
+
+        public Spec(String id, String title, java.io.File modelFile, java.io.File labelsFile, int inputSize,
+                    DataType inputType, String version, String family) {
+            this.id = id;
+            this.title = title;
+            this.modelAsset = null;
+            this.labelsAsset = null;
+            this.modelFile = modelFile;
+            this.labelsFile = labelsFile;
+            this.inputSize = inputSize;
+            this.inputType = inputType;
+            this.version = version;
+            this.family = family;
+        }
+
+        // Same labels source, so the two models' outputs line up
+        boolean sameLabels(Spec other) {
+            return java.util.Objects.equals(labelsAsset, other.labelsAsset)
+                    && java.util.Objects.equals(labelsFile, other.labelsFile);
+        }
+    }
+
+    /** Called on the main thread after the active variant changes. */
+    public interface Listener {
+        void onModelChanged(@NonNull Spec spec);
+    }
+
+    // Fields other than ready are guarded by the registry lock; a waiter reads them after ready opens
+    private static final class Loaded {
+        final Spec spec;
+        final long bytes;
+        final CountDownLatch ready = new CountDownLatch(1);
+        TFLiteClassifier classifier; // null while loading
+        @Nullable Throwable error;   // set if the load failed
+        int refs;
+        @Nullable TFLiteClassifier cheap; // cascade stage we hold a reference to
+
+        Loaded(Spec spec, long bytes) {
+            this.spec = spec;
+            this.bytes = bytes;
+        }
+    }
+
+    private static ModelRegistry instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Guarded by itself, so spec lookups never wait on the registry lock
+    private final Map<String, Spec> specs = new LinkedHashMap<>();
+    // Access-ordered; guarded by this
+    private final LinkedHashMap<String, Loaded> loaded = new LinkedHashMap<>(4, 0.75f, true);
+    private final long budgetBytes;
+    private long loadedBytes;
+    private volatile Spec active;
+
+    public static synchronized ModelRegistry get(@NonNull Context context) {
+        if (instance == null) instance = new ModelRegistry(context.getApplicationContext());
+        return instance;
+    }
+
+    private ModelRegistry(Context appContext) {
+        this.appContext = appContext;
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        // Mapped model plus tensor arena; a quarter of the heap, at most 64 MB
+        this.budgetBytes = Math.min(64L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4);
+
+        List<String> assets = listAssets();
+        String bundled = readAssetLine(VERSION_ASSET, "unknown");
+        register(assets, new Spec(DEFAULT_ID, "Garbage classifier (float)", "garbage_model.tflite", "labels.txt",
+                180, DataType.FLOAT32, bundled, bundled));
+        // Only packaged when copied into assets. The int8 build is the same model, so it shares the family.
+        register(assets, new Spec("garbage-int8", "Garbage classifier (int8)", "garbage_model_int8.tflite", "labels.txt",
+                180, DataType.UINT8, bundled + "-int8", bundled));
+        register(assets, new Spec("v217", "v217 optimized", "model_v217_optimized.tflite", "labels_5_classes.txt",
+                180, DataType.FLOAT32, "v217-optimized", "v217-optimized"));
+        Spec update = ModelUpdater.installedSpec(appContext);
+        if (update != null) specs.put(update.id, update);
+
+        Spec chosen = specs.get(prefs.getString(KEY_ACTIVE, DEFAULT_ID));
+        active = chosen != null ? chosen : specs.get(DEFAULT_ID);
+    }
+
+    private void register(List<String> assets, Spec spec) {
+        if (!assets.contains(spec.modelAsset) || !assets.contains(spec.labelsAsset)) {
+            android.util.Log.d(TAG, "skipping " + spec.id + ": " + spec.modelAsset + " not packaged");
+            return;
+        }
+        specs.put(spec.id, spec);
+    }
+
+    @NonNull
+    public List<Spec> specs() {
+        synchronized (specs) {
+            return new ArrayList<>(specs.values());
+        }
+    }
+
+    @Nullable
+    public Spec spec(@NonNull String id) {
+        synchronized (specs) {
+            return specs.get(id);
+        }
+    }
+
+    @NonNull
+    public Spec active() {
+        return active;
+    }
+
+    /** Add a variant at runtime (an installed update). */
+    public void register(@NonNull Spec spec) {
+        synchronized (specs) {
+            specs.put(spec.id, spec);
+        }
+    }
+
+    /**
+     * Remove a variant. If it was active the default takes over; its interpreter
+     * is closed once nobody uses it.
+     */
+    public void unregister(@NonNull String id) {
+        synchronized (this) {
+            synchronized (specs) {
+                specs.remove(id);
+            }
+            Loaded l = loaded.get(id);
+            if (l != null && l.refs == 0) drop(id, l);
+        }
+        if (active.id.equals(id)) setActive(DEFAULT_ID);
+    }
+
+    /** Make id the active variant; listeners swap to it on their next acquire. */
+    public void setActive(@NonNull String id) {
+        Spec spec;
+        synchronized (specs) {
+            spec = specs.get(id);
+            if (spec == null || spec == active) return;
+            active = spec;
+        }
+        prefs.edit().putString(KEY_ACTIVE, id).apply();
+        android.util.Log.d(TAG, "active model: " + id + " (" + spec.version + ")");
+        main.post(() -> {
+            for (Listener l : listeners) l.onModelChanged(spec);
+        });
+    }
+
+    /** Make id active on the user's behalf; automatic selection leaves the variant alone from then on. */
+    public void chooseActive(@NonNull String id) {
+        prefs.edit().putBoolean(KEY_USER_CHOSEN, true).apply();
+        setActive(id);
+    }
+
+    public boolean isUserChosen() {
+        return prefs.getBoolean(KEY_USER_CHOSEN, false);
+    }
+
+    public void addListener(@NonNull Listener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(@NonNull Listener l) {
+        listeners.remove(l);
+    }
+
+    /** Interpreter for the active variant; pair with {@link #release}. */
+    @NonNull
+    public TFLiteClassifier acquire() throws IOException {
+        return acquire(active.id);
+    }
+
+    /**
+     * Interpreter for a variant, loading it if needed (blocking on first use).
+     * The load runs outside the registry lock, so acquiring a variant that is
+     * already loaded never waits for another one to load; callers of the same
+     * variant wait for the one load in progress. Pair every call with {@link #release}.
+     */
+    @NonNull
+    public TFLiteClassifier acquire(@NonNull String id) throws IOException {
+        Loaded l;
+        synchronized (this) {
+            l = loaded.get(id);
+            if (l != null) l.refs++;
+        }
+        boolean ours = false;
+        if (l == null) {
+            Spec spec = spec(id);
+            if (spec == null) throw new IOException("unknown model " + id);
+            long bytes = estimateBytes(spec);
+            synchronized (this) {
+                l = loaded.get(id);
+                if (l == null) {
+                    // Placeholder: holds the budget and our reference while we load
+                    l = new Loaded(spec, bytes);
+                    loaded.put(id, l);
+                    loadedBytes += bytes;
+                    ours = true;
+                }
+                l.refs++;
+            }
+        }
+        if (ours) {
+            load(id, l);
+        } else {
+            try {
+                l.ready.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                releaseLoading(l);
+                throw new IOException("interrupted waiting for " + id);
+            }
+            if (l.error != null) throw new IOException("loading " + id + " failed", l.error);
+        }
+        return l.classifier;
+    }
+
+    // Build the interpreter and its cascade stage without holding the lock, then publish it
+    private void load(String id, Loaded l) throws IOException {
+        long start = System.currentTimeMillis();
+        TFLiteClassifier c = null;
+        TFLiteClassifier stage = null;
+        try {
+            c = new TFLiteClassifier(appContext, l.spec, 4);
+            Spec cheap = cheapStageFor(l.spec);
+            if (cheap != null) {
+                stage = acquire(cheap.id);
+                c.setCheapStage(stage);
+            }
+            synchronized (this) {
+                l.classifier = c;
+                l.cheap = stage;
+                trim();
+            }
+            android.util.Log.d(TAG, "loaded " + id + " in " + (System.currentTimeMillis() - start) + "ms, "
+                    + loadedBytes / 1024 + "/" + budgetBytes / 1024 + " KB");
+        } catch (IOException | RuntimeException e) {
+            // Undo the placeholder so a failed load doesn't leave the variant pinned
+            if (c != null) c.close();
+            release(stage);
+            synchronized (this) {
+                l.error = e;
+                if (loaded.get(id) == l) {
+                    loaded.remove(id);
+                    loadedBytes -= l.bytes;
+                }
+            }
+            throw e;
+        } finally {
+            l.ready.countDown();
+        }
+    }
+
+    // A waiter gave up before the load finished
+    private synchronized void releaseLoading(Loaded l) {
+        if (l.refs > 0) l.refs--;
+    }
+
+    public synchronized void release(@Nullable TFLiteClassifier classifier) {
+        if (classifier == null) return;
+        for (Map.Entry<String, Loaded> e : loaded.entrySet()) {
+            Loaded l = e.getValue();
+            if (l.classifier == classifier) {
+                if (l.refs > 0) l.refs--;
+                // Last user of an unregistered variant
+                if (l.refs == 0 && spec(e.getKey()) == null) {
+                    drop(e.getKey(), l);
+                    return;
+                }
+                break;
+            }
+        }
+        trim();
+    }
+
+    // Caller holds the lock
+    private void drop(String id, Loaded l) {
+        l.classifier.close();
+        loadedBytes -= l.bytes;
+        loaded.remove(id);
+        if (l.cheap != null) release(l.cheap);
+    }
+
+    // Close least recently used idle interpreters until under budget. Caller holds the lock.
+    private void trim() {
+        Iterator<Map.Entry<String, Loaded>> it = loaded.entrySet().iterator();
+        while (loadedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Loaded> e = it.next();
+            Loaded l = e.getValue();
+            if (l.refs > 0) continue;
+            l.classifier.close();
+            loadedBytes -= l.bytes;
+            it.remove();
+            android.util.Log.d(TAG, "evicted " + e.getKey());
+            if (l.cheap != null) {
+                // Its stage becomes idle; the next trim pass may evict it too
+                release(l.cheap);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Smallest-input variant with the same labels as spec, to run first in a
+     * cascade; null if spec is already the cheapest.
+     */
+    @Nullable
+    private Spec cheapStageFor(Spec spec) {
+        Spec best = null;
+        for (Spec s : specs()) {
+            if (s.inputSize < spec.inputSize && s.sameLabels(spec)
+                    && (best == null || s.inputSize < best.inputSize)) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    // Rough: the mapped file plus an arena of about the same size
+    private long estimateBytes(Spec spec) {
+        if (spec.modelFile != null) return spec.modelFile.length() * 2;
+        try (android.content.res.AssetFileDescriptor fd = appContext.getAssets().openFd(spec.modelAsset)) {
+            return fd.getLength() * 2;
+        } catch (IOException e) {
+            return 16L * 1024 * 1024;
+        }
+    }
+
+    private List<String> listAssets() {
+        try {
+            String[] names = appContext.getAssets().list("");
+            return names != null ? Arrays.asList(names) : new ArrayList<>();
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private String readAssetLine(String name, String fallback) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(appContext.getAssets().open(name)))) {
+            String line = br.readLine();
+            return line != null ? line.trim() : fallback;
+        } catch (IOException e) {
+            return fallback;
+        }
+    }
+}
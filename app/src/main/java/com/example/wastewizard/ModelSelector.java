@@ -0,0 +1,194 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the fastest model variant that agrees with the reference model.
+ *
+ * Every registered variant is timed on the same calibration images on this
+ * device. Variants whose top-1 matches the reference on fewer than
+ * {@link #MIN_AGREEMENT} of the images are rejected; the fastest of the rest
+ * becomes active. The result is keyed by app version and the set of model
+ * versions, so an update triggers a new run while a normal launch costs one
+ * prefs read.
+ *
+ * Calibration images come from assets/calibration/. If none are bundled, the
+ * user's own recent thumbnails are used. With no images at all the reference
+ * stays active and selection is retried on a later launch.
+ *
+ * Once the user picks a variant in Settings, selection no longer runs. Variants
+ * of one model family label alike, so a pick never touches history.
+ */
+public class ModelSelector {
+
+    private static final String TAG = "ModelSelector";
+    private static final String PREFS_NAME = "WasteWizardModelSelect";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_REPORT = "report";
+    private static final String CALIBRATION_DIR = "calibration";
+
+    private static final int MAX_IMAGES = 16;
+    private static final int WARMUP_RUNS = 2;
+    private static final double MIN_AGREEMENT = 0.9;
+
+    private static ModelSelector instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+
+    public static synchronized ModelSelector get(@NonNull Context context) {
+        if (instance == null) instance = new ModelSelector(context.getApplicationContext());
+        return instance;
+    }
+
+    private ModelSelector(Context appContext) {
+        this.appContext = appContext;
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Last benchmark summary, for the About screen. */
+    @Nullable
+    public String lastReport() {
+        return prefs.getString(KEY_REPORT, null);
+    }
+
+    /**
+     * Benchmark in the background unless this app and model set were already
+     * measured. Runs on the {@link ModelUpdater} worker, after any update check.
+     */
+    public void runIfNeeded() {
+        ModelUpdater.get(appContext).execute(() -> {
+            ModelRegistry registry = ModelRegistry.get(appContext);
+            String fingerprint = fingerprint(registry);
+            if (fingerprint.equals(prefs.getString(KEY_FINGERPRINT, null))) return;
+            if (registry.isUserChosen()) return;
+            // An installed update was chosen on purpose; don't benchmark it away
+            if (registry.active().modelFile != null) return;
+            if (registry.specs().size() < 2) {
+                prefs.edit().putString(KEY_FINGERPRINT, fingerprint).apply();
+                return;
+            }
+            List<Bitmap> images = calibrationImages();
+            if (images.isEmpty()) {
+                android.util.Log.d(TAG, "no calibration images yet; keeping " + registry.active().id);
+                return;
+            }
+            try {
+                select(registry, images, fingerprint);
+            } finally {
+                for (Bitmap b : images) b.recycle();
+            }
+        });
+    }
+
+    private void select(ModelRegistry registry, List<Bitmap> images, String fingerprint) {
+        int[] reference;
+        try {
+            reference = top1s(registry, ModelRegistry.DEFAULT_ID, images, null);
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "reference model failed: " + e.getMessage());
+            return;
+        }
+        String best = ModelRegistry.DEFAULT_ID;
+        long bestUs = Long.MAX_VALUE;
+        StringBuilder report = new StringBuilder();
+        for (ModelRegistry.Spec spec : registry.specs()) {
+            long[] medianUs = new long[1];
+            int[] tops;
+            try {
+                tops = top1s(registry, spec.id, images, medianUs);
+            } catch (Exception e) {
+                android.util.Log.w(TAG, spec.id + " failed: " + e.getMessage());
+                continue;
+            }
+            int agree = 0;
+            for (int i = 0; i < tops.length; i++) if (tops[i] == reference[i]) agree++;
+            double agreement = (double) agree / tops.length;
+            boolean ok = agreement >= MIN_AGREEMENT;
+            report.append(String.format(java.util.Locale.US, "%s: %.1f ms, %.0f%% agree%s\n",
+                    spec.id, medianUs[0] / 1000.0, agreement * 100, ok ? "" : " (rejected)"));
+            if (ok && medianUs[0] < bestUs) {
+                bestUs = medianUs[0];
+                best = spec.id;
+            }
+        }
+        String summary = report.append("selected ").append(best).append(" on ").append(images.size())
+                .append(" images").toString();
+        android.util.Log.d(TAG, summary);
+        prefs.edit().putString(KEY_FINGERPRINT, fingerprint).putString(KEY_REPORT, summary).apply();
+        // The user may have picked a variant while we were measuring
+        if (!best.equals(registry.active().id) && !registry.isUserChosen()) registry.setActive(best);
+    }
+
+    // Top-1 index per image; fills medianUs[0] with the median single-image latency if given
+    private static int[] top1s(ModelRegistry registry, String id, List<Bitmap> images,
+                               @Nullable long[] medianUs) throws Exception {
+        TFLiteClassifier c = registry.acquire(id);
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) c.inferProbs(images.get(0));
+            int[] tops = new int[images.size()];
+            long[] times = new long[images.size()];
+            float[] scores = new float[c.getNumClasses()];
+            for (int i = 0; i < images.size(); i++) {
+                long start = System.nanoTime();
+                c.inferInto(images.get(i), scores, false); // argmax only; no softmax
+                times[i] = (System.nanoTime() - start) / 1000;
+                tops[i] = TFLiteClassifier.argmax(scores);
+            }
+            if (medianUs != null) {
+                Arrays.sort(times);
+                medianUs[0] = times[times.length / 2];
+            }
+            return tops;
+        } finally {
+            registry.release(c);
+        }
+    }
+
+    private List<Bitmap> calibrationImages() {
+        List<Bitmap> out = new ArrayList<>();
+        try {
+            String[] names = appContext.getAssets().list(CALIBRATION_DIR);
+            for (int i = 0; names != null && i < names.length && out.size() < MAX_IMAGES; i++) {
+                try (InputStream in = appContext.getAssets().open(CALIBRATION_DIR + "/" + names[i])) {
+                    Bitmap b = BitmapFactory.decodeStream(in);
+                    if (b != null) out.add(b);
+                }
+            }
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "calibration assets: " + e.getMessage());
+        }
+        if (!out.isEmpty()) return out;
+        // Fall back to this device's own recent scans
+        for (GameManager.ScanHistory s : HistoryStore.get(appContext).page(Long.MAX_VALUE, MAX_IMAGES * 2)) {
+            if (out.size() >= MAX_IMAGES || s.imagePath == null || s.imagePath.isEmpty()) continue;
+            File thumb = ThumbnailCache.get(appContext).thumbFileFor(s.imagePath);
+            Bitmap b = thumb.exists() ? BitmapFactory.decodeFile(thumb.getPath()) : null;
+            if (b != null) out.add(b);
+        }
+        return out;
+    }
+
+    private String fingerprint(ModelRegistry registry) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            sb.append(appContext.getPackageManager().getPackageInfo(appContext.getPackageName(), 0).getLongVersionCode());
+        } catch (Exception e) {
+            sb.append('?');
+        }
+        for (ModelRegistry.Spec spec : registry.specs()) sb.append('|').append(spec.id).append('=').append(spec.version);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Where {@link ModelUpdater} looks for new models.
+ *
+ * A source publishes a manifest.json naming the model and labels files with
+ * their SHA-256 digests. {@link LocalModelSource} reads a directory (a file
+ * drop, or a fixture in tests); {@link HttpModelSource} fetches from a server.
+ */
+public interface ModelSource {
+
+    /** The manifest currently published, or null if there is none. */
+    @Nullable
+    Manifest manifest() throws IOException;
+
+    /** Stream one file named by the manifest. */
+    @NonNull
+    InputStream open(@NonNull String name) throws IOException;
+
+    final class Manifest {
+        public final String version;
+        public final String modelFile;
+        public final String modelSha256;
+        public final String labelsFile;
+        public final String labelsSha256;
+        public final int inputSize;
+
+        Manifest(String version, String modelFile, String modelSha256, String labelsFile, String labelsSha256,
+                 int inputSize) {
+            this.version = version;
+            this.modelFile = modelFile;
+            this.modelSha256 = modelSha256;
+            this.labelsFile = labelsFile;
+            this.labelsSha256 = labelsSha256;
+            this.inputSize = inputSize;
+        }
+
+        /**
+         * {"version": "1.1.0", "model": "model.tflite", "model_sha256": "…",
+         *  "labels": "labels.txt", "labels_sha256": "…", "input_size": 180}
+         */
+        @NonNull
+        public static Manifest parse(@NonNull String json) throws IOException {
+            try {
+                JSONObject o = new JSONObject(json);
+                return new Manifest(o.getString("version"), o.getString("model"),
+                        o.getString("model_sha256").toLowerCase(java.util.Locale.US), o.getString("labels"),
+                        o.getString("labels_sha256").toLowerCase(java.util.Locale.US), o.optInt("input_size", 180));
+            } catch (JSONException e) {
+                throw new IOException("bad manifest: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.tensorflow.lite.DataType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Installs new models without an app update.
+ *
+ * A check reads the {@link ModelSource} manifest. A version we don't have is
+ * downloaded into a staging directory and its SHA-256 digests are verified
+ * while streaming. The staging directory is then renamed into filesDir/models.
+ * The model is loaded and warmed through {@link ModelRegistry} and
+ * sanity-checked before it becomes active. The scanner swaps to it between two
+ * inferences, so scanning never pauses.
+ *
+ * Only one update is kept; rolling back returns to the bundled model. A
+ * version that fails verification is remembered and not retried. At startup an
+ * installed model whose size or mtime changed is rolled back; an install with
+ * no recorded size is re-hashed once on the worker instead. File handling
+ * lives in {@link ModelFiles}.
+ *
+ * {@link ModelSelector} benchmarks on this worker too, so it never measures
+ * variants while an update is being installed.
+ */
+public class ModelUpdater {
+
+    private static final String TAG = "ModelUpdater";
+    private static final String PREFS_NAME = "WasteWizardModelUpdate";
+    private static final String KEY_VERSION = "installed_version";
+    private static final String KEY_SHA = "installed_sha256";
+    private static final String KEY_INPUT = "installed_input_size";
+    private static final String KEY_SIZE = "installed_size";
+    private static final String KEY_MTIME = "installed_mtime";
+    private static final String KEY_FAILED = "failed_version";
+    private static final String DIR_NAME = "models";
+    static final String ID_PREFIX = "update-";
+
+    public enum Outcome { UP_TO_DATE, INSTALLED, FAILED, NO_SOURCE }
+
+    /** Called on the main thread. */
+    public interface Listener {
+        void onCheckDone(@NonNull Outcome outcome, @Nullable String version);
+    }
+
+    private static ModelUpdater instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    @Nullable private volatile ModelSource source;
+
+    public static synchronized ModelUpdater get(@NonNull Context context) {
+        if (instance == null) instance = new ModelUpdater(context.getApplicationContext());
+        return instance;
+    }
+
+    private ModelUpdater(Context appContext) {
+        this.appContext = appContext;
+        this.prefs = prefs(appContext);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * The installed update as a registry spec, or null. Called once by
+     * {@link ModelRegistry} at startup, on the main thread, so it only compares
+     * size and mtime; it never hashes the model.
+     */
+    @Nullable
+    static ModelRegistry.Spec installedSpec(@NonNull Context context) {
+        SharedPreferences prefs = prefs(context);
+        String version = prefs.getString(KEY_VERSION, null);
+        if (version == null) return null;
+        File dir = versionDir(context, version);
+        File model = new File(dir, ModelFiles.MODEL_NAME);
+        File labels = new File(dir, ModelFiles.LABELS_NAME);
+        boolean intact = prefs.contains(KEY_SIZE)
+                ? ModelFiles.unchanged(dir, prefs.getLong(KEY_SIZE, -1), prefs.getLong(KEY_MTIME, -1))
+                : model.exists() && labels.exists(); // hashed on the worker, see verifyInstalled
+        if (!intact) {
+            android.util.Log.w(TAG, "rolling back " + version + ": installed files changed");
+            ModelFiles.deleteDir(dir);
+            forget(prefs, version);
+            return null;
+        }
+        return spec(version, model, labels, prefs.getInt(KEY_INPUT, 180));
+    }
+
+    @Nullable
+    public String installedVersion() {
+        return prefs.getString(KEY_VERSION, null);
+    }
+
+    public void setSource(@Nullable ModelSource source) {
+        this.source = source;
+    }
+
+    /** Run task on the update worker, after any check or install already queued. */
+    void execute(@NonNull Runnable task) {
+        worker.execute(task);
+    }
+
+    public void checkAsync(@Nullable Listener listener) {
+        worker.execute(() -> {
+            verifyInstalled();
+            String[] version = new String[1];
+            Outcome outcome = check(version);
+            if (listener != null) main.post(() -> listener.onCheckDone(outcome, version[0]));
+        });
+    }
+
+    /** Drop the installed update and go back to the bundled model. */
+    public void rollbackAsync() {
+        worker.execute(() -> {
+            String version = installedVersion();
+            if (version == null) return;
+            uninstall(version);
+            android.util.Log.d(TAG, "rolled back " + version);
+            Reclassifier.get(appContext).startIfNeeded();
+        });
+    }
+
+    // Worker thread. Installs from before size/mtime were recorded get one full digest check.
+    private void verifyInstalled() {
+        String version = installedVersion();
+        if (version == null || prefs.contains(KEY_SIZE)) return;
+        File model = new File(versionDir(appContext, version), ModelFiles.MODEL_NAME);
+        try {
+            if (!ModelFiles.sha256(model).equals(prefs.getString(KEY_SHA, ""))) throw new IOException("digest changed");
+            prefs.edit().putLong(KEY_SIZE, model.length()).putLong(KEY_MTIME, model.lastModified()).apply();
+        } catch (IOException e) {
+            android.util.Log.w(TAG, "rolling back " + version + ": " + e.getMessage());
+            uninstall(version);
+            Reclassifier.get(appContext).startIfNeeded();
+        }
+    }
+
+    // Worker thread
+    private Outcome check(String[] versionOut) {
+        ModelSource src = source;
+        if (src == null) return Outcome.NO_SOURCE;
+        ModelSource.Manifest m;
+        try {
+            m = src.manifest();
+        } catch (IOException e) {
+            android.util.Log.w(TAG, "manifest: " + e.getMessage());
+            return Outcome.FAILED;
+        }
+        if (m == null || m.version.equals(installedVersion()) || m.version.equals(prefs.getString(KEY_FAILED, null))
+                || m.version.equals(ModelRegistry.get(appContext).spec(ModelRegistry.DEFAULT_ID).version)) {
+            return Outcome.UP_TO_DATE;
+        }
+        versionOut[0] = m.version;
+
+        File dir;
+        try {
+            dir = ModelFiles.fetch(src, m, new File(appContext.getFilesDir(), DIR_NAME));
+        } catch (IOException e) {
+            android.util.Log.w(TAG, "download of " + m.version + " failed: " + e.getMessage());
+            // A digest mismatch won't fix itself; a network error might
+            if (e instanceof ModelFiles.DigestMismatch) prefs.edit().putString(KEY_FAILED, m.version).apply();
+            return Outcome.FAILED;
+        }
+
+        ModelRegistry registry = ModelRegistry.get(appContext);
+        File model = new File(dir, ModelFiles.MODEL_NAME);
+        File labels = new File(dir, ModelFiles.LABELS_NAME);
+        ModelRegistry.Spec spec = spec(m.version, model, labels, m.inputSize);
+        registry.register(spec);
+        TFLiteClassifier warmed = null;
+        try {
+            // Loads and warms the interpreter off the scanning thread
+            warmed = registry.acquire(spec.id);
+            validate(warmed, labels);
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "validation of " + m.version + " failed, rolling back: " + e.getMessage());
+            registry.release(warmed);
+            registry.unregister(spec.id);
+            ModelFiles.deleteDir(dir);
+            prefs.edit().putString(KEY_FAILED, m.version).apply();
+            return Outcome.FAILED;
+        }
+
+        String previous = installedVersion();
+        prefs.edit()
+                .putString(KEY_VERSION, m.version)
+                .putString(KEY_SHA, m.modelSha256)
+                .putInt(KEY_INPUT, m.inputSize)
+                .putLong(KEY_SIZE, model.length())
+                .putLong(KEY_MTIME, model.lastModified())
+                .apply();
+        registry.setActive(spec.id);
+        registry.release(warmed);
+        if (previous != null) {
+            registry.unregister(ID_PREFIX + previous);
+            ModelFiles.deleteDir(versionDir(appContext, previous));
+        }
+        android.util.Log.d(TAG, "installed model " + m.version);
+        Reclassifier.get(appContext).startIfNeeded();
+        return Outcome.INSTALLED;
+    }
+
+    private void uninstall(String version) {
+        forget(prefs, version);
+        ModelRegistry.get(appContext).unregister(ID_PREFIX + version);
+        ModelFiles.deleteDir(versionDir(appContext, version));
+    }
+
+    private static void forget(SharedPreferences prefs, String version) {
+        prefs.edit().remove(KEY_VERSION).remove(KEY_SHA).remove(KEY_INPUT).remove(KEY_SIZE).remove(KEY_MTIME)
+                .putString(KEY_FAILED, version).apply();
+    }
+
+    private static File versionDir(Context context, String version) {
+        return new File(new File(context.getFilesDir(), DIR_NAME), ModelFiles.dirName(version));
+    }
+
+    // Output size must match the labels, and a plain input must give a probability distribution
+    private static void validate(TFLiteClassifier c, File labelsFile) throws IOException {
+        ModelFiles.checkLabels(c.getNumClasses(), labelsFile);
+        Bitmap probe = Bitmap.createBitmap(c.getInputSize(), c.getInputSize(), Bitmap.Config.ARGB_8888);
+        probe.eraseColor(0xFF808080);
+        float[] p = c.inferProbs(probe);
+        probe.recycle();
+        ModelFiles.checkProbs(p);
+    }
+
+    private static ModelRegistry.Spec spec(String version, File model, File labels, int inputSize) {
+        // The interpreter reports the real input type; FLOAT32 is only the expectation logged against
+        return new ModelRegistry.Spec(ID_PREFIX + version, "Update " + version, model, labels, inputSize,
+                DataType.FLOAT32, version, version);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.wastewizard;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 64-bit difference hash (dHash) of an image; the bit logic is in {@link HashOps}.
+ *
+ * Each of the 9x8 cells averages about 32x32 evenly spaced source pixels, so
+ * re-encodes, rescales and small lighting changes flip only a few bits and
+ * {@link #distance} acts as a near-duplicate test. Work is bounded whatever the
+ * photo size: one row buffer and at most about 256 sampled rows.
+ */
+public final class PerceptualHash {
+
+    // Samples per cell edge; enough to average out noise and texture
+    private static final int SAMPLES_PER_CELL = 32;
+
+    private PerceptualHash() { }
+
+    public static long dHash(@NonNull Bitmap src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int xStep = Math.max(1, w / (HashOps.GRID_W * SAMPLES_PER_CELL));
+        int yStep = Math.max(1, h / (HashOps.GRID_H * SAMPLES_PER_CELL));
+        int[] row = new int[w];
+        long[] sums = new long[HashOps.CELLS];
+        int[] counts = new int[HashOps.CELLS];
+        for (int y = 0; y < h; y += yStep) {
+            src.getPixels(row, 0, w, 0, y, w, 1);
+            HashOps.accumulateRow(row, w, xStep, y, h, sums, counts);
+        }
+        return HashOps.dHash(sums, counts);
+    }
+
+    /** Number of differing bits, 0..64. */
+    public static int distance(long a, long b) {
+        return HashOps.distance(a, b);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device ring buffer of per-scan performance records.
+ *
+ * Records have a fixed size and are written in place into a memory-mapped
+ * file (filesDir/perf_telemetry.bin), so a write is a handful of stores with
+ * no parsing or syscalls. The thermal status is cached from a listener rather
+ * than queried per record. Live frames are sampled at most once per
+ * {@link #LIVE_INTERVAL_MS}, so a long live session can't push the photo
+ * records out of the ring. Once the buffer is full, the oldest records are
+ * overwritten. Settings exports the buffer as CSV or JSON, oldest record
+ * first, for analysis off the device.
+ *
+ * Layout, little-endian. The header is 32 bytes: magic, format version,
+ * record size, capacity, then the number of records ever written (a long).
+ * Each 64-byte record holds:
+ *
+ * <pre>
+ *  0 long  wall-clock ms      8 byte kind, threads, thermal status, unused
+ * 12 int×6 stage µs (see InferenceStats.Stage)   36 int total µs
+ * 40 u16   width, height     44 int  heap headroom KB   48 16 bytes model id
+ * </pre>
+ */
+public class PerfTelemetry {
+
+    private static final String TAG = "PerfTelemetry";
+    private static final String FILE_NAME = "perf_telemetry.bin";
+    private static final int MAGIC = 0x57575054; // "WWPT"
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 64;
+    private static final int CAPACITY = 4096; // 256 KB
+    private static final int MODEL_ID_BYTES = 16;
+    private static final int OFF_SEQ = 16;
+    private static final long LIVE_INTERVAL_MS = 1000;
+
+    public static final int KIND_PHOTO = 0;
+    public static final int KIND_LIVE = 1;
+
+    /** Called on the main thread. */
+    public interface ExportListener {
+        void onExported(int records, @Nullable Exception error);
+    }
+
+    private static PerfTelemetry instance;
+
+    private final Context appContext;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private volatile int thermal = -1; // PowerManager.THERMAL_STATUS_*, -1 if unknown
+    private volatile long lastLiveMs;
+    @Nullable private final MappedByteBuffer buf; // guarded by this; null if the file couldn't be mapped
+    // Last model id and its encoded bytes, so recording doesn't re-encode every time
+    private String lastModelId;
+    private final byte[] modelIdBytes = new byte[MODEL_ID_BYTES];
+
+    public static synchronized PerfTelemetry get(@NonNull Context context) {
+        if (instance == null) instance = new PerfTelemetry(context.getApplicationContext());
+        return instance;
+    }
+
+    private PerfTelemetry(Context appContext) {
+        this.appContext = appContext;
+        this.buf = map(new File(appContext.getFilesDir(), FILE_NAME));
+        PowerManager power = appContext.getSystemService(PowerManager.class);
+        if (power != null && android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.Q) {
+            thermal = power.getCurrentThermalStatus();
+            power.addThermalStatusListener(worker, status -> thermal = status);
+        }
+    }
+
+    @Nullable
+    private static MappedByteBuffer map(File file) {
+        long size = HEADER_SIZE + (long) RECORD_SIZE * CAPACITY;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            MappedByteBuffer b = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            if (b.getInt(0) != MAGIC || b.getInt(4) != FORMAT || b.getInt(8) != RECORD_SIZE || b.getInt(12) != CAPACITY) {
+                // New file or another layout: start empty
+                b.putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, RECORD_SIZE).putInt(12, CAPACITY).putLong(OFF_SEQ, 0);
+            }
+            return b;
+        } catch (IOException e) {
+            android.util.Log.w(TAG, "telemetry disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Append one scan. stageNanos is indexed by {@link InferenceStats.Stage}
+     * ordinal; classifier may be null (e.g. a cached result). Live frames
+     * within {@link #LIVE_INTERVAL_MS} of the last recorded one are dropped.
+     */
+    public void record(int kind, @NonNull long[] stageNanos, long totalNanos, @Nullable TFLiteClassifier classifier,
+                       int width, int height) {
+        if (buf == null) return;
+        long now = System.currentTimeMillis();
+        if (kind == KIND_LIVE) {
+            if (now - lastLiveMs < LIVE_INTERVAL_MS) return;
+            lastLiveMs = now;
+        }
+        Runtime rt = Runtime.getRuntime();
+        long headroomKb = (rt.maxMemory() - (rt.totalMemory() - rt.freeMemory())) / 1024;
+        synchronized (this) {
+            long seq = buf.getLong(OFF_SEQ);
+            int p = HEADER_SIZE + (int) (seq % CAPACITY) * RECORD_SIZE;
+            buf.putLong(p, now);
+            buf.put(p + 8, (byte) kind);
+            buf.put(p + 9, (byte) (classifier != null ? classifier.getNumThreads() : 0));
+            buf.put(p + 10, (byte) thermal);
+            buf.put(p + 11, (byte) 0);
+            for (int i = 0; i < 6; i++) {
+                buf.putInt(p + 12 + i * 4, i < stageNanos.length ? micros(stageNanos[i]) : 0);
+            }
+            buf.putInt(p + 36, micros(totalNanos));
+            buf.putShort(p + 40, (short) Math.min(width, 0xFFFF));
+            buf.putShort(p + 42, (short) Math.min(height, 0xFFFF));
+            buf.putInt(p + 44, (int) Math.min(headroomKb, Integer.MAX_VALUE));
+            String id = classifier != null ? classifier.getSpec().id : "";
+            if (!id.equals(lastModelId)) {
+                java.util.Arrays.fill(modelIdBytes, (byte) 0);
+                byte[] raw = id.getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(raw, 0, modelIdBytes, 0, Math.min(raw.length, MODEL_ID_BYTES));
+                lastModelId = id;
+            }
+            for (int i = 0; i < MODEL_ID_BYTES; i++) buf.put(p + 48 + i, modelIdBytes[i]);
+            buf.putLong(OFF_SEQ, seq + 1);
+        }
+    }
+
+    private static int micros(long nanos) {
+        return (int) Math.min(nanos / 1000, Integer.MAX_VALUE);
+    }
+
+    public synchronized int size() {
+        return buf == null ? 0 : (int) Math.min(buf.getLong(OFF_SEQ), CAPACITY);
+    }
+
+    /** Write all records to dest as CSV, or JSON if json is set. */
+    public void exportAsync(@NonNull Uri dest, boolean json, @NonNull ExportListener listener) {
+        worker.execute(() -> {
+            int n = 0;
+            Exception error = null;
+            try (OutputStream os = appContext.getContentResolver().openOutputStream(dest)) {
+                if (os == null) throw new IOException("cannot open " + dest);
+                n = export(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)), json);
+            } catch (IOException e) {
+                android.util.Log.w(TAG, "export failed: " + e.getMessage());
+                error = e;
+            }
+            int count = n;
+            Exception err = error;
+            main.post(() -> listener.onExported(count, err));
+        });
+    }
+
+    private int export(Writer w, boolean json) throws IOException {
+        // Copy under the lock, format outside it; scanning keeps recording meanwhile
+        ByteBuffer snap;
+        long seq;
+        synchronized (this) {
+            if (buf == null) throw new IOException("telemetry unavailable");
+            seq = buf.getLong(OFF_SEQ);
+            ByteBuffer src = buf.duplicate();
+            src.position(0);
+            snap = ByteBuffer.allocate(src.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+            snap.put(src);
+        }
+        int count = (int) Math.min(seq, CAPACITY);
+        long first = seq - count;
+        InferenceStats.Stage[] stages = InferenceStats.Stage.values();
+
+        if (json) {
+            w.write("[\n");
+        } else {
+            w.write("timestamp_ms,kind,model,threads,thermal,width,height,heap_headroom_kb");
+            for (InferenceStats.Stage s : stages) w.write("," + s.label + "_us");
+            w.write(",total_us\n");
+        }
+        StringBuilder line = new StringBuilder(256);
+        for (long i = first; i < seq; i++) {
+            int p = HEADER_SIZE + (int) (i % CAPACITY) * RECORD_SIZE;
+            byte[] id = new byte[MODEL_ID_BYTES];
+            for (int k = 0; k < MODEL_ID_BYTES; k++) id[k] = snap.get(p + 48 + k);
+            int idLen = 0;
+            while (idLen < MODEL_ID_BYTES && id[idLen] != 0) idLen++;
+            String model = new String(id, 0, idLen, StandardCharsets.US_ASCII).replaceAll("[\"\\\\,]", "_");
+            String kind = snap.get(p + 8) == KIND_LIVE ? "live" : "photo";
+
+            line.setLength(0);
+            if (json) {
+                line.append(i > first ? ",\n" : "").append("{\"timestamp_ms\":").append(snap.getLong(p))
+                        .append(",\"kind\":\"").append(kind).append("\",\"model\":\"").append(model)
+                        .append("\",\"threads\":").append(snap.get(p + 9))
+                        .append(",\"thermal\":").append(snap.get(p + 10))
+                        .append(",\"width\":").append(snap.getShort(p + 40) & 0xFFFF)
+                        .append(",\"height\":").append(snap.getShort(p + 42) & 0xFFFF)
+                        .append(",\"heap_headroom_kb\":").append(snap.getInt(p + 44));
+                for (int k = 0; k < stages.length && k < 6; k++) {
+                    line.append(",\"").append(stages[k].label).append("_us\":").append(snap.getInt(p + 12 + k * 4));
+                }
+                line.append(",\"total_us\":").append(snap.getInt(p + 36)).append('}');
+            } else {
+                line.append(snap.getLong(p)).append(',').append(kind).append(',').append(model)
+                        .append(',').append(snap.get(p + 9)).append(',').append(snap.get(p + 10))
+                        .append(',').append(snap.getShort(p + 40) & 0xFFFF).append(',').append(snap.getShort(p + 42) & 0xFFFF)
+                        .append(',').append(snap.getInt(p + 44));
+                for (int k = 0; k < stages.length && k < 6; k++) line.append(',').append(snap.getInt(p + 12 + k * 4));
+                line.append(',').append(snap.getInt(p + 36)).append('\n');
+            }
+            w.write(line.toString());
+        }
+        if (json) w.write("\n]\n");
+        w.flush();
+        return count;
+    }
+}
@@ -80,17 +80,18 @@ public class ProfileFragment extends Fragment {
         if (gameManager == null) return;
         
         // Update profile title with username
-        txtProfileTitle.setText(AppThemeManager.getUsername() + "'s Profile");
+        txtProfileTitle.setText(Profiles.get(requireContext()).activeName() + "'s Profile");
         
-        // Update main stats
-        txtLevel.setText("Level " + gameManager.getLevel());
-        txtPoints.setText(String.valueOf(gameManager.getTotalPoints()));
-        txtStreak.setText(String.valueOf(gameManager.getCurrentStreak()));
-        txtAccuracy.setText(String.format("%.1f%%", gameManager.getAccuracy()));
+        // Update main stats (one ledger read so all fields agree)
+        GameState state = gameManager.getState();
+        txtLevel.setText("Level " + state.level);
+        txtPoints.setText(String.valueOf(state.points));
+        txtStreak.setText(String.valueOf(state.streak));
+        txtAccuracy.setText(String.format(java.util.Locale.getDefault(), "%.1f%%", state.accuracy()));
         
         // Update additional stats
-        txtTotalScans.setText(String.valueOf(gameManager.getTotalPredictions()));
-        txtBestStreak.setText(String.valueOf(gameManager.getBestStreak()));
+        txtTotalScans.setText(String.valueOf(state.total));
+        txtBestStreak.setText(String.valueOf(state.bestStreak));
         txtAchievementsUnlocked.setText(String.valueOf(gameManager.getAchievements().size()));
         
         // Refresh achievements
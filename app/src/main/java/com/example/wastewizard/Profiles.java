@@ -0,0 +1,152 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Player profiles for kiosk mode on a shared device.
+ *
+ * The profile list is read from prefs once; after that switching is just a
+ * volatile write plus a listener callback, so the activity, scanner and
+ * classifier stay as they are. Game and history stores scope every query by
+ * {@link #activeId()}, so a switch never loads other players' data.
+ */
+public class Profiles {
+
+    private static final String PREFS_NAME = "WasteWizardProfiles";
+    private static final String KEY_ACTIVE = "active";
+    private static final String KEY_KIOSK = "kiosk_mode";
+    private static final String KEY_NAME_PREFIX = "name:"; // name:<id> -> display name
+
+    /** The device owner's profile; holds all data recorded before kiosk mode. */
+    public static final String DEFAULT_ID = Leaderboard.LOCAL_PROFILE_ID;
+
+    /** Called on the main thread after the active profile changes. */
+    public interface Listener {
+        void onProfileChanged(@NonNull String profileId);
+    }
+
+    public static class Profile {
+        public final String id;
+        public final String name;
+
+        Profile(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static Profiles instance;
+
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, String> names = new LinkedHashMap<>(); // guarded by this; excludes DEFAULT_ID
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile String activeId;
+
+    public static synchronized Profiles get(@NonNull Context context) {
+        if (instance == null) instance = new Profiles(context.getApplicationContext());
+        return instance;
+    }
+
+    private Profiles(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+            if (e.getKey().startsWith(KEY_NAME_PREFIX) && e.getValue() instanceof String) {
+                names.put(e.getKey().substring(KEY_NAME_PREFIX.length()), (String) e.getValue());
+            }
+        }
+        String active = prefs.getString(KEY_ACTIVE, DEFAULT_ID);
+        activeId = isKioskMode() && names.containsKey(active) ? active : DEFAULT_ID;
+    }
+
+    /** Id of the profile new scans and points are recorded for. */
+    @NonNull
+    public String activeId() {
+        return activeId;
+    }
+
+    @NonNull
+    public String activeName() {
+        return nameOf(activeId);
+    }
+
+    @NonNull
+    public synchronized String nameOf(@NonNull String id) {
+        if (DEFAULT_ID.equals(id)) return AppThemeManager.getUsername();
+        String name = names.get(id);
+        return name != null ? name : id;
+    }
+
+    public boolean isKioskMode() {
+        return prefs.getBoolean(KEY_KIOSK, false);
+    }
+
+    /** Turning kiosk mode off hands the device back to the default profile. */
+    public void setKioskMode(boolean enabled) {
+        prefs.edit().putBoolean(KEY_KIOSK, enabled).apply();
+        if (!enabled) switchTo(DEFAULT_ID);
+    }
+
+    /** The default profile first, then kiosk profiles in creation order. */
+    @NonNull
+    public synchronized List<Profile> list() {
+        List<Profile> out = new ArrayList<>(names.size() + 1);
+        out.add(new Profile(DEFAULT_ID, AppThemeManager.getUsername()));
+        for (Map.Entry<String, String> e : names.entrySet()) out.add(new Profile(e.getKey(), e.getValue()));
+        return out;
+    }
+
+    /** Create a profile and return its id. Does not switch to it. */
+    @NonNull
+    public synchronized String create(@NonNull String name) {
+        String id = "p" + Long.toString(System.currentTimeMillis(), 36);
+        while (names.containsKey(id)) id = id + "x";
+        names.put(id, name.trim());
+        prefs.edit().putString(KEY_NAME_PREFIX + id, name.trim()).apply();
+        return id;
+    }
+
+    public synchronized void rename(@NonNull String id, @NonNull String name) {
+        if (DEFAULT_ID.equals(id)) {
+            AppThemeManager.setUsername(name);
+            return;
+        }
+        if (!names.containsKey(id)) return;
+        names.put(id, name.trim());
+        prefs.edit().putString(KEY_NAME_PREFIX + id, name.trim()).apply();
+    }
+
+    /** Make id the active profile. O(1): the stores look it up per query. */
+    public void switchTo(@NonNull String id) {
+        synchronized (this) {
+            if (!DEFAULT_ID.equals(id) && !names.containsKey(id)) return;
+            if (id.equals(activeId)) return;
+            activeId = id;
+        }
+        prefs.edit().putString(KEY_ACTIVE, id).apply();
+        android.util.Log.d("Profiles", "active profile " + id);
+        mainHandler.post(() -> {
+            for (Listener l : listeners) l.onProfileChanged(id);
+        });
+    }
+
+    public void addListener(@NonNull Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(@Nullable Listener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.PowerManager;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-labels history after the model changes.
+ *
+ * Rows stamped with another model family ({@link ModelRegistry.Spec#family}) are re-run in small batches on a
+ * background-priority thread, with a pause between batches and a longer one in
+ * battery saver. The last processed id is checkpointed after every batch, so a
+ * job killed mid-way resumes where it stopped on next launch.
+ *
+ * Feedback described the old label: a confirmed correct scan whose label
+ * changes is now wrong, and a "wrong" one becomes unknown. History counts are
+ * SQL aggregates and follow each batch as it lands; for the accuracy shown in
+ * the app and used by achievements, each batch also appends one
+ * {@link GameState#EVENT_CORRECTION} per changed scored prediction to the
+ * {@link GameLedger}. Points already earned are left alone.
+ */
+public class Reclassifier {
+
+    private static final String TAG = "Reclassifier";
+    private static final String PREFS_NAME = "WasteWizardReclassify";
+    private static final String KEY_TARGET = "target_version"; // version being applied
+    private static final String KEY_AFTER_ID = "after_id";     // checkpoint: last processed row
+    private static final String KEY_DONE = "done_version";     // version fully applied
+
+    private static final int BATCH_SIZE = 8;
+    private static final long PAUSE_MS = 500;
+    private static final long POWER_SAVE_PAUSE_MS = 5 * 60_000;
+    private static final int DECODE_MIN_EDGE_PX = 512;
+
+    private static Reclassifier instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, TAG);
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Worker thread only
+    @Nullable private TFLiteClassifier classifier;
+    private boolean running;
+
+    public static synchronized Reclassifier get(@NonNull Context context) {
+        if (instance == null) instance = new Reclassifier(context.getApplicationContext());
+        return instance;
+    }
+
+    private Reclassifier(Context appContext) {
+        this.appContext = appContext;
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Start or resume re-classification if the current model hasn't been applied yet. */
+    public void startIfNeeded() {
+        worker.execute(() -> {
+            if (running) return;
+            String version = TFLiteClassifier.modelFamily(appContext);
+            if (version.equals(prefs.getString(KEY_DONE, null))) return;
+            if (!version.equals(prefs.getString(KEY_TARGET, null))) {
+                // New target: start over from the oldest row
+                prefs.edit().putString(KEY_TARGET, version).putLong(KEY_AFTER_ID, 0).apply();
+            }
+            int stale = HistoryStore.get(appContext).countStale(version);
+            if (stale == 0) {
+                finish(version);
+                return;
+            }
+            android.util.Log.d(TAG, stale + " scans to re-classify for model " + version);
+            running = true;
+            worker.execute(this::step);
+        });
+    }
+
+    // One batch, then schedule the next
+    private void step() {
+        String version = prefs.getString(KEY_TARGET, "");
+        if (!version.equals(TFLiteClassifier.modelFamily(appContext))) {
+            // Model changed again under us; startIfNeeded picks up the new one
+            stop();
+            startIfNeeded();
+            return;
+        }
+        PowerManager pm = appContext.getSystemService(PowerManager.class);
+        if (pm != null && pm.isPowerSaveMode()) {
+            worker.schedule(this::step, POWER_SAVE_PAUSE_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        HistoryStore store = HistoryStore.get(appContext);
+        long afterId = prefs.getLong(KEY_AFTER_ID, 0);
+        List<GameManager.ScanHistory> rows = store.staleAfter(afterId, version, BATCH_SIZE);
+        if (rows.isEmpty()) {
+            stop();
+            finish(version);
+            return;
+        }
+
+        try {
+            if (classifier == null) classifier = new TFLiteClassifier(appContext, 1);
+            relabel(rows, version);
+        } catch (Exception | OutOfMemoryError e) {
+            android.util.Log.w(TAG, "batch after #" + afterId + " failed: " + e.getMessage());
+            stop();
+            return; // retried from the same checkpoint on next launch
+        }
+        prefs.edit().putLong(KEY_AFTER_ID, rows.get(rows.size() - 1).id).apply();
+        worker.schedule(this::step, PAUSE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void relabel(List<GameManager.ScanHistory> rows, String version) {
+        List<Bitmap> bitmaps = new ArrayList<>(rows.size());
+        List<GameManager.ScanHistory> decoded = new ArrayList<>(rows.size());
+        for (GameManager.ScanHistory s : rows) {
+            Bitmap b = decode(s.imagePath);
+            if (b != null) {
+                bitmaps.add(b);
+                decoded.add(s);
+            }
+        }
+        try {
+            float[][] probs = bitmaps.isEmpty() ? new float[0][] : classifier.inferProbsBatch(bitmaps);
+            int changed = 0;
+            Map<String, List<Long>> corrections = new HashMap<>(); // profile -> CORRECTION_* values
+            for (int i = 0; i < decoded.size(); i++) {
+                GameManager.ScanHistory s = decoded.get(i);
+                float[] p = probs[i];
+                int best = 0;
+                for (int k = 1; k < p.length; k++) if (p[k] > p[best]) best = k;
+                String label = classifier.getLabelAt(best);
+                if (!label.equals(s.predictedLabel)) {
+                    changed++;
+                    // Duplicates never counted as predictions, so there's nothing to correct
+                    if (s.isCorrect != null && s.duplicateOf == 0) {
+                        corrections.computeIfAbsent(s.profileId, k -> new ArrayList<>()).add(s.isCorrect
+                                ? GameState.CORRECTION_NOW_WRONG : GameState.CORRECTION_NOW_UNKNOWN);
+                    }
+                    if (s.isCorrect != null) s.isCorrect = s.isCorrect ? Boolean.FALSE : null;
+                    s.predictedLabel = label;
+                }
+                s.confidence = p[best];
+                s.modelVersion = version;
+            }
+            // Rows whose image is gone keep their label; they'd fail every time, so stamp them too
+            for (GameManager.ScanHistory s : rows) s.modelVersion = version;
+            HistoryStore.get(appContext).updateClassifications(rows);
+            GameLedger ledger = GameLedger.get(appContext);
+            for (Map.Entry<String, List<Long>> e : corrections.entrySet()) {
+                long[] values = new long[e.getValue().size()];
+                for (int k = 0; k < values.length; k++) values[k] = e.getValue().get(k);
+                ledger.appendBatch(e.getKey(), GameState.EVENT_CORRECTION, values);
+            }
+            android.util.Log.d(TAG, "batch: " + decoded.size() + "/" + rows.size() + " decoded, " + changed + " relabelled");
+        } finally {
+            for (Bitmap b : bitmaps) b.recycle();
+        }
+    }
+
+    // Original image if still readable, else its thumbnail
+    @Nullable
+    private Bitmap decode(@Nullable String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) return null;
+        Uri uri = imagePath.startsWith("content:") || imagePath.startsWith("file:")
+                ? Uri.parse(imagePath) : Uri.fromFile(new File(imagePath));
+        Bitmap b = decode(ImageDecoder.createSource(appContext.getContentResolver(), uri));
+        if (b != null) return b;
+        File thumb = ThumbnailCache.get(appContext).thumbFileFor(imagePath);
+        return thumb.exists() ? decode(ImageDecoder.createSource(thumb)) : null;
+    }
+
+    @Nullable
+    private static Bitmap decode(ImageDecoder.Source src) {
+        try {
+            return ImageDecoder.decodeBitmap(src, (decoder, info, s) -> {
+                decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+                decoder.setTargetSampleSize(ThumbnailCache.sampleSizeFor(
+                        info.getSize().getWidth(), info.getSize().getHeight(), DECODE_MIN_EDGE_PX));
+            });
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void stop() {
+        running = false;
+        if (classifier != null) {
+            classifier.close();
+            classifier = null;
+        }
+    }
+
+    private void finish(String version) {
+        prefs.edit().putString(KEY_DONE, version).remove(KEY_TARGET).remove(KEY_AFTER_ID).apply();
+        android.util.Log.d(TAG, "history up to date with model " + version);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Classification results keyed by {@link PerceptualHash#dHash} of the input.
+ *
+ * Re-classifying the same photo or an unchanged scene returns the stored
+ * probabilities instead of running three crops through the model. Lookups try
+ * the exact hash, then the nearest entry within {@link #MAX_DISTANCE} bits; that
+ * is kept tight because a near hit returns another image's probabilities.
+ * Entries are LRU-evicted past {@link #CAPACITY} and tagged with the model
+ * version, so a model update or a switch to another variant invalidates them. The table is saved to disk so
+ * it survives restarts.
+ */
+public class ResultCache {
+
+    private static final String TAG = "ResultCache";
+    private static final int CAPACITY = 256;
+    private static final int MAX_DISTANCE = 2; // of 64 bits
+    private static final String FILE_NAME = "result_cache.bin";
+    private static final int FILE_FORMAT = 2; // 2: area-averaged dHash
+
+    private static ResultCache instance;
+
+    private final Context appContext;
+    private final File file;
+    private String modelVersion; // guarded by this
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    // Access-ordered: iteration starts at the least recently used entry. Guarded by this.
+    private final LinkedHashMap<Long, float[]> entries = new LinkedHashMap<>(CAPACITY, 0.75f, true);
+    private boolean dirty;
+    private long hits;
+    private long nearHits;
+    private long misses;
+
+    public static synchronized ResultCache get(@NonNull Context context) {
+        if (instance == null) instance = new ResultCache(context.getApplicationContext());
+        return instance;
+    }
+
+    private ResultCache(Context context) {
+        appContext = context;
+        file = new File(context.getFilesDir(), FILE_NAME);
+        modelVersion = TFLiteClassifier.modelVersion(context);
+        load();
+    }
+
+    /** Cached probabilities for this hash or a near duplicate of it, or null. */
+    @Nullable
+    public synchronized float[] lookup(long hash) {
+        checkModel();
+        float[] probs = entries.get(hash);
+        if (probs != null) {
+            hits++;
+        } else {
+            long nearest = 0;
+            int best = MAX_DISTANCE + 1;
+            for (long k : entries.keySet()) {
+                int d = PerceptualHash.distance(k, hash);
+                if (d < best) {
+                    best = d;
+                    nearest = k;
+                }
+            }
+            if (best <= MAX_DISTANCE) {
+                probs = entries.get(nearest); // also refreshes its LRU position
+                nearHits++;
+            } else {
+                misses++;
+            }
+        }
+        return probs != null ? probs.clone() : null;
+    }
+
+    public synchronized void put(long hash, @NonNull float[] probs) {
+        checkModel();
+        entries.put(hash, probs.clone());
+        if (entries.size() > CAPACITY) {
+            Iterator<Map.Entry<Long, float[]>> it = entries.entrySet().iterator();
+            it.next();
+            it.remove();
+        }
+        dirty = true;
+    }
+
+    /** Fraction of lookups served from the cache, exact or near. */
+    public synchronized double hitRate() {
+        long total = hits + nearHits + misses;
+        return total == 0 ? 0.0 : (double) (hits + nearHits) / total;
+    }
+
+    @NonNull
+    public synchronized String stats() {
+        return String.format(java.util.Locale.US, "%d exact + %d near / %d lookups (%.0f%%), %d entries",
+                hits, nearHits, hits + nearHits + misses, hitRate() * 100, entries.size());
+    }
+
+    // Caller holds the lock; results of another model are useless
+    private void checkModel() {
+        String current = TFLiteClassifier.modelVersion(appContext);
+        if (current.equals(modelVersion)) return;
+        entries.clear();
+        modelVersion = current;
+        dirty = true;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        dirty = true;
+        saveAsync();
+    }
+
+    /** Write the table in the background if it changed. */
+    public void saveAsync() {
+        io.execute(this::save);
+    }
+
+    private void save() {
+        Map<Long, float[]> copy;
+        String version;
+        synchronized (this) {
+            if (!dirty) return;
+            version = modelVersion;
+            copy = new LinkedHashMap<>(entries);
+            dirty = false;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_FORMAT);
+            out.writeUTF(version);
+            out.writeInt(copy.size());
+            for (Map.Entry<Long, float[]> e : copy.entrySet()) {
+                out.writeLong(e.getKey());
+                float[] p = e.getValue();
+                out.writeShort(p.length);
+                for (float f : p) out.writeFloat(f);
+            }
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "save failed: " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    // Small file (a few KB); read once on first use
+    private void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_FORMAT || !modelVersion.equals(in.readUTF())) {
+                android.util.Log.d(TAG, "discarding cache from another model or format");
+                return;
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n && i < CAPACITY; i++) {
+                long hash = in.readLong();
+                float[] p = new float[in.readShort()];
+                for (int j = 0; j < p.length; j++) p[j] = in.readFloat();
+                entries.put(hash, p);
+            }
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "load failed: " + e.getMessage());
+            entries.clear();
+        }
+    }
+}
@@ -48,7 +48,10 @@ public class ScanFragment extends Fragment {
     private Context appContext;
 
     // ML
-  private TFLiteClassifier classifier;
+  // Keeps the active variant loaded and answers "model ready?" on the main thread; swapped when the
+  // variant changes. Background tasks acquire their own reference and never read this field.
+  private volatile TFLiteClassifier classifier;
+  private final ModelRegistry.Listener modelListener = this::onModelChanged;
 
     // GameManager for gamification
     private GameManager gameManager;
@@ -65,13 +68,27 @@ public class ScanFragment extends Fragment {
     private final java.util.concurrent.atomic.AtomicBoolean analyzing = new java.util.concurrent.atomic.AtomicBoolean(false);
     private final java.util.concurrent.atomic.AtomicInteger liveSeq = new java.util.concurrent.atomic.AtomicInteger(0);
     private static final long ANALYZE_INTERVAL_MS = 400; // ~2.5 FPS
+    private static final long SESSION_ANALYZE_INTERVAL_MS = 200; // sessions need quicker stability
     private static final float LIVE_MIN_CONF = 0.5f; // raise later to 0.6–0.7
+    private final LiveFrameStats frameStats = new LiveFrameStats();
+    // Per-scan stage times for PerfTelemetry; liveStages is analyzer-thread only
+    private final long[] liveStages = new long[InferenceStats.Stage.values().length];
+    private static final long HUD_REFRESH_MS = 1000;
+    private final Runnable hudRefresh = new Runnable() {
+        @Override
+        public void run() {
+            if (binding == null || !cameraRunning || !AppThemeManager.isPerfHudEnabled()) return;
+            binding.txtPerfHud.setText(frameStats.hudText());
+            binding.txtPerfHud.postDelayed(this, HUD_REFRESH_MS);
+        }
+    };
 
     // GameManager integration
     private TFLiteClassifier.Result lastLiveResult;
     
     // Real-time smoothing
     private float[] emaProbs = null;
+    private float[] liveProbs = null; // analyzer thread; reused every frame
     private static final float EMA_ALPHA = 0.6f; // higher = snappier, lower = smoother
 
     // Executors
@@ -81,6 +98,12 @@ public class ScanFragment extends Fragment {
     // Pickers & permission
     private ActivityResultLauncher<PickVisualMediaRequest> pickMediaLauncher;
     private ActivityResultLauncher<String> getContentLauncher;
+    private ActivityResultLauncher<PickVisualMediaRequest> pickMultipleLauncher;
+    private ActivityResultLauncher<String> getMultipleContentsLauncher;
+    @Nullable private BulkImporter bulkImporter;
+
+    // Hands-free sorting; read by the analyzer thread
+    @Nullable private volatile SortingSession session;
     private ActivityResultLauncher<String> cameraPermissionLauncher;
 
     // Current image
@@ -107,10 +130,11 @@ public class ScanFragment extends Fragment {
 
         // Init classifier
         try {
-            classifier = new TFLiteClassifier(appContext);
+            classifier = ModelRegistry.get(appContext).acquire();
       } catch (Exception e) {
             Toast.makeText(appContext, "Failed to load ML model", Toast.LENGTH_LONG).show();
         }
+        ModelRegistry.get(appContext).addListener(modelListener);
         
         // Init GameManager
         gameManager = new GameManager(appContext);
@@ -140,6 +164,16 @@ public class ScanFragment extends Fragment {
                 }
         );
 
+        // Bulk import: photo picker multi-select, GetMultipleContents before Android 13
+        pickMultipleLauncher = registerForActivityResult(
+                new ActivityResultContracts.PickMultipleVisualMedia(),
+                uris -> { if (uris != null && !uris.isEmpty()) startBulkImport(uris); }
+        );
+        getMultipleContentsLauncher = registerForActivityResult(
+                new ActivityResultContracts.GetMultipleContents(),
+                uris -> { if (uris != null && !uris.isEmpty()) startBulkImport(uris); }
+        );
+
         // Camera permission scoped to Fragment
         cameraPermissionLauncher = registerForActivityResult(
                 new ActivityResultContracts.RequestPermission(),
@@ -178,9 +212,11 @@ public class ScanFragment extends Fragment {
 
         // Buttons
         binding.btnPickImage.setOnClickListener(v -> openPicker());
+        binding.btnImportMany.setOnClickListener(v -> openMultiPicker());
+        binding.btnSession.setOnClickListener(v -> toggleSession());
         binding.btnCapture.setOnClickListener(v -> onCameraButton());
         binding.btnPredict.setOnClickListener(v -> {
-            if (currentBitmap != null) runClassification(currentBitmap);
+            if (currentBitmap != null) runClassification(currentBitmap, 0); // decoded earlier, not part of this scan
             else toast("Please select or capture an image first");
         });
 
@@ -188,26 +224,35 @@ public class ScanFragment extends Fragment {
         binding.chipLiveResult.setOnClickListener(v -> {
             if (imageCapture == null) return;
             // take a still photo for history + rock-solid classification
-            java.io.File photoFile = new java.io.File(requireContext().getCacheDir(), "live_" + System.currentTimeMillis() + ".jpg");
+            java.io.File photoFile = CaptureStorage.get(appContext).newCaptureFile("live_");
             ImageCapture.OutputFileOptions opts = new ImageCapture.OutputFileOptions.Builder(photoFile).build();
             showLoading(true);
             imageCapture.takePicture(opts, cameraExecutor, new ImageCapture.OnImageSavedCallback() {
                 @Override public void onImageSaved(@NonNull ImageCapture.OutputFileResults output) {
                     Uri uri = Uri.fromFile(photoFile);
+                    ModelRegistry registry = ModelRegistry.get(appContext);
+                    TFLiteClassifier c = null;
                     try {
+                        c = registry.acquire();
                         Bitmap bmp = decodeBitmap(requireContext().getContentResolver(), uri);
-                        TFLiteClassifier.Result res = classifier.classify(bmp);
+                        long hash = PerceptualHash.dHash(bmp);
+                        float[] p = probsFor(c, bmp, hash);
+                        int best = 0;
+                        for (int i = 1; i < p.length; i++) if (p[i] > p[best]) best = i;
+                        TFLiteClassifier.Result res = new TFLiteClassifier.Result(c.getLabelAt(best), p[best], best);
                         postToMain(() -> {
                             showLoading(false);
                             if (res != null) {
                                 binding.resultCard.setVisibility(View.VISIBLE);
                                 binding.txtPredicted.setText(String.format(java.util.Locale.getDefault(),
                                         "Predicted: %s (%.1f%%)", res.label, res.confidence * 100f));
-                                askCorrectnessAndRecord(res, uri.toString());
+                                askCorrectnessAndRecord(res, uri.toString(), bmp, hash);
                             }
                         });
       } catch (Exception e) {
                         postToMain(() -> { showLoading(false); toast("Live confirm failed: " + e.getMessage()); });
+                    } finally {
+                        registry.release(c);
                     }
                 }
                 @Override public void onError(@NonNull ImageCaptureException ex) {
@@ -236,6 +281,127 @@ public class ScanFragment extends Fragment {
         }
     }
 
+    private void openMultiPicker() {
+        stopCameraIfRunning();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            pickMultipleLauncher.launch(new PickVisualMediaRequest.Builder()
+                    .setMediaType(ActivityResultContracts.PickVisualMedia.ImageOnly.INSTANCE)
+                    .build());
+        } else {
+            getMultipleContentsLauncher.launch("image/*");
+        }
+    }
+
+    private void startBulkImport(@NonNull java.util.List<Uri> uris) {
+        if (!isFragmentSafe()) return;
+        if (classifier == null || !classifier.isModelReady()) {
+            toast("Model not ready");
+            return;
+        }
+        if (bulkImporter != null) return; // one import at a time
+
+        BulkImporter importer = new BulkImporter(appContext);
+        bulkImporter = importer;
+        androidx.appcompat.app.AlertDialog progress = new com.google.android.material.dialog.MaterialAlertDialogBuilder(requireContext())
+                .setTitle(R.string.bulk_import)
+                .setMessage(getString(R.string.bulk_import_progress, 0, uris.size()))
+                .setCancelable(false)
+                .setNegativeButton(android.R.string.cancel, (d, w) -> importer.cancel())
+                .show();
+        showLoading(true);
+
+        importer.start(uris, new BulkImporter.Listener() {
+            @Override
+            public void onProgress(int done, int total) {
+                if (isAdded()) progress.setMessage(getString(R.string.bulk_import_progress, done, total));
+            }
+
+            @Override
+            public void onDone(@NonNull BulkImporter.Summary s) {
+                bulkImporter = null;
+                progress.dismiss();
+                if (!isFragmentSafe()) return;
+                showLoading(false);
+                StringBuilder msg = new StringBuilder(getString(R.string.bulk_import_summary,
+                        s.classified, s.failed, s.elapsedMs / 1000f));
+                for (java.util.Map.Entry<String, Integer> e : s.perLabel.entrySet()) {
+                    msg.append("\n• ").append(e.getKey()).append(": ").append(e.getValue());
+                }
+                if (s.duplicates > 0) msg.append("\n").append(getString(R.string.bulk_import_duplicates, s.duplicates));
+                new com.google.android.material.dialog.MaterialAlertDialogBuilder(requireContext())
+                        .setTitle(s.cancelled ? R.string.bulk_import_cancelled : R.string.bulk_import_done)
+                        .setMessage(msg.toString())
+                        .setPositiveButton(android.R.string.ok, null)
+                        .show();
+            }
+        });
+    }
+
+    private void toggleSession() {
+        if (!isFragmentSafe()) return;
+        if (session != null) {
+            endSession();
+            return;
+        }
+        if (classifier == null || !classifier.isModelReady()) {
+            toast("Model not ready");
+            return;
+        }
+        session = new SortingSession();
+        emaProbs = null;
+        binding.btnSession.setText(R.string.session_end);
+        // The analyzer drives capture, so bind it even if real-time results are off
+        if (cameraRunning) bindUseCases();
+        else onCameraButton();
+    }
+
+    // Analyzer thread. The frame is already decoded, so no second full-res capture.
+    private void captureSessionItem(SortingSession s, Bitmap frame, String label, float conf) {
+        String path = CaptureStorage.get(appContext).importAsync(frame).getAbsolutePath();
+        ThumbnailCache.get(appContext).storeAsync(path, frame);
+        SortingSession.Item item = s.add(label, conf, path, PerceptualHash.dHash(frame));
+        postToMain(() -> Snackbar.make(binding.getRoot(), getString(R.string.session_captured, label), Snackbar.LENGTH_SHORT)
+                .setAction(R.string.session_wrong, v -> s.setFeedback(item, false))
+                .show());
+    }
+
+    private void endSession() {
+        SortingSession s = session;
+        session = null;
+        if (s == null || !isFragmentSafe()) return;
+        binding.btnSession.setText(R.string.session_start);
+        binding.chipLiveResult.setVisibility(View.GONE);
+        if (cameraRunning) bindUseCases(); // drop the analyzer again if real-time is off
+        if (s.size() == 0) return;
+
+        long secs = s.elapsedMs() / 1000;
+        new com.google.android.material.dialog.MaterialAlertDialogBuilder(requireContext())
+                .setTitle(R.string.session_summary_title)
+                .setMessage(getString(R.string.session_summary, s.size(), (int) (secs / 60), (int) (secs % 60), s.itemsPerMinute()))
+                .setCancelable(false)
+                .setPositiveButton(R.string.session_save, (d, w) -> commitSession(s, false))
+                .setNeutralButton(R.string.session_save_all_correct, (d, w) -> commitSession(s, true))
+                .setNegativeButton(R.string.session_discard, (d, w) -> {
+                    java.util.List<String> paths = new java.util.ArrayList<>();
+                    for (SortingSession.Item it : s.items()) paths.add(it.imagePath);
+                    CaptureStorage.get(appContext).discardAsync(paths);
+                })
+                .show();
+    }
+
+    private void commitSession(SortingSession s, boolean restCorrect) {
+        inferenceExecutor.execute(() -> {
+            s.commit(appContext, restCorrect);
+            CaptureStorage.get(appContext).compactAsync();
+            postToMain(() -> {
+                if (gameManager.checkLevelUp()) {
+                    Snackbar.make(binding.getRoot(), "Level up! 🎉", Snackbar.LENGTH_SHORT).show();
+                }
+                showNewAchievements();
+            });
+        });
+    }
+
     private void onCameraButton() {
         if (cameraRunning) {
             // Take a photo
@@ -263,6 +429,7 @@ public class ScanFragment extends Fragment {
                 bindUseCases();
                 cameraRunning = true;
                 binding.cameraPreview.setVisibility(View.VISIBLE);
+                showPerfHud();
                 binding.noImageLayout.setVisibility(View.GONE);
                 binding.imagePreview.setVisibility(View.GONE);
                 binding.btnCapture.setText("Snap");
@@ -273,6 +440,15 @@ public class ScanFragment extends Fragment {
         }, ContextCompat.getMainExecutor(requireContext()));
     }
 
+    // Counters start over with each camera session
+    private void showPerfHud() {
+        frameStats.reset();
+        binding.txtPerfHud.removeCallbacks(hudRefresh);
+        boolean on = AppThemeManager.isPerfHudEnabled() && (AppThemeManager.isRealtimeEnabled() || session != null);
+        binding.txtPerfHud.setVisibility(on ? View.VISIBLE : View.GONE);
+        if (on) binding.txtPerfHud.postDelayed(hudRefresh, HUD_REFRESH_MS);
+    }
+
     private void bindUseCases() {
         if (!isFragmentSafe() || cameraProvider == null) return;
 
@@ -293,7 +469,7 @@ public class ScanFragment extends Fragment {
 
         preview.setSurfaceProvider(binding.cameraPreview.getSurfaceProvider());
 
-        if (AppThemeManager.isRealtimeEnabled()) {
+        if (AppThemeManager.isRealtimeEnabled() || session != null) {
             imageAnalysis = new androidx.camera.core.ImageAnalysis.Builder()
                     .setOutputImageFormat(androidx.camera.core.ImageAnalysis.OUTPUT_IMAGE_FORMAT_RGBA_8888)
                     .setBackpressureStrategy(androidx.camera.core.ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
@@ -301,50 +477,99 @@ public class ScanFragment extends Fragment {
                     .build();
 
             imageAnalysis.setAnalyzer(inferenceExecutor, image -> {
+                final long deliveredAt = System.nanoTime();
+                frameStats.onDelivered(image.getImageInfo().getTimestamp());
                 long now = System.currentTimeMillis();
-                if (now - lastAnalyzedTime < ANALYZE_INTERVAL_MS || !analyzing.compareAndSet(false, true)) {
+                long interval = session != null ? SESSION_ANALYZE_INTERVAL_MS : ANALYZE_INTERVAL_MS;
+                if (now - lastAnalyzedTime < interval) {
+                    frameStats.throttled.incrementAndGet();
+                    image.close();
+                    return;
+                }
+                if (!analyzing.compareAndSet(false, true)) {
                     image.close();
                     return;
                 }
                 lastAnalyzedTime = now;
 
+                ModelRegistry registry = ModelRegistry.get(appContext);
+                TFLiteClassifier c = null;
                 try {
-                    if (classifier == null || !classifier.isModelReady()) {
+                    // No model at all (failed to load): don't retry the load on every frame
+                    if (classifier == null) {
                         image.close();
                         return;
                     }
-                    Bitmap frame = toBitmapFromRgba8888(image);
+                    try {
+                        c = registry.acquire();
+                    } finally {
+                        if (c == null) image.close(); // load failed; the frame must still go back
+                    }
+                    if (!c.isModelReady()) {
+                        image.close();
+                        return;
+                    }
+                    InferenceStats.beginScan(liveStages);
+                    long t = InferenceStats.begin(InferenceStats.Stage.CONVERT);
+                    Bitmap frame;
+                    try {
+                        frame = toBitmapFromRgba8888(image);
+                    } finally {
+                        InferenceStats.end(InferenceStats.Stage.CONVERT, t);
+                    }
                     final int token = liveSeq.incrementAndGet();
                     
-                    // Get normalized probabilities
-                    float[] probs = classifier.inferProbs(frame);
+                    // Get normalized probabilities into the reused buffer
+                    int classes = c.getNumClasses();
+                    if (liveProbs == null || liveProbs.length != classes) liveProbs = new float[classes];
+                    float[] probs = liveProbs;
+                    long inferStart = System.nanoTime();
+                    if (AppThemeManager.isCascadeEnabled()) c.inferCascadeLive(frame, probs);
+                    else c.inferInto(frame, probs, true);
+                    frameStats.inference.record(System.nanoTime() - inferStart);
+                    frameStats.analyzed.incrementAndGet();
+                    PerfTelemetry.get(appContext).record(PerfTelemetry.KIND_LIVE, liveStages,
+                            System.nanoTime() - deliveredAt, c, frame.getWidth(), frame.getHeight());
                     if (emaProbs == null || emaProbs.length != probs.length) {
                         emaProbs = probs.clone();
                     } else {
-                        for (int i = 0; i < probs.length; i++) {
-                            emaProbs[i] = EMA_ALPHA * probs[i] + (1f - EMA_ALPHA) * emaProbs[i];
-                        }
+                        ScoreOps.ema(emaProbs, probs, EMA_ALPHA);
                     }
                     
                     // Top-1 from smoothed probs
-                    int best = 0; float max = -1f;
-                    for (int i = 0; i < emaProbs.length; i++) if (emaProbs[i] > max) { max = emaProbs[i]; best = i; }
-                    String bestLabel = classifier.getLabelAt(best);
-                    final float conf = max;
+                    int best = TFLiteClassifier.argmax(emaProbs);
+                    String bestLabel = c.getLabelAt(best);
+                    final float conf = emaProbs[best];
+
+                    SortingSession s = session;
+                    if (s != null && s.offer(best, conf, now)) {
+                        captureSessionItem(s, frame, bestLabel, conf);
+                    }
 
                     postToMain(() -> {
-                        if (!isFragmentSafe() || token != liveSeq.get()) return;
-                        if (conf >= LIVE_MIN_CONF) {
+                        if (!isFragmentSafe()) return;
+                        if (token != liveSeq.get()) {
+                            frameStats.staleDiscarded.incrementAndGet();
+                            return;
+                        }
+                        if (s != null) {
+                            binding.chipLiveResult.setText(getString(R.string.session_live,
+                                    conf >= LIVE_MIN_CONF ? bestLabel : "…", s.size(), s.itemsPerMinute()));
+                            binding.chipLiveResult.setVisibility(View.VISIBLE);
+                        } else if (conf >= LIVE_MIN_CONF) {
                             binding.chipLiveResult.setText(String.format(java.util.Locale.getDefault(),
                                     "%s • %.0f%%", bestLabel, conf * 100f));
                             binding.chipLiveResult.setVisibility(View.VISIBLE);
                         } else {
                             binding.chipLiveResult.setVisibility(View.GONE);
                         }
+                        frameStats.frameToChip.record(System.nanoTime() - deliveredAt);
                     });
                 } catch (Exception e) {
                     android.util.Log.e("Analyzer", "error", e);
                 } finally {
+                    InferenceStats.endScan();
+                    registry.release(c);
                     analyzing.set(false);
                 }
             });
@@ -361,6 +586,8 @@ public class ScanFragment extends Fragment {
         }
         cameraRunning = false;
         if (binding != null) {
+            binding.txtPerfHud.removeCallbacks(hudRefresh);
+            binding.txtPerfHud.setVisibility(View.GONE);
             binding.cameraPreview.setVisibility(View.GONE);
             binding.btnCapture.setText("Camera");
         }
@@ -371,8 +598,7 @@ public class ScanFragment extends Fragment {
 
         showLoading(true);
 
-        File photoFile = new File(requireContext().getCacheDir(),
-                "capture_" + System.currentTimeMillis() + ".jpg");
+        File photoFile = CaptureStorage.get(appContext).newCaptureFile("capture_");
 
         ImageCapture.OutputFileOptions opts =
                 new ImageCapture.OutputFileOptions.Builder(photoFile).build();
@@ -404,7 +630,14 @@ public class ScanFragment extends Fragment {
     private void handleImageUri(@NonNull Uri uri) {
         if (!isFragmentSafe()) return;
         try {
-            Bitmap bmp = decodeBitmap(requireContext().getContentResolver(), uri);
+            Bitmap bmp;
+            long t = InferenceStats.begin(InferenceStats.Stage.DECODE);
+            try {
+                bmp = decodeBitmap(requireContext().getContentResolver(), uri);
+            } finally {
+                InferenceStats.end(InferenceStats.Stage.DECODE, t);
+            }
+            long decodeNanos = System.nanoTime() - t;
             currentImageUri = uri;
             currentBitmap = bmp;
 
@@ -417,7 +650,7 @@ public class ScanFragment extends Fragment {
         showLoading(false);
 
         if (AppThemeManager.isAutoClassifyEnabled()) {
-            runClassification(bmp);
+            runClassification(bmp, decodeNanos);
         }
         } catch (Exception e) {
             showLoading(false);
@@ -425,8 +658,10 @@ public class ScanFragment extends Fragment {
         }
     }
 
-    private void runClassification(@NonNull Bitmap source) {
-        if (classifier == null || !classifier.isModelReady()) {
+    // decodeNanos: time spent decoding source for this scan, 0 if it wasn't
+    private void runClassification(@NonNull Bitmap source, long decodeNanos) {
+        TFLiteClassifier pinned = classifier;
+        if (pinned == null || !pinned.isModelReady()) {
             toast("Model not ready");
       return;
     }
@@ -435,19 +670,36 @@ public class ScanFragment extends Fragment {
         showLoading(true);
 
         inferenceExecutor.execute(() -> {
+            ModelRegistry registry = ModelRegistry.get(appContext);
+            TFLiteClassifier c = null;
             try {
-                long startTime = System.currentTimeMillis();
+                c = registry.acquire(); // one model for inference and labels, even if the variant changes meanwhile
+                long startTime = System.nanoTime();
+                long[] stages = new long[InferenceStats.Stage.values().length];
                 
-                // Multi-crop averaging for robust classification
-                float[] avg = averageProbs(source);
+                // Multi-crop averaging for robust classification, or a cached result
+                float[] avg;
+                long hash;
+                InferenceStats.beginScan(stages);
+                try {
+                    hash = PerceptualHash.dHash(source);
+                    avg = probsFor(c, source, hash);
+                } finally {
+                    InferenceStats.endScan();
+                }
+                stages[InferenceStats.Stage.DECODE.ordinal()] = decodeNanos;
+                // Decode happened before this task; count it so the total covers every stage
+                PerfTelemetry.get(appContext).record(PerfTelemetry.KIND_PHOTO, stages,
+                        System.nanoTime() - startTime + decodeNanos, c, source.getWidth(), source.getHeight());
                 int best = 0; float max = -1f;
                 for (int i = 0; i < avg.length; i++) if (avg[i] > max) { max = avg[i]; best = i; }
-                final String label = classifier.getLabelAt(best);
+                final String label = c.getLabelAt(best);
                 final float conf = max;
                 final int bestIndex = best;
                 
-                long inferenceTime = System.currentTimeMillis() - startTime;
-                android.util.Log.d("ScanFragment", "Multi-crop inference completed in " + inferenceTime + "ms");
+                long inferenceTime = (System.nanoTime() - startTime) / 1_000_000;
+                android.util.Log.d("ScanFragment", "Multi-crop inference completed in " + inferenceTime + "ms; invoke "
+                        + InferenceStats.histogram(InferenceStats.Stage.INVOKE).summary());
 
                 if (!isFragmentSafe() || binding == null) return;
 
@@ -475,7 +727,7 @@ public class ScanFragment extends Fragment {
                     // Ask user for correctness feedback and record
                     String imagePath = currentImageUri != null ? currentImageUri.toString() : "";
                     TFLiteClassifier.Result result = new TFLiteClassifier.Result(label, conf, bestIndex);
-                    askCorrectnessAndRecord(result, imagePath);
+                    askCorrectnessAndRecord(result, imagePath, source, hash);
                 });
       } catch (Exception e) {
                 if (!isFragmentSafe()) return;
@@ -484,10 +736,30 @@ public class ScanFragment extends Fragment {
                     showLoading(false);
                     toast("Classification failed: " + e.getMessage());
                 });
+            } finally {
+                registry.release(c);
             }
         });
     }
 
+    // Load the new variant off the main thread, then swap; inferences already running finish on the old one
+    private void onModelChanged(@NonNull ModelRegistry.Spec spec) {
+        if (inferenceExecutor == null || inferenceExecutor.isShutdown()) return;
+        inferenceExecutor.execute(() -> {
+            TFLiteClassifier next;
+            try {
+                next = ModelRegistry.get(appContext).acquire(spec.id);
+            } catch (IOException e) {
+                postToMain(() -> toast("Failed to load " + spec.title));
+                return;
+            }
+            TFLiteClassifier old = classifier;
+            classifier = next;
+            emaProbs = null;
+            ModelRegistry.get(appContext).release(old);
+        });
+    }
+
     private void showLoading(boolean loading) {
         if (binding == null) return;
         binding.progressIndicator.setVisibility(loading ? View.VISIBLE : View.GONE);
@@ -496,30 +768,16 @@ public class ScanFragment extends Fragment {
         binding.btnPredict.setEnabled(!loading && currentBitmap != null);
     }
 
-    private float[] averageProbs(Bitmap src) {
-        // 3 crops: center (80%), left (80%), right (80%). You can add top/bottom too.
-        float[][] probs = new float[3][];
-        probs[0] = classifier.inferProbs(cropFraction(src, 0.10f, 0.10f, 0.90f, 0.90f)); // centered
-        probs[1] = classifier.inferProbs(cropFraction(src, 0.00f, 0.10f, 0.80f, 0.90f)); // left
-        probs[2] = classifier.inferProbs(cropFraction(src, 0.20f, 0.10f, 1.00f, 0.90f)); // right
-        int n = probs[0].length;
-        float[] avg = new float[n];
-        for (int i = 0; i < n; i++) {
-            float s = 0f; for (float[] p : probs) s += p[i];
-            avg[i] = s / probs.length;
+    // Same or near-identical image seen before with this model: reuse its probabilities
+    private float[] probsFor(@NonNull TFLiteClassifier classifier, Bitmap src, long hash) {
+        ResultCache cache = ResultCache.get(appContext);
+        float[] probs = cache.lookup(hash);
+        if (probs == null) {
+            // Cascade: one pass, multi-crop only when that pass is unsure
+            probs = AppThemeManager.isCascadeEnabled() ? classifier.inferCascade(src, false) : classifier.inferProbsTta(src);
+            cache.put(hash, probs);
         }
-        return avg;
-    }
-
-    private Bitmap cropFraction(Bitmap src, float left, float top, float right, float bottom) {
-        int w = src.getWidth(), h = src.getHeight();
-        int x = Math.round(left * w);
-        int y = Math.round(top * h);
-        int cw = Math.round((right - left) * w);
-        int ch = Math.round((bottom - top) * h);
-        cw = Math.max(1, Math.min(cw, w - x));
-        ch = Math.max(1, Math.min(ch, h - y));
-        return Bitmap.createBitmap(src, x, y, cw, ch);
+        return probs;
     }
 
     private static Bitmap decodeBitmap(ContentResolver resolver, Uri uri) throws IOException {
@@ -688,32 +946,61 @@ public class ScanFragment extends Fragment {
                 .setDuration(180).start();
     }
 
-    private void askCorrectnessAndRecord(@NonNull TFLiteClassifier.Result result, @Nullable String imagePathOrUri) {
+    // imageHash: PerceptualHash.dHash of source, computed off the main thread with the classification
+    private void askCorrectnessAndRecord(@NonNull TFLiteClassifier.Result result, @Nullable String imagePathOrUri,
+                                         @Nullable Bitmap source, long imageHash) {
         if (!isFragmentSafe()) return;
 
+        // Picker URIs lose their grant later; keep a durable copy and record that instead
+        if (source != null && imagePathOrUri != null && imagePathOrUri.startsWith("content:")) {
+            imagePathOrUri = CaptureStorage.get(appContext).importAsync(source).getAbsolutePath();
+        }
+        final String recordedPath = imagePathOrUri;
+
         new com.google.android.material.dialog.MaterialAlertDialogBuilder(requireContext())
             .setTitle("Was this correct?")
             .setMessage(String.format(java.util.Locale.getDefault(),
                     "%s • %.1f%%", result.label, result.confidence * 100f))
-            .setPositiveButton("Yes", (d, w) -> {
-                gameManager.recordPrediction(true);
-                gameManager.addScanHistory(imagePathOrUri != null ? imagePathOrUri : "", result.label, result.confidence, System.currentTimeMillis(), true);
-                if (gameManager.checkLevelUp()) {
-                    com.google.android.material.snackbar.Snackbar
-                        .make(binding.getRoot(), "Level up! 🎉", com.google.android.material.snackbar.Snackbar.LENGTH_SHORT)
-                        .show();
-                }
-            })
-            .setNegativeButton("No", (d, w) -> {
-                gameManager.recordPrediction(false);
-                gameManager.addScanHistory(imagePathOrUri != null ? imagePathOrUri : "", result.label, result.confidence, System.currentTimeMillis(), false);
-            })
+            .setPositiveButton("Yes", (d, w) -> recordFeedback(result, recordedPath, source, imageHash, true))
+            .setNegativeButton("No", (d, w) -> recordFeedback(result, recordedPath, source, imageHash, false))
             .show();
     }
 
+    // Insert and score off the main thread; announce the outcome when it's back
+    private void recordFeedback(@NonNull TFLiteClassifier.Result result, @Nullable String recordedPath,
+                                @Nullable Bitmap source, @Nullable Long imageHash, boolean correct) {
+        ThumbnailCache.get(appContext).storeAsync(recordedPath, source);
+        gameManager.recordScanAsync(recordedPath != null ? recordedPath : "", result.label, result.confidence,
+                System.currentTimeMillis(), correct, imageHash, (row, levelUp, unlocked) -> {
+                    CaptureStorage.get(appContext).compactAsync();
+                    if (!isFragmentSafe()) return;
+                    if (row.duplicateOf != 0) {
+                        if (correct) toast(getString(R.string.scan_duplicate));
+                        return;
+                    }
+                    if (levelUp) Snackbar.make(binding.getRoot(), "Level up! 🎉", Snackbar.LENGTH_SHORT).show();
+                    showAchievements(unlocked);
+                });
+    }
+
+    private void showNewAchievements() {
+        showAchievements(gameManager.consumeNewAchievements());
+    }
+
+    private void showAchievements(@NonNull java.util.List<GameManager.Achievement> unlocked) {
+        if (!isFragmentSafe()) return;
+        for (GameManager.Achievement a : unlocked) {
+            Snackbar.make(binding.getRoot(), "Achievement unlocked: " + a.title + " 🏆", Snackbar.LENGTH_LONG).show();
+        }
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        // Leaving mid-session keeps the captures, without feedback
+        SortingSession s = session;
+        session = null;
+        if (s != null && s.size() > 0) inferenceExecutor.execute(() -> s.commit(appContext, false));
         stopCameraIfRunning();
         binding = null;
     }
@@ -721,9 +1008,13 @@ public class ScanFragment extends Fragment {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (classifier != null) classifier.close();
+        if (bulkImporter != null) bulkImporter.cancel();
+        ModelRegistry.get(appContext).removeListener(modelListener);
+        ModelRegistry.get(appContext).release(classifier);
+        classifier = null;
         if (cameraExecutor != null) cameraExecutor.shutdown();
         if (inferenceExecutor != null) inferenceExecutor.shutdown();
+        if (appContext != null) ResultCache.get(appContext).saveAsync();
     }
 
     private Bitmap toBitmapFromRgba8888(androidx.camera.core.ImageProxy image) {
@@ -736,20 +1027,8 @@ public class ScanFragment extends Fragment {
         int rowStride = plane.getRowStride();
         int pixelStride = plane.getPixelStride(); // should be 4 (R,G,B,A in order)
 
-        buf.rewind();
         int[] pixels = new int[w * h];
-        byte[] row = new byte[rowStride];
-        for (int y = 0; y < h; y++) {
-            buf.get(row, 0, rowStride);
-            for (int x = 0; x < w; x++) {
-                int o = x * pixelStride; // RGBA order
-                int r = row[o] & 0xFF;
-                int g = row[o + 1] & 0xFF;
-                int b = row[o + 2] & 0xFF;
-                int a = row[o + 3] & 0xFF;
-                pixels[y * w + x] = (a << 24) | (r << 16) | (g << 8) | b; // ARGB int
-            }
-        }
+        PixelOps.rgbaToArgb(buf, w, h, rowStride, pixelStride, new byte[rowStride], pixels);
         image.close();
 
         Bitmap bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
@@ -766,9 +1045,6 @@ public class ScanFragment extends Fragment {
     private Bitmap yuvToRgbCenterCropped(@NonNull androidx.camera.core.ImageProxy image, int outSize) {
         int width = image.getWidth();
         int height = image.getHeight();
-        int crop = Math.min(width, height);
-        int startX = (width - crop) / 2;
-        int startY = (height - crop) / 2;
 
         // Read planes
         androidx.camera.core.ImageProxy.PlaneProxy[] planes = image.getPlanes();
@@ -785,33 +1061,9 @@ public class ScanFragment extends Fragment {
         int vRowStride = planes[2].getRowStride();
         int vPixelStride = planes[2].getPixelStride();
 
-        yBuf.rewind(); uBuf.rewind(); vBuf.rewind();
-
         int[] out = new int[outSize * outSize];
-
-        // Map each output pixel to a source pixel in the center-cropped square (nearest neighbor)
-        for (int oy = 0; oy < outSize; oy++) {
-            int sy = startY + (oy * crop) / outSize;
-            int uvY = sy / 2;
-
-            for (int ox = 0; ox < outSize; ox++) {
-                int sx = startX + (ox * crop) / outSize;
-
-                int yIndex = sy * yRowStride + sx * yPixelStride;
-                int yVal = yBuf.get(yIndex) & 0xFF;
-
-                int uvX = sx / 2;
-
-                int uIndex = uvY * uRowStride + uvX * uPixelStride;
-                int vIndex = uvY * vRowStride + uvX * vPixelStride;
-
-                int uVal = uBuf.get(uIndex) & 0xFF;
-                int vVal = vBuf.get(vIndex) & 0xFF;
-
-                int color = yuvToArgb(yVal, uVal, vVal);
-                out[oy * outSize + ox] = color;
-            }
-        }
+        PixelOps.yuv420CenterCrop(yBuf, yRowStride, yPixelStride, uBuf, uRowStride, uPixelStride,
+                vBuf, vRowStride, vPixelStride, width, height, outSize, out);
 
         image.close();
 
@@ -827,22 +1079,4 @@ public class ScanFragment extends Fragment {
         }
         return bmp;
     }
-
-    private static int yuvToArgb(int y, int u, int v) {
-        // BT.601 full range
-        float yf = (float) y;
-        float uf = (float) (u - 128);
-        float vf = (float) (v - 128);
-
-        int r = clamp((int) (yf + 1.402f * vf));
-        int g = clamp((int) (yf - 0.344136f * uf - 0.714136f * vf));
-        int b = clamp((int) (yf + 1.772f * uf));
-        return 0xFF000000 | (r << 16) | (g << 8) | b;
-    }
-
-    private static int clamp(int v) {
-        if (v < 0) return 0;
-        if (v > 255) return 255;
-        return v;
-  }
-}
\ No newline at end of file
+}
@@ -15,22 +15,52 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 public class SettingsFragment extends PreferenceFragmentCompat {
 
+    // Performance export as CSV or JSON
+    private final androidx.activity.result.ActivityResultLauncher<String> exportCsv = registerForActivityResult(
+            new androidx.activity.result.contract.ActivityResultContracts.CreateDocument("text/csv"),
+            uri -> exportPerf(uri, false));
+    private final androidx.activity.result.ActivityResultLauncher<String> exportJson = registerForActivityResult(
+            new androidx.activity.result.contract.ActivityResultContracts.CreateDocument("application/json"),
+            uri -> exportPerf(uri, true));
+
     @Override
     public void onCreatePreferences(@Nullable Bundle savedInstanceState, @Nullable String rootKey) {
         setPreferencesFromResource(R.xml.prefs_settings, rootKey);
 
-        // Username
+        // Username (of the active profile)
+        Profiles profiles = Profiles.get(requireContext());
         EditTextPreference usernamePref = findPreference("pref_username");
         if (usernamePref != null) {
-            usernamePref.setText(AppThemeManager.getUsername());
-            usernamePref.setSummaryProvider(preference -> AppThemeManager.getUsername());
+            usernamePref.setText(profiles.activeName());
+            usernamePref.setSummaryProvider(preference -> profiles.activeName());
             usernamePref.setOnPreferenceChangeListener((pref, newValue) -> {
                 String name = String.valueOf(newValue);
-                AppThemeManager.setUsername(name);
+                profiles.rename(profiles.activeId(), name);
+                requireActivity().invalidateOptionsMenu();
+                return true;
+            });
+        }
+
+        // Kiosk mode
+        SwitchPreferenceCompat kioskPref = findPreference("pref_kiosk_mode");
+        if (kioskPref != null) {
+            kioskPref.setChecked(profiles.isKioskMode());
+            kioskPref.setOnPreferenceChangeListener((p, v) -> {
+                profiles.setKioskMode((Boolean) v);
                 requireActivity().invalidateOptionsMenu();
                 return true;
             });
         }
+        Preference switchPref = findPreference("pref_switch_profile");
+        if (switchPref != null) {
+            switchPref.setSummaryProvider(preference -> profiles.activeName());
+            switchPref.setOnPreferenceClickListener(p -> {
+                if (requireActivity() instanceof MainAppActivity) {
+                    ((MainAppActivity) requireActivity()).showProfileSwitcher();
+                }
+                return true;
+            });
+        }
 
         // Theme mode
         ListPreference themePref = findPreference("pref_theme");
@@ -76,6 +106,103 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             });
         }
 
+        // Cascade
+        SwitchPreferenceCompat cascade = findPreference("pref_cascade");
+        if (cascade != null) {
+            cascade.setChecked(AppThemeManager.isCascadeEnabled());
+            cascade.setOnPreferenceChangeListener((p, v) -> {
+                AppThemeManager.setCascadeEnabled((Boolean) v);
+                return true;
+            });
+        }
+
+        // Performance overlay
+        SwitchPreferenceCompat perfHud = findPreference("pref_perf_hud");
+        if (perfHud != null) {
+            perfHud.setChecked(AppThemeManager.isPerfHudEnabled());
+            perfHud.setOnPreferenceChangeListener((p, v) -> {
+                AppThemeManager.setPerfHudEnabled((Boolean) v);
+                return true;
+            });
+        }
+
+        // Model variant; entries come from the registry, so only packaged models are offered
+        ListPreference modelPref = findPreference("pref_model_variant");
+        if (modelPref != null) {
+            ModelRegistry registry = ModelRegistry.get(requireContext());
+            java.util.List<ModelRegistry.Spec> specs = registry.specs();
+            CharSequence[] titles = new CharSequence[specs.size()];
+            CharSequence[] ids = new CharSequence[specs.size()];
+            for (int i = 0; i < specs.size(); i++) {
+                titles[i] = specs.get(i).title;
+                ids[i] = specs.get(i).id;
+            }
+            modelPref.setEntries(titles);
+            modelPref.setEntryValues(ids);
+            modelPref.setValue(registry.active().id);
+            modelPref.setEnabled(specs.size() > 1);
+            modelPref.setOnPreferenceChangeListener((p, v) -> {
+                registry.chooseActive(String.valueOf(v));
+                // A variant of another model family re-runs history in the background; speed variants don't
+                Reclassifier.get(requireContext()).startIfNeeded();
+                return true;
+            });
+        }
+
+        // Model updates
+        Preference updatePref = findPreference("pref_model_update");
+        Preference rollbackPref = findPreference("pref_model_rollback");
+        ModelUpdater updater = ModelUpdater.get(requireContext());
+        if (updatePref != null) {
+            updatePref.setSummaryProvider(p -> updater.installedVersion() != null
+                    ? getString(R.string.model_update_installed, updater.installedVersion())
+                    : getString(R.string.model_update_summary));
+            updatePref.setOnPreferenceClickListener(p -> {
+                updatePref.setEnabled(false);
+                updater.checkAsync((outcome, version) -> {
+                    if (!isAdded()) return;
+                    updatePref.setEnabled(true);
+                    if (rollbackPref != null) rollbackPref.setEnabled(updater.installedVersion() != null);
+                    int msg = outcome == ModelUpdater.Outcome.INSTALLED ? R.string.model_update_done
+                            : outcome == ModelUpdater.Outcome.FAILED ? R.string.model_update_failed
+                            : outcome == ModelUpdater.Outcome.NO_SOURCE ? R.string.model_update_no_source
+                            : R.string.model_update_current;
+                    android.widget.Toast.makeText(requireContext(), getString(msg, version), android.widget.Toast.LENGTH_SHORT).show();
+                    // Refresh the summary
+                    updatePref.setSummaryProvider(updatePref.getSummaryProvider());
+                });
+                return true;
+            });
+        }
+        if (rollbackPref != null) {
+            rollbackPref.setEnabled(updater.installedVersion() != null);
+            rollbackPref.setOnPreferenceClickListener(p -> {
+                updater.rollbackAsync();
+                rollbackPref.setEnabled(false);
+                android.widget.Toast.makeText(requireContext(), R.string.model_rollback_done, android.widget.Toast.LENGTH_SHORT).show();
+                return true;
+            });
+        }
+
+        // Performance export
+        Preference exportPref = findPreference("pref_perf_export");
+        if (exportPref != null) {
+            exportPref.setSummaryProvider(p -> getString(R.string.pref_perf_export_summary,
+                    PerfTelemetry.get(requireContext()).size()));
+            exportPref.setOnPreferenceClickListener(p -> {
+                String name = "wastewizard-perf-" + new java.text.SimpleDateFormat("yyyyMMdd-HHmm",
+                        java.util.Locale.US).format(new java.util.Date());
+                new MaterialAlertDialogBuilder(requireContext())
+                    .setTitle(R.string.pref_perf_export_title)
+                    .setItems(new CharSequence[]{ "CSV", "JSON" }, (d, which) -> {
+                        if (which == 0) exportCsv.launch(name + ".csv");
+                        else exportJson.launch(name + ".json");
+                    })
+                    .show();
+                return true;
+            });
+        }
+
         // Clear history
         Preference clearHistoryPref = findPreference("pref_clear_history");
         if (clearHistoryPref != null) {
@@ -94,6 +221,23 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             });
         }
 
+        // Progress for the background file purge that follows a clear
+        if (clearHistoryPref != null) {
+            HistoryPurge.get(requireContext()).setListener(new HistoryPurge.Listener() {
+                @Override
+                public void onProgress(int deleted, int total) {
+                    if (!isAdded()) return;
+                    clearHistoryPref.setSummary(getString(R.string.clear_history_progress, deleted, total));
+                }
+
+                @Override
+                public void onDone(int deleted) {
+                    if (!isAdded()) return;
+                    clearHistoryPref.setSummary(R.string.clear_history_summary);
+                }
+            });
+        }
+
         // About
         Preference aboutPref = findPreference("pref_about");
         if (aboutPref != null) {
@@ -109,6 +253,22 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         }
     }
 
+    private void exportPerf(@Nullable android.net.Uri uri, boolean json) {
+        if (uri == null) return; // picker cancelled
+        PerfTelemetry.get(requireContext()).exportAsync(uri, json, (records, error) -> {
+            if (!isAdded()) return;
+            android.widget.Toast.makeText(requireContext(), error == null
+                    ? getString(R.string.perf_export_done, records) : getString(R.string.perf_export_failed),
+                    android.widget.Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        HistoryPurge.get(requireContext()).setListener(null);
+    }
+
     @Override
     public void onViewCreated(@NonNull android.view.View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
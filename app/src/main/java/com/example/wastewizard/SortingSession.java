@@ -0,0 +1,134 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands-free sorting: the live analyzer feeds smoothed top-1 predictions into
+ * {@link #offer}, which says when to auto-capture. An item is captured once its
+ * label has been stable and confident for a few frames; the next capture waits
+ * until the view changes (confidence drops or the label switches), so one item
+ * on the belt is not captured twice.
+ *
+ * Captured items only queue up here. History rows and ledger events are written
+ * together when the session is committed.
+ */
+public class SortingSession {
+
+    static final int STABLE_FRAMES = 3;
+    static final float CAPTURE_MIN_CONF = 0.75f;
+    static final float REARM_MAX_CONF = 0.5f; // item left the frame
+    static final long COOLDOWN_MS = 1200;
+
+    public static class Item {
+        public final String label;
+        public final float confidence;
+        public final String imagePath;
+        public final long timestamp;
+        public final long imageHash;
+        @Nullable public Boolean correct; // null = no feedback
+
+        Item(String label, float confidence, String imagePath, long timestamp, long imageHash) {
+            this.label = label;
+            this.confidence = confidence;
+            this.imagePath = imagePath;
+            this.timestamp = timestamp;
+            this.imageHash = imageHash;
+        }
+    }
+
+    private final long startedAt = System.currentTimeMillis();
+    private final List<Item> items = new ArrayList<>(); // guarded by this
+
+    // Stability detector state; only touched from the analyzer thread
+    private int candidate = -1;
+    private int stableCount;
+    private boolean armed = true;
+    private int lastCaptured = -1;
+    private long lastCaptureMs;
+
+    /** Feed one smoothed prediction; true means capture this frame now. */
+    public boolean offer(int labelIndex, float confidence, long nowMs) {
+        if (labelIndex == candidate) {
+            stableCount++;
+        } else {
+            candidate = labelIndex;
+            stableCount = 1;
+        }
+        if (!armed && (confidence < REARM_MAX_CONF || labelIndex != lastCaptured)) armed = true;
+        if (!armed || stableCount < STABLE_FRAMES || confidence < CAPTURE_MIN_CONF) return false;
+        if (nowMs - lastCaptureMs < COOLDOWN_MS) return false;
+        armed = false;
+        lastCaptured = labelIndex;
+        lastCaptureMs = nowMs;
+        return true;
+    }
+
+    @NonNull
+    public synchronized Item add(@NonNull String label, float confidence, @NonNull String imagePath, long imageHash) {
+        Item item = new Item(label, confidence, imagePath, System.currentTimeMillis(), imageHash);
+        items.add(item);
+        return item;
+    }
+
+    public synchronized void setFeedback(@NonNull Item item, @Nullable Boolean correct) {
+        item.correct = correct;
+    }
+
+    @NonNull
+    public synchronized List<Item> items() {
+        return new ArrayList<>(items);
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    public long elapsedMs() {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    public double itemsPerMinute() {
+        long ms = Math.max(1, elapsedMs());
+        return size() * 60_000.0 / ms;
+    }
+
+    /**
+     * Write the session to the active profile: one history transaction and one
+     * ledger batch. Items with feedback become predictions (points, streaks);
+     * unreviewed ones are stored like bulk imports, or counted as correct when
+     * restCorrect is set. Items that repeat an earlier scan (same item captured
+     * twice) stay in history marked as duplicates but earn no points.
+     * Blocking; call off the main thread.
+     */
+    public void commit(@NonNull Context context, boolean restCorrect) {
+        List<Item> snapshot = items();
+        if (snapshot.isEmpty()) return;
+        String profileId = Profiles.get(context).activeId();
+        List<GameManager.ScanHistory> rows = new ArrayList<>(snapshot.size());
+        for (Item it : snapshot) {
+            Boolean correct = it.correct != null ? it.correct : (restCorrect ? Boolean.TRUE : null);
+            GameManager.ScanHistory row = new GameManager.ScanHistory(it.imagePath, it.label, it.confidence, it.timestamp, correct);
+            row.imageHash = it.imageHash;
+            rows.add(row);
+        }
+        HistoryStore.get(context).insertAll(profileId, rows);
+        List<Long> outcomes = new ArrayList<>();
+        int duplicates = 0;
+        for (GameManager.ScanHistory row : rows) {
+            if (row.duplicateOf != 0) duplicates++;
+            else if (row.isCorrect != null) outcomes.add(row.isCorrect ? 1L : 0L);
+        }
+        long[] values = new long[outcomes.size()];
+        for (int i = 0; i < values.length; i++) values[i] = outcomes.get(i);
+        GameLedger.get(context).appendBatch(profileId, GameState.EVENT_PREDICTION, values);
+        android.util.Log.d("SortingSession", snapshot.size() + " items, " + values.length + " scored, "
+                + duplicates + " duplicates, "
+                + String.format(java.util.Locale.US, "%.1f", itemsPerMinute()) + "/min");
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Offline-first score and scan sync.
+ *
+ * The ledger and history tables are already append-only logs, so the outbox is
+ * just two watermarks: the last uploaded event seq and the last uploaded scan id.
+ * A sync uploads what lies past them in gzip batches, then pulls leaderboard
+ * changes since the last server version (304 if the ETag still matches). Work is
+ * proportional to what changed, never to total history.
+ *
+ * Changes are debounced so a burst of scans becomes one upload; failures retry
+ * with capped, jittered exponential backoff. Nothing runs until a
+ * {@link SyncTransport} is set.
+ */
+public class SyncManager implements GameLedger.StateListener {
+
+    private static final String TAG = "SyncManager";
+    private static final String PREFS_NAME = "WasteWizardSync";
+    private static final String KEY_DEVICE_ID = "device_id";
+    private static final String KEY_EVENTS_SENT = "events_sent"; // highest uploaded ledger seq
+    private static final String KEY_SCANS_SENT = "scans_sent";   // highest uploaded history id
+    private static final String KEY_LB_VERSION = "leaderboard_version";
+    private static final String KEY_LB_ETAG = "leaderboard_etag";
+
+    private static final int BATCH_SIZE = 200;
+    private static final long DEBOUNCE_MS = 30_000;
+    private static final long BACKOFF_BASE_MS = 30_000;
+    private static final long BACKOFF_MAX_MS = 60 * 60_000;
+
+    private static SyncManager instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+    private final String deviceId;
+
+    // Guarded by this
+    @Nullable private SyncTransport transport;
+    @Nullable private ScheduledFuture<?> pending;
+    private int failures;
+
+    public static synchronized SyncManager get(@NonNull Context context) {
+        if (instance == null) {
+            instance = new SyncManager(context.getApplicationContext());
+            GameLedger.get(context).addStateListener(instance);
+        }
+        return instance;
+    }
+
+    private SyncManager(Context appContext) {
+        this.appContext = appContext;
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String id = prefs.getString(KEY_DEVICE_ID, null);
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+            prefs.edit().putString(KEY_DEVICE_ID, id).apply();
+        }
+        this.deviceId = id;
+    }
+
+    /** Set or replace the transport; null disables sync. Kicks off a sync if set. */
+    public void setTransport(@Nullable SyncTransport transport) {
+        synchronized (this) {
+            this.transport = transport;
+            failures = 0;
+        }
+        if (transport != null) syncNow();
+    }
+
+    /** Sync soon, coalescing with other requests in the debounce window. */
+    public synchronized void requestSync() {
+        if (transport == null || pending != null) return;
+        schedule(DEBOUNCE_MS);
+    }
+
+    /** Sync as soon as possible, e.g. when the leaderboard opens. */
+    public synchronized void syncNow() {
+        if (transport == null) return;
+        if (pending != null) {
+            if (pending.getDelay(TimeUnit.MILLISECONDS) <= 0) return;
+            // Respect an ongoing backoff; only pull a debounced upload forward
+            if (failures > 0) return;
+            pending.cancel(false);
+        }
+        schedule(0);
+    }
+
+    // Called under the ledger lock; just schedules
+    @Override
+    public void onStateChanged(@NonNull String profileId, @NonNull GameState before, @NonNull GameState after) {
+        requestSync();
+    }
+
+    // Caller holds the lock
+    private void schedule(long delayMs) {
+        pending = worker.schedule(this::run, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        SyncTransport t;
+        synchronized (this) {
+            pending = null;
+            t = transport;
+        }
+        if (t == null) return;
+        try {
+            if (!isOnline()) throw new IOException("offline");
+            syncOnce(t);
+            synchronized (this) {
+                failures = 0;
+            }
+        } catch (IOException | JSONException | RuntimeException e) {
+            synchronized (this) {
+                failures++;
+                long delay = backoffMs(failures);
+                android.util.Log.w(TAG, "sync failed (" + e.getMessage() + "), retry " + failures + " in " + delay / 1000 + "s");
+                if (pending == null && transport != null) schedule(delay);
+            }
+        }
+    }
+
+    private void syncOnce(SyncTransport t) throws IOException, JSONException {
+        GameLedger ledger = GameLedger.get(appContext);
+        HistoryStore history = HistoryStore.get(appContext);
+        int uploaded = 0;
+        while (true) {
+            long eventsSent = prefs.getLong(KEY_EVENTS_SENT, 0);
+            long scansSent = prefs.getLong(KEY_SCANS_SENT, 0);
+            List<GameLedger.Event> events = ledger.eventsAfter(eventsSent, BATCH_SIZE);
+            List<GameManager.ScanHistory> scans = history.scansAfter(scansSent, BATCH_SIZE);
+            if (events.isEmpty() && scans.isEmpty()) break;
+
+            byte[] body = gzip(buildBatch(ledger, events, scans));
+            SyncTransport.Response r = t.upload(body);
+            if (!r.isSuccessful()) throw new IOException("upload HTTP " + r.code);
+
+            // Advance only after the server acknowledged the batch
+            SharedPreferences.Editor edit = prefs.edit();
+            if (!events.isEmpty()) edit.putLong(KEY_EVENTS_SENT, events.get(events.size() - 1).seq);
+            if (!scans.isEmpty()) edit.putLong(KEY_SCANS_SENT, scans.get(scans.size() - 1).id);
+            edit.apply();
+            uploaded += events.size() + scans.size();
+            if (events.size() < BATCH_SIZE && scans.size() < BATCH_SIZE) break;
+        }
+        int merged = pullLeaderboard(t);
+        android.util.Log.d(TAG, "synced: uploaded " + uploaded + ", merged " + merged);
+    }
+
+    private JSONObject buildBatch(GameLedger ledger, List<GameLedger.Event> events,
+                                  List<GameManager.ScanHistory> scans) throws JSONException {
+        Profiles profiles = Profiles.get(appContext);
+        Set<String> touched = new LinkedHashSet<>();
+        JSONArray ev = new JSONArray();
+        for (GameLedger.Event e : events) {
+            touched.add(e.profileId);
+            JSONObject o = new JSONObject()
+                    .put("seq", e.seq)
+                    .put("profile", e.profileId)
+                    .put("type", e.type)
+                    .put("ts", e.ts)
+                    .put("value", e.value);
+            if (e.payload != null) o.put("payload", e.payload);
+            ev.put(o);
+        }
+        JSONArray sc = new JSONArray();
+        for (GameManager.ScanHistory s : scans) {
+            touched.add(s.profileId);
+            // Labels and outcomes only; images never leave the device
+            JSONObject o = new JSONObject()
+                    .put("id", s.id)
+                    .put("profile", s.profileId)
+                    .put("label", s.predictedLabel)
+                    .put("confidence", s.confidence)
+                    .put("model", s.modelVersion)
+                    .put("ts", s.timestamp);
+            if (s.isCorrect != null) o.put("correct", s.isCorrect);
+            if (s.duplicateOf != 0) o.put("duplicate_of", s.duplicateOf);
+            sc.put(o);
+        }
+        // Current totals for the profiles in this batch, so the server needn't fold events
+        JSONArray pr = new JSONArray();
+        for (String id : touched) {
+            GameState state = ledger.state(id);
+            pr.put(new JSONObject()
+                    .put("id", id)
+                    .put("name", profiles.nameOf(id))
+                    .put("points", state.points)
+                    .put("level", state.level));
+        }
+        return new JSONObject()
+                .put("device", deviceId)
+                .put("rules", GameState.RULES_VERSION)
+                .put("events", ev)
+                .put("scans", sc)
+                .put("profiles", pr);
+    }
+
+    // Merge leaderboard entries changed since our last version; returns how many
+    private int pullLeaderboard(SyncTransport t) throws IOException, JSONException {
+        long since = prefs.getLong(KEY_LB_VERSION, 0);
+        SyncTransport.Response r = t.fetchLeaderboard(since, prefs.getString(KEY_LB_ETAG, null));
+        if (r.code == 304) return 0;
+        if (!r.isSuccessful() || r.body == null) throw new IOException("leaderboard HTTP " + r.code);
+
+        JSONObject delta = new JSONObject(new String(r.body, StandardCharsets.UTF_8));
+        Leaderboard board = Leaderboard.get(appContext);
+        String own = deviceId + "/"; // our profiles are already on the board under local ids
+        int merged = 0;
+        JSONArray changed = delta.optJSONArray("profiles");
+        for (int i = 0; changed != null && i < changed.length(); i++) {
+            JSONObject p = changed.getJSONObject(i);
+            String id = p.getString("id");
+            if (id.startsWith(own)) continue;
+            board.update(id, p.optString("name", id), p.optInt("points"), p.optInt("level", 1));
+            merged++;
+        }
+        JSONArray removed = delta.optJSONArray("removed");
+        for (int i = 0; removed != null && i < removed.length(); i++) {
+            String id = removed.getString(i);
+            if (id.startsWith(own)) continue;
+            board.remove(id);
+            merged++;
+        }
+        prefs.edit()
+                .putLong(KEY_LB_VERSION, delta.optLong("version", since))
+                .putString(KEY_LB_ETAG, r.etag)
+                .apply();
+        return merged;
+    }
+
+    private boolean isOnline() {
+        ConnectivityManager cm = appContext.getSystemService(ConnectivityManager.class);
+        if (cm == null) return true;
+        NetworkCapabilities caps = cm.getNetworkCapabilities(cm.getActiveNetwork());
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    static long backoffMs(int failures) {
+        long exp = BACKOFF_BASE_MS << Math.min(failures - 1, 16);
+        long capped = Math.min(BACKOFF_MAX_MS, exp);
+        // Half-to-full jitter so many devices don't retry in lockstep
+        return capped / 2 + (long) (Math.random() * (capped / 2));
+    }
+
+    private static byte[] gzip(JSONObject json) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return buf.toByteArray();
+    }
+}
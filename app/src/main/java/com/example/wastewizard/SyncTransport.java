@@ -0,0 +1,45 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Wire interface used by {@link SyncManager}.
+ *
+ * Implementations only move bytes: {@link HttpSyncTransport} talks to a real
+ * endpoint; unit tests substitute an in-process server.
+ */
+public interface SyncTransport {
+
+    /**
+     * Upload one gzip-compressed JSON batch. A 2xx response means the server
+     * stored it; uploads are idempotent per (device, kind, seq).
+     */
+    @NonNull
+    Response upload(@NonNull byte[] gzippedJson) throws IOException;
+
+    /**
+     * Leaderboard changes since sinceVersion. Passing the last ETag lets the
+     * server answer 304 with no body when nothing changed.
+     */
+    @NonNull
+    Response fetchLeaderboard(long sinceVersion, @Nullable String etag) throws IOException;
+
+    final class Response {
+        public final int code;
+        @Nullable public final String etag;
+        @Nullable public final byte[] body; // uncompressed JSON
+
+        public Response(int code, @Nullable String etag, @Nullable byte[] body) {
+            this.code = code;
+            this.etag = etag;
+            this.body = body;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+    }
+}
@@ -25,15 +25,17 @@ import java.util.List;
 
 public class TFLiteClassifier {
 
-    private static final String MODEL_NAME = "garbage_model.tflite";
-    private static final String LABELS_NAME = "labels.txt";
-
-    private static final int IMAGE_SIZE = 180; // Matches model_v217 input size
     private static final int CHANNELS = 3;
 
+    private final ModelRegistry.Spec spec;
+    private final int numThreads;
     private final Interpreter tflite;
     private List<String> labels;
-    private final int inputSize = 180;
+    private int inputSize; // from the input tensor; the spec's size is only the expectation
+    @androidx.annotation.Nullable private final TFLiteMetadata metadata;
+    // From metadata; null = unknown, decided per output by looksLikeProbs
+    @androidx.annotation.Nullable private final Boolean outputIsProbability;
+    private volatile boolean closed; // set under the lock; read without it by isModelReady
     private org.tensorflow.lite.DataType inType, outType;
     private boolean inputIsQuant = false;
     private org.tensorflow.lite.support.image.ImageProcessor procFloat;
@@ -43,8 +45,43 @@ public class TFLiteClassifier {
     private byte[][] outByte;
     private float outScale = 1f; 
     private int outZero = 0;
+    private float[] dequantLut; // UINT8 output: byte value → score
+    // Reused by every single-image run so the interpreter call allocates nothing on our side
+    private final Object[] runInputs = new Object[1];
+    private final java.util.Map<Integer, Object> runOutputs = new java.util.HashMap<>();
+
+    // Cascade: cheap stages answer easy inputs; the full model and TTA run only when unsure
+    static final float CASCADE_MIN_MARGIN = 0.35f; // top-1 minus top-2 probability
+    static final int CASCADE_REUSE_DISTANCE = 3;   // bits of dHash; the frame barely changed
+    static final int CASCADE_MAX_REUSE = 5;        // re-check a still scene every few frames
+    @androidx.annotation.Nullable private volatile TFLiteClassifier cheapStage;
+    private final Object cascadeLock = new Object();
+    // Guarded by cascadeLock
+    private long lastFrameHash;
+    private float[] lastFrameProbs;
+    private boolean lastFrameReusable;
+    private int reuseRun;
+    private long framesReused, firstPass, escalated;
 
+    // Batched inference; the interpreter's input is resized only when the batch size changes
+    private int currentBatch = 1;
+    private boolean batchSupported = true;
+    private ByteBuffer batchInput;
+
+    /** The active model variant; prefer {@link ModelRegistry#acquire} to share interpreters. */
     public TFLiteClassifier(Context context) throws IOException {
+        this(context, 4);
+    }
+
+    /** numThreads below the default keeps background work from competing with the UI. */
+    public TFLiteClassifier(Context context, int numThreads) throws IOException {
+        this(context, ModelRegistry.get(context).active(), numThreads);
+    }
+
+    public TFLiteClassifier(Context context, ModelRegistry.Spec spec, int numThreads) throws IOException {
+        this.spec = spec;
+        this.numThreads = numThreads;
+        this.inputSize = spec.inputSize;
         // Log TensorFlow Lite runtime version - CRITICAL for debugging
         try {
             String tfliteVersion = TensorFlowLite.runtimeVersion();
@@ -62,10 +99,13 @@ public class TFLiteClassifier {
         }
         
         MappedByteBuffer model = loadModelFile(context);
+        // Read from the same mapping the interpreter uses; no extra I/O
+        metadata = TFLiteMetadata.read(model);
+        outputIsProbability = metadata != null ? metadata.outputIsProbability : null;
         Interpreter.Options options = new Interpreter.Options();
         
         // Use optimized configuration
-        options.setNumThreads(4);
+        options.setNumThreads(numThreads);
         options.setUseXNNPACK(true);
         
         android.util.Log.d("TFLiteClassifier", "Creating interpreter with optimized configuration");
@@ -78,11 +118,15 @@ public class TFLiteClassifier {
             throw new IOException("Failed to create TensorFlow Lite interpreter: " + e.getMessage(), e);
         }
         
-        labels = loadLabels(context);
+        if (metadata != null && metadata.labels != null && !metadata.labels.isEmpty()) {
+            labels = metadata.labels;
+        } else {
+            labels = loadLabels(context);
+        }
         
         // Validate model and labels
         if (labels.isEmpty()) {
-            throw new IOException("No labels found in " + LABELS_NAME);
+            throw new IOException("No labels found for " + spec.id);
         }
         
         // Validate model input/output details
@@ -93,13 +137,25 @@ public class TFLiteClassifier {
             android.util.Log.d("TFLiteClassifier", "Input shape: " + java.util.Arrays.toString(inputShape));
             android.util.Log.d("TFLiteClassifier", "Output shape: " + java.util.Arrays.toString(outputShape));
             
-            if (inputShape.length != 4 || inputShape[1] != IMAGE_SIZE || inputShape[2] != IMAGE_SIZE || inputShape[3] != CHANNELS) {
-                android.util.Log.w("TFLiteClassifier", "Input shape mismatch. Expected: [1, 180, 180, 3], Got: " + java.util.Arrays.toString(inputShape));
+            if (inputShape.length != 4 || inputShape[1] != inputShape[2] || inputShape[3] != CHANNELS) {
+                throw new IOException(spec.id + ": unsupported input shape " + java.util.Arrays.toString(inputShape));
+            }
+            if (inputShape[1] != spec.inputSize) {
+                android.util.Log.w("TFLiteClassifier", spec.id + " declares " + spec.inputSize + "px input, model has "
+                        + inputShape[1] + "; using the model's");
+            }
+            inputSize = inputShape[1];
+            if (tflite.getInputTensor(0).dataType() != spec.inputType) {
+                android.util.Log.w("TFLiteClassifier", spec.id + " declares " + spec.inputType + " input, model has "
+                        + tflite.getInputTensor(0).dataType());
             }
             
             // Log TensorFlow Lite version info
             android.util.Log.d("TFLiteClassifier", "TensorFlow Lite interpreter created successfully");
             
+        } catch (IOException e) {
+            tflite.close();
+            throw e;
         } catch (Exception e) {
             android.util.Log.e("TFLiteClassifier", "Error validating model: " + e.getMessage());
         }
@@ -108,8 +164,32 @@ public class TFLiteClassifier {
         setupPipelines();
     }
 
+    /** Version of the active model variant (for the default, assets/model_version.txt). */
+    public static String modelVersion(Context context) {
+        return ModelRegistry.get(context).active().version;
+    }
+
+    /** Family of the active variant; history is stamped with this, see {@link ModelRegistry.Spec#family}. */
+    public static String modelFamily(Context context) {
+        return ModelRegistry.get(context).active().family;
+    }
+
+    public ModelRegistry.Spec getSpec() {
+        return spec;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     private MappedByteBuffer loadModelFile(Context context) throws IOException {
-        AssetFileDescriptor fd = context.getAssets().openFd(MODEL_NAME);
+        if (spec.modelFile != null) {
+            // Installed update: map straight from filesDir
+            try (FileInputStream in = new FileInputStream(spec.modelFile)) {
+                return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, spec.modelFile.length());
+            }
+        }
+        AssetFileDescriptor fd = context.getAssets().openFd(spec.modelAsset);
         FileInputStream inputStream = new FileInputStream(fd.getFileDescriptor());
         FileChannel fileChannel = inputStream.getChannel();
         long startOffset = fd.getStartOffset();
@@ -117,10 +197,11 @@ public class TFLiteClassifier {
         return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
     }
 
+    // Models without embedded labels
     private List<String> loadLabels(Context context) throws IOException {
         List<String> list = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(context.getAssets().open(LABELS_NAME)))) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(spec.labelsFile != null
+                ? new FileInputStream(spec.labelsFile) : context.getAssets().open(spec.labelsAsset)))) {
             String line;
             while ((line = br.readLine()) != null) {
                 String l = line.trim();
@@ -146,25 +227,32 @@ public class TFLiteClassifier {
                     .build();
             tensorImage = new org.tensorflow.lite.support.image.TensorImage(org.tensorflow.lite.DataType.UINT8);
         } else {
-            // FLOAT32 with RAW 0..255 input → no NormalizeOp
-            procFloat = new org.tensorflow.lite.support.image.ImageProcessor.Builder()
+            org.tensorflow.lite.support.image.ImageProcessor.Builder b = new org.tensorflow.lite.support.image.ImageProcessor.Builder()
                     .add(new org.tensorflow.lite.support.image.ops.ResizeOp(inputSize, inputSize,
-                            org.tensorflow.lite.support.image.ops.ResizeOp.ResizeMethod.BILINEAR))
-                    .build();
+                            org.tensorflow.lite.support.image.ops.ResizeOp.ResizeMethod.BILINEAR));
+            // Without metadata: FLOAT32 with RAW 0..255 input → no NormalizeOp
+            if (metadata != null && metadata.mean != null && metadata.std != null) {
+                b.add(new org.tensorflow.lite.support.common.ops.NormalizeOp(metadata.mean, metadata.std));
+            }
+            procFloat = b.build();
             tensorImage = new org.tensorflow.lite.support.image.TensorImage(org.tensorflow.lite.DataType.FLOAT32);
         }
 
         if (outType == org.tensorflow.lite.DataType.FLOAT32) {
             outFloat = new float[1][numClasses];
+            runOutputs.put(0, outFloat);
         } else {
             outByte = new byte[1][numClasses];
+            runOutputs.put(0, outByte);
             org.tensorflow.lite.Tensor tOut = tflite.getOutputTensor(0);
             org.tensorflow.lite.Tensor.QuantizationParams q = tOut.quantizationParams();
             outScale = q.getScale();
             outZero = q.getZeroPoint();
+            dequantLut = ScoreOps.dequantLut(outScale, outZero);
         }
 
-        android.util.Log.d("TFLite", "input=" + inType + " output=" + outType + " classes=" + numClasses);
+        android.util.Log.d("TFLite", "input=" + inType + " " + inputSize + "px output=" + outType + " classes=" + numClasses
+                + " metadata=" + (metadata != null) + " probs=" + outputIsProbability);
     }
 
     private static java.util.List<String> sanitizeLabels(java.util.List<String> raw, int classes) {
@@ -178,10 +266,8 @@ public class TFLiteClassifier {
             }
         }
         if (clean.size() == classes) return clean;
-        // If mismatch, fall back to known order or generic
-        android.util.Log.w("TFLite", "labels size " + clean.size() + " != classes " + classes + "; using known order or generic");
-        java.util.List<String> fallback = java.util.Arrays.asList("cardboard","glass","metal","paper","plastic");
-        if (classes == 5) return fallback;
+        // A label order can't be guessed; generic names make the mismatch visible
+        android.util.Log.w("TFLite", "labels size " + clean.size() + " != classes " + classes + "; using generic names");
         clean = new java.util.ArrayList<>();
         for (int i = 0; i < classes; i++) clean.add("class_" + i);
         return clean;
@@ -199,76 +285,275 @@ public class TFLiteClassifier {
         }
     }
 
-    // New API: always returns normalized 0..1 probs
+    // New API: always returns normalized 0..1 probs.
     public float[] inferProbs(android.graphics.Bitmap src) {
-        if (tflite == null) throw new IllegalStateException("Interpreter not ready");
-
-        android.graphics.Bitmap argb = (src.getConfig() == android.graphics.Bitmap.Config.ARGB_8888)
-                ? src : src.copy(android.graphics.Bitmap.Config.ARGB_8888, false);
-        android.graphics.Bitmap cropped = centerCrop(argb);
-
-        tensorImage.load(cropped);
-        org.tensorflow.lite.support.image.TensorImage processed =
-                inputIsQuant ? procUint8.process(tensorImage) : procFloat.process(tensorImage);
+        float[] probs = new float[labels.size()];
+        inferInto(src, probs, true);
+        return probs;
+    }
 
-        float[] probs;
+    /**
+     * Scores for one image written into out, which must hold {@link #getNumClasses}
+     * values. Nothing is allocated after preprocessing. With probabilities false
+     * the raw scores are left as they are; they rank the same, which is all
+     * argmax or {@link #topK} need.
+     */
+    // Synchronized: the interpreter and the buffers below are shared by live, single and bulk scans.
+    public synchronized void inferInto(Bitmap src, float[] out, boolean probabilities) {
+        if (tflite == null || closed) throw new IllegalStateException("Interpreter not ready");
+        resizeBatch(1);
+        runInputs[0] = preprocess(src);
+        long t = InferenceStats.begin(InferenceStats.Stage.INVOKE);
+        try {
+            tflite.runForMultipleInputsOutputs(runInputs, runOutputs);
+        } finally {
+            InferenceStats.end(InferenceStats.Stage.INVOKE, t);
+            runInputs[0] = null;
+        }
+        t = InferenceStats.begin(InferenceStats.Stage.POSTPROCESS);
         if (outFloat != null) {
-            tflite.run(processed.getBuffer(), outFloat);
-            probs = outFloat[0].clone();
-            // If they already look like probs (sum≈1), softmax keeps them same
-            softmax(probs);
+            System.arraycopy(outFloat[0], 0, out, 0, out.length);
         } else {
-            tflite.run(processed.getBuffer(), outByte);
-            probs = dequantize(outByte[0], outScale, outZero);
-            softmax(probs); // normalize logits
+            ScoreOps.dequantize(outByte[0], dequantLut, out);
+        }
+        if (probabilities) toProbs(out);
+        InferenceStats.end(InferenceStats.Stage.POSTPROCESS, t);
+    }
+
+    /** See {@link ScoreOps#topK}. */
+    public static int topK(float[] scores, int k, int[] outIndices, float[] outScores) {
+        return ScoreOps.topK(scores, k, outIndices, outScores);
+    }
+
+    public static int argmax(float[] scores) {
+        return ScoreOps.argmax(scores);
+    }
+
+    /**
+     * Probabilities for several images in one interpreter call. Falls back to one
+     * call per image if the model has a fixed batch dimension.
+     */
+    public synchronized float[][] inferProbsBatch(List<Bitmap> images) {
+        if (tflite == null || closed) throw new IllegalStateException("Interpreter not ready");
+        int n = images.size();
+        float[][] out = new float[n][];
+        if (n == 0) return out;
+        if (batchSupported && n > 1) {
+            try {
+                resizeBatch(n);
+            } catch (RuntimeException e) {
+                android.util.Log.w("TFLiteClassifier", "batched input unsupported, running per image: " + e.getMessage());
+                batchSupported = false;
+                resizeBatch(1);
+            }
+        }
+        if (!batchSupported || n == 1) {
+            for (int i = 0; i < n; i++) out[i] = inferProbs(images.get(i));
+            return out;
+        }
+
+        int perImage = inputSize * inputSize * CHANNELS * (inputIsQuant ? 1 : 4);
+        if (batchInput == null || batchInput.capacity() < n * perImage) {
+            batchInput = ByteBuffer.allocateDirect(n * perImage).order(ByteOrder.nativeOrder());
+        }
+        batchInput.clear();
+        for (Bitmap b : images) {
+            ByteBuffer one = preprocess(b);
+            one.rewind();
+            batchInput.put(one);
+        }
+        batchInput.flip();
+
+        int classes = labels.size();
+        Object raw = outType == org.tensorflow.lite.DataType.FLOAT32 ? new float[n][classes] : new byte[n][classes];
+        long t = InferenceStats.begin(InferenceStats.Stage.INVOKE);
+        try {
+            tflite.run(batchInput, raw);
+        } finally {
+            InferenceStats.end(InferenceStats.Stage.INVOKE, t);
+        }
+        t = InferenceStats.begin(InferenceStats.Stage.POSTPROCESS);
+        for (int i = 0; i < n; i++) {
+            if (raw instanceof float[][]) {
+                out[i] = ((float[][]) raw)[i];
+            } else {
+                out[i] = new float[classes];
+                ScoreOps.dequantize(((byte[][]) raw)[i], dequantLut, out[i]);
+            }
+            toProbs(out[i]);
+        }
+        InferenceStats.end(InferenceStats.Stage.POSTPROCESS, t);
+        return out;
+    }
+
+    /**
+     * Same as {@link #inferProbs} with three 80% crops (center, left, right)
+     * averaged. Steadier on cluttered photos at three times the cost.
+     */
+    public float[] inferProbsTta(Bitmap src) {
+        float[][] probs = new float[3][];
+        probs[0] = inferProbs(cropFraction(src, 0.10f, 0.10f, 0.90f, 0.90f)); // centered
+        probs[1] = inferProbs(cropFraction(src, 0.00f, 0.10f, 0.80f, 0.90f)); // left
+        probs[2] = inferProbs(cropFraction(src, 0.20f, 0.10f, 1.00f, 0.90f)); // right
+        int n = probs[0].length;
+        float[] avg = new float[n];
+        for (int i = 0; i < n; i++) {
+            float s = 0f; for (float[] p : probs) s += p[i];
+            avg[i] = s / probs.length;
+        }
+        return avg;
+    }
+
+    /** Low-resolution model run before this one in {@link #inferCascade}; null = none. */
+    public void setCheapStage(@androidx.annotation.Nullable TFLiteClassifier cheap) {
+        cheapStage = cheap;
+    }
+
+    @androidx.annotation.Nullable
+    public TFLiteClassifier getCheapStage() {
+        return cheapStage;
+    }
+
+    /**
+     * Probabilities through the cascade, cheapest stage first:
+     *
+     * 1. live only: the previous frame's result, if the scene barely changed and
+     *    that result was confident;
+     * 2. the cheap model if one is attached, else this model on one crop;
+     * 3. if stage 2's top-1 margin is below {@link #CASCADE_MIN_MARGIN}: this
+     *    model (live) or multi-crop TTA (photos).
+     */
+    public float[] inferCascade(Bitmap src, boolean live) {
+        if (live) {
+            float[] out = new float[labels.size()];
+            inferCascadeLive(src, out);
+            return out;
+        }
+        TFLiteClassifier cheap = cheapStage;
+        float[] probs = cheap != null ? cheap.inferProbs(src) : inferProbs(src);
+        boolean escalate = margin(probs) < CASCADE_MIN_MARGIN;
+        if (escalate) probs = inferProbsTta(src);
+        synchronized (cascadeLock) {
+            countCascade(escalate);
         }
         return probs;
     }
 
-    public Result classify(android.graphics.Bitmap src) {
-        float[] probs = inferProbs(src);
-        int idx = 0; float best = -1f;
-        for (int i = 0; i < probs.length; i++) if (probs[i] > best) { best = probs[i]; idx = i; }
-        String label = (labels != null && idx < labels.size()) ? labels.get(idx) : ("class_" + idx);
-        return new Result(label, best, idx);
+    /** Live-frame {@link #inferCascade} into out; no allocation after the first frame. */
+    public void inferCascadeLive(Bitmap src, float[] out) {
+        long hash = PerceptualHash.dHash(src);
+        synchronized (cascadeLock) {
+            if (lastFrameReusable && reuseRun < CASCADE_MAX_REUSE
+                    && PerceptualHash.distance(hash, lastFrameHash) <= CASCADE_REUSE_DISTANCE) {
+                reuseRun++;
+                framesReused++;
+                System.arraycopy(lastFrameProbs, 0, out, 0, out.length);
+                return;
+            }
+        }
+        TFLiteClassifier cheap = cheapStage;
+        (cheap != null ? cheap : this).inferInto(src, out, true);
+        // Without a cheap model this model already ran; there is nothing further to escalate to
+        boolean escalate = cheap != null && margin(out) < CASCADE_MIN_MARGIN;
+        if (escalate) inferInto(src, out, true);
+        synchronized (cascadeLock) {
+            countCascade(escalate);
+            if (lastFrameProbs == null || lastFrameProbs.length != out.length) lastFrameProbs = new float[out.length];
+            System.arraycopy(out, 0, lastFrameProbs, 0, out.length);
+            lastFrameHash = hash;
+            lastFrameReusable = margin(out) >= CASCADE_MIN_MARGIN; // only reuse confident answers
+            reuseRun = 0;
+        }
     }
 
-    private static android.graphics.Bitmap centerCrop(android.graphics.Bitmap src) {
-        int w = src.getWidth(), h = src.getHeight();
-        int size = Math.min(w, h);
-        int x = (w - size) / 2, y = (h - size) / 2;
-        return android.graphics.Bitmap.createBitmap(src, x, y, size, size);
+    // Caller holds cascadeLock
+    private void countCascade(boolean escalate) {
+        if (escalate) escalated++;
+        else firstPass++;
+        if ((framesReused + firstPass + escalated) % 100 == 0) {
+            android.util.Log.d("TFLiteClassifier", "cascade " + spec.id + ": " + cascadeStats());
+        }
     }
 
-    private Result top1(float[] v) {
-        int idx = 0; float best = -Float.MAX_VALUE;
-        for (int i = 0; i < v.length; i++) if (v[i] > best) { best = v[i]; idx = i; }
-        String label = (labels != null && idx < labels.size()) ? labels.get(idx) : ("class_" + idx);
-        return new Result(label, best, idx);
+    /** Per-stage hit rates of {@link #inferCascade} so far. */
+    public String cascadeStats() {
+        synchronized (cascadeLock) {
+            long total = framesReused + firstPass + escalated;
+            if (total == 0) return "no cascade runs";
+            return String.format(java.util.Locale.US, "reused %.0f%%, first pass %.0f%%, escalated %.0f%% of %d",
+                    framesReused * 100.0 / total, firstPass * 100.0 / total, escalated * 100.0 / total, total);
+        }
     }
 
-    private static float[] dequantize(byte[] q, float s, int zp) {
-        float[] f = new float[q.length];
-        for (int i = 0; i < q.length; i++) f[i] = ((q[i] & 0xFF) - zp) * s;
-        return f;
+    static float margin(float[] p) {
+        return ScoreOps.margin(p);
+    }
+
+    private static Bitmap cropFraction(Bitmap src, float left, float top, float right, float bottom) {
+        int w = src.getWidth(), h = src.getHeight();
+        int x = Math.round(left * w);
+        int y = Math.round(top * h);
+        int cw = Math.round((right - left) * w);
+        int ch = Math.round((bottom - top) * h);
+        cw = Math.max(1, Math.min(cw, w - x));
+        ch = Math.max(1, Math.min(ch, h - y));
+        return Bitmap.createBitmap(src, x, y, cw, ch);
     }
 
-    private static void softmax(float[] v) {
-        float max = Float.NEGATIVE_INFINITY;
-        for (float x : v) if (x > max) max = x;
-        float sum = 0f;
-        for (int i = 0; i < v.length; i++) {
-            v[i] = (float) Math.exp(v[i] - max);
-            sum += v[i];
+    // Caller holds the lock
+    private void resizeBatch(int n) {
+        if (n == currentBatch) return;
+        tflite.resizeInput(0, new int[]{ n, inputSize, inputSize, CHANNELS });
+        tflite.allocateTensors();
+        currentBatch = n;
+    }
+
+    // Caller holds the lock; the returned buffer is reused by the next call
+    private ByteBuffer preprocess(Bitmap src) {
+        Bitmap argb = src;
+        if (src.getConfig() != Bitmap.Config.ARGB_8888) {
+            long t = InferenceStats.begin(InferenceStats.Stage.CONVERT);
+            try {
+                argb = src.copy(Bitmap.Config.ARGB_8888, false);
+            } finally {
+                InferenceStats.end(InferenceStats.Stage.CONVERT, t);
+            }
         }
-        if (sum == 0f) return;
-        for (int i = 0; i < v.length; i++) {
-            v[i] /= sum;
-            if (v[i] < 0f) v[i] = 0f;
-            if (v[i] > 1f) v[i] = 1f;
+        org.tensorflow.lite.support.image.TensorImage processed;
+        long t = InferenceStats.begin(InferenceStats.Stage.CROP_RESIZE);
+        try {
+            tensorImage.load(centerCrop(argb));
+            processed = inputIsQuant ? procUint8.process(tensorImage) : procFloat.process(tensorImage);
+        } finally {
+            InferenceStats.end(InferenceStats.Stage.CROP_RESIZE, t);
+        }
+        // The support library converts the resized bitmap to the tensor layout lazily, here
+        t = InferenceStats.begin(InferenceStats.Stage.PACK);
+        try {
+            return processed.getBuffer();
+        } finally {
+            InferenceStats.end(InferenceStats.Stage.PACK, t);
         }
     }
 
+    public Result classify(android.graphics.Bitmap src) {
+        float[] probs = inferProbs(src);
+        int idx = argmax(probs);
+        return new Result(getLabelAt(idx), probs[idx], idx);
+    }
+
+    private static android.graphics.Bitmap centerCrop(android.graphics.Bitmap src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int size = Math.min(w, h);
+        int x = (w - size) / 2, y = (h - size) / 2;
+        return android.graphics.Bitmap.createBitmap(src, x, y, size, size);
+    }
+
+    // Softmax unless the model already outputs probabilities; softmax of probabilities flattens them
+    private void toProbs(float[] v) {
+        boolean probs = outputIsProbability != null ? outputIsProbability : ScoreOps.looksLikeProbs(v);
+        if (!probs) ScoreOps.softmax(v);
+    }
 
     /**
      * Get the number of classes the model can classify
@@ -298,7 +583,7 @@ public class TFLiteClassifier {
      * Check if the model is loaded and ready
      */
     public boolean isModelReady() {
-        return tflite != null && !labels.isEmpty();
+        return tflite != null && !closed && !labels.isEmpty();
     }
     
     /**
@@ -311,8 +596,9 @@ public class TFLiteClassifier {
     /**
      * Close the interpreter and free resources
      */
-    public void close() { 
-        if (tflite != null) tflite.close(); 
+    public synchronized void close() { 
+        if (tflite != null && !closed) tflite.close(); 
+        closed = true;
     }
     
     /**
@@ -321,7 +607,7 @@ public class TFLiteClassifier {
     public boolean testModel() {
         try {
             // Create a simple test bitmap (all white)
-            Bitmap testBitmap = Bitmap.createBitmap(IMAGE_SIZE, IMAGE_SIZE, Bitmap.Config.ARGB_8888);
+            Bitmap testBitmap = Bitmap.createBitmap(inputSize, inputSize, Bitmap.Config.ARGB_8888);
             testBitmap.eraseColor(0xFFFFFFFF); // White bitmap
             
             // Try to classify it
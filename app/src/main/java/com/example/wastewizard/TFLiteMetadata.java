@@ -0,0 +1,254 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Preprocessing and label info embedded in a .tflite file, read straight from
+ * the memory-mapped model.
+ *
+ * Only what the classifier needs is decoded from the "TFLITE_METADATA"
+ * flatbuffer: the first input's normalization (mean/std), the first output's
+ * value range (0..1 means it is already a probability), and its
+ * TENSOR_AXIS_LABELS file. That file comes from the zip archive the metadata
+ * writer appends to the model. Reading is bounds-checked; anything missing or
+ * malformed leaves the field null and the caller falls back to its defaults.
+ */
+public final class TFLiteMetadata {
+
+    private static final String METADATA_NAME = "TFLITE_METADATA";
+    private static final int PROCESS_UNIT_NORMALIZATION = 1;
+    private static final int FILE_TENSOR_AXIS_LABELS = 2;
+
+    @Nullable public final float[] mean;
+    @Nullable public final float[] std;
+    @Nullable public final Boolean outputIsProbability;
+    @Nullable public final List<String> labels;
+
+    private TFLiteMetadata(@Nullable float[] mean, @Nullable float[] std, @Nullable Boolean outputIsProbability,
+                           @Nullable List<String> labels) {
+        this.mean = mean;
+        this.std = std;
+        this.outputIsProbability = outputIsProbability;
+        this.labels = labels;
+    }
+
+    /** Metadata of a model, or null if it has none. Never throws on a bad file. */
+    @Nullable
+    public static TFLiteMetadata read(@NonNull ByteBuffer model) {
+        try {
+            Fb fb = new Fb(model.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+            int root = fb.root();
+            // Model: 4 buffers, 6 metadata
+            int meta = fb.vector(root, 6);
+            int buffers = fb.vector(root, 4);
+            if (meta == 0 || buffers == 0) return null;
+            for (int i = 0; i < fb.length(meta); i++) {
+                int m = fb.tableAt(meta, i);
+                if (!METADATA_NAME.equals(fb.string(m, 0))) continue;
+                int buf = fb.tableAt(buffers, fb.u32(m, 1, 0));
+                int data = fb.vector(buf, 0);
+                if (data == 0) return null;
+                return parseModelMetadata(fb.slice(data + 4, fb.length(data)), model);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            android.util.Log.w("TFLiteMetadata", "unreadable metadata: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static TFLiteMetadata parseModelMetadata(ByteBuffer bytes, ByteBuffer model) {
+        Fb fb = new Fb(bytes);
+        int root = fb.root();
+        int subgraphs = fb.vector(root, 3); // ModelMetadata.subgraph_metadata
+        if (subgraphs == 0 || fb.length(subgraphs) == 0) return new TFLiteMetadata(null, null, null, null);
+        int sg = fb.tableAt(subgraphs, 0);
+
+        float[] mean = null, std = null;
+        int inputs = fb.vector(sg, 2); // SubGraphMetadata.input_tensor_metadata
+        if (inputs != 0 && fb.length(inputs) > 0) {
+            int units = fb.vector(fb.tableAt(inputs, 0), 4); // TensorMetadata.process_units
+            for (int i = 0; units != 0 && i < fb.length(units); i++) {
+                int unit = fb.tableAt(units, i);
+                if (fb.u8(unit, 0, 0) != PROCESS_UNIT_NORMALIZATION) continue;
+                int opts = fb.table(unit, 1);
+                mean = fb.floats(opts, 0);
+                std = fb.floats(opts, 1);
+            }
+        }
+
+        Boolean probability = null;
+        List<String> labels = null;
+        int outputs = fb.vector(sg, 3); // SubGraphMetadata.output_tensor_metadata
+        if (outputs != 0 && fb.length(outputs) > 0) {
+            int out = fb.tableAt(outputs, 0);
+            int stats = fb.table(out, 5); // TensorMetadata.stats
+            if (stats != 0) {
+                float[] max = fb.floats(stats, 0);
+                float[] min = fb.floats(stats, 1);
+                if (max != null && min != null && max.length > 0 && min.length > 0) {
+                    probability = max[0] == 1f && min[0] == 0f;
+                }
+            }
+            int files = fb.vector(out, 6); // TensorMetadata.associated_files
+            for (int i = 0; files != 0 && i < fb.length(files) && labels == null; i++) {
+                int f = fb.tableAt(files, i);
+                if (fb.u8(f, 2, 0) != FILE_TENSOR_AXIS_LABELS) continue;
+                byte[] content = zipEntry(model, fb.string(f, 0));
+                if (content != null) labels = lines(content);
+            }
+        }
+        return new TFLiteMetadata(mean, std, probability, labels);
+    }
+
+    private static List<String> lines(byte[] content) {
+        List<String> out = new ArrayList<>();
+        for (String line : new String(content, StandardCharsets.UTF_8).split("\n")) {
+            String t = line.trim();
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    // Associated files live in a zip appended to the model; find one by name
+    @Nullable
+    private static byte[] zipEntry(ByteBuffer model, @Nullable String name) {
+        if (name == null) return null;
+        ByteBuffer b = model.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = b.limit();
+        int eocd = -1;
+        for (int p = end - 22; p >= Math.max(0, end - 22 - 65535); p--) {
+            if (b.getInt(p) == 0x06054b50) {
+                eocd = p;
+                break;
+            }
+        }
+        if (eocd < 0) return null;
+        int entries = b.getShort(eocd + 10) & 0xFFFF;
+        int cdSize = b.getInt(eocd + 12);
+        int cdOffset = b.getInt(eocd + 16);
+        // Offsets are relative to the archive, which starts after the flatbuffer
+        int base = eocd - cdSize - cdOffset;
+        int p = base + cdOffset;
+        for (int i = 0; i < entries; i++) {
+            if (b.getInt(p) != 0x02014b50) return null;
+            int method = b.getShort(p + 10) & 0xFFFF;
+            int compressed = b.getInt(p + 20);
+            int size = b.getInt(p + 24);
+            int nameLen = b.getShort(p + 28) & 0xFFFF;
+            int extraLen = b.getShort(p + 30) & 0xFFFF;
+            int commentLen = b.getShort(p + 32) & 0xFFFF;
+            int local = base + b.getInt(p + 42);
+            byte[] n = new byte[nameLen];
+            ((ByteBuffer) b.duplicate().position(p + 46)).get(n);
+            if (name.equals(new String(n, StandardCharsets.UTF_8))) {
+                int dataStart = local + 30 + (b.getShort(local + 26) & 0xFFFF) + (b.getShort(local + 28) & 0xFFFF);
+                byte[] raw = new byte[compressed];
+                ((ByteBuffer) b.duplicate().position(dataStart)).get(raw);
+                if (method == 0) return raw;
+                if (method != 8) return null;
+                Inflater inf = new Inflater(true);
+                try {
+                    inf.setInput(raw);
+                    byte[] out = new byte[size];
+                    inf.inflate(out);
+                    return out;
+                } catch (DataFormatException e) {
+                    return null;
+                } finally {
+                    inf.end();
+                }
+            }
+            p += 46 + nameLen + extraLen + commentLen;
+        }
+        return null;
+    }
+
+    /** Just enough of a FlatBuffers reader: tables, vectors, strings, scalars. */
+    private static final class Fb {
+        private final ByteBuffer b;
+
+        Fb(ByteBuffer b) {
+            this.b = b.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        int root() {
+            return b.getInt(0);
+        }
+
+        // Position of field's value in table, or 0 if absent
+        private int field(int table, int id) {
+            int vtable = table - b.getInt(table);
+            int vsize = b.getShort(vtable) & 0xFFFF;
+            int slot = 4 + id * 2;
+            if (slot >= vsize) return 0;
+            int off = b.getShort(vtable + slot) & 0xFFFF;
+            return off == 0 ? 0 : table + off;
+        }
+
+        private int deref(int pos) {
+            return pos + b.getInt(pos);
+        }
+
+        int table(int table, int id) {
+            int f = field(table, id);
+            return f == 0 ? 0 : deref(f);
+        }
+
+        int vector(int table, int id) {
+            return table(table, id);
+        }
+
+        int length(int vector) {
+            return b.getInt(vector);
+        }
+
+        int tableAt(int vector, int i) {
+            return deref(vector + 4 + i * 4);
+        }
+
+        int u8(int table, int id, int def) {
+            int f = field(table, id);
+            return f == 0 ? def : b.get(f) & 0xFF;
+        }
+
+        int u32(int table, int id, int def) {
+            int f = field(table, id);
+            return f == 0 ? def : b.getInt(f);
+        }
+
+        @Nullable
+        String string(int table, int id) {
+            int s = table(table, id);
+            if (s == 0) return null;
+            byte[] bytes = new byte[b.getInt(s)];
+            ((ByteBuffer) b.duplicate().position(s + 4)).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Nullable
+        float[] floats(int table, int id) {
+            int v = vector(table, id);
+            if (v == 0) return null;
+            float[] out = new float[length(v)];
+            for (int i = 0; i < out.length; i++) out[i] = b.getFloat(v + 4 + i * 4);
+            return out;
+        }
+
+        ByteBuffer slice(int start, int length) {
+            ByteBuffer d = b.duplicate();
+            d.position(start);
+            d.limit(start + length);
+            return d.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
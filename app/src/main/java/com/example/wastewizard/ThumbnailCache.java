@@ -0,0 +1,233 @@
+package com.example.wastewizard;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Small-bitmap cache for the history list.
+ *
+ * Thumbnails are written to filesDir/thumbs when a scan is recorded and loaded
+ * off the UI thread into a byte-sized memory LRU. On disk a thumbnail lives as
+ * long as its history row: it is the only image left once {@link CaptureStorage}
+ * evicts the original, so it is deleted only with the row ({@link #remove}).
+ * Entries recorded before thumbnails existed fall back to a sampled decode of
+ * the original image, which is then persisted as a thumbnail.
+ */
+public class ThumbnailCache {
+
+    private static final String TAG = "ThumbnailCache";
+    private static final String DIR_NAME = "thumbs";
+    static final int THUMB_SIZE_PX = 192;          // ~60dp at xxhdpi
+    private static final int THUMB_QUALITY = 80;
+
+    private static ThumbnailCache instance;
+
+    private final Context appContext;
+    private final File dir;
+    private final LruCache<String, Bitmap> memory;
+    private final ExecutorService io = Executors.newFixedThreadPool(2);
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    public static synchronized ThumbnailCache get(@NonNull Context context) {
+        if (instance == null) instance = new ThumbnailCache(context.getApplicationContext());
+        return instance;
+    }
+
+    private ThumbnailCache(Context appContext) {
+        this.appContext = appContext;
+        this.dir = new File(appContext.getFilesDir(), DIR_NAME);
+        // 1/16 of the heap is plenty for ~200 thumbnails of 192px
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16);
+        this.memory = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /** Thumbnail file for a history imagePath (file path, file: or content: URI). */
+    @NonNull
+    public File thumbFileFor(@NonNull String imagePath) {
+        return new File(dir, Integer.toHexString(imagePath.hashCode()) + "_" + imagePath.length() + ".jpg");
+    }
+
+    /** Blocking {@link #storeAsync}; the caller may recycle source afterwards. */
+    public void storeNow(@Nullable String imagePath, @Nullable Bitmap source) {
+        if (imagePath == null || imagePath.isEmpty() || source == null) return;
+        Bitmap thumb = scaleToThumb(source);
+        if (thumb == source) thumb = source.copy(source.getConfig(), false);
+        writeThumb(imagePath, thumb);
+        memory.put(imagePath, thumb);
+    }
+
+    /** Generate and persist a thumbnail from an already-decoded bitmap, in the background. */
+    public void storeAsync(@Nullable String imagePath, @Nullable Bitmap source) {
+        if (imagePath == null || imagePath.isEmpty() || source == null) return;
+        io.execute(() -> {
+            Bitmap thumb = scaleToThumb(source);
+            writeThumb(imagePath, thumb);
+            memory.put(imagePath, thumb);
+        });
+    }
+
+    /**
+     * Bind the thumbnail for imagePath into target. Any load previously started for
+     * this view is cancelled. Views with no loadable image are hidden.
+     */
+    public void load(@Nullable String imagePath, @NonNull ImageView target) {
+        cancel(target);
+        if (imagePath == null || imagePath.isEmpty()) {
+            target.setImageDrawable(null);
+            target.setVisibility(android.view.View.GONE);
+            return;
+        }
+        Bitmap cached = memory.get(imagePath);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            target.setVisibility(android.view.View.VISIBLE);
+            return;
+        }
+        target.setImageDrawable(null);
+        target.setTag(R.id.tag_thumb_path, imagePath);
+        Future<?> f = io.submit(() -> {
+            Bitmap bmp = loadFromDisk(imagePath);
+            if (Thread.currentThread().isInterrupted()) return;
+            main.post(() -> {
+                // View may have been rebound to another row meanwhile
+                if (!imagePath.equals(target.getTag(R.id.tag_thumb_path))) return;
+                target.setTag(R.id.tag_thumb_task, null);
+                if (bmp != null) {
+                    target.setImageBitmap(bmp);
+                    target.setVisibility(android.view.View.VISIBLE);
+                } else {
+                    target.setVisibility(android.view.View.GONE);
+                }
+            });
+        });
+        target.setTag(R.id.tag_thumb_task, f);
+    }
+
+    /** Cancel an in-flight load for a recycled view. */
+    public void cancel(@NonNull ImageView target) {
+        Object f = target.getTag(R.id.tag_thumb_task);
+        if (f instanceof Future) ((Future<?>) f).cancel(true);
+        target.setTag(R.id.tag_thumb_task, null);
+        target.setTag(R.id.tag_thumb_path, null);
+    }
+
+    /** Drop one history entry's thumbnail. Blocking; call off the main thread. */
+    public void remove(@NonNull String imagePath) {
+        memory.remove(imagePath);
+        //noinspection ResultOfMethodCallIgnored
+        thumbFileFor(imagePath).delete();
+    }
+
+    /** Drop everything, e.g. after history was cleared. */
+    public void clear() {
+        memory.evictAll();
+        io.execute(() -> {
+            File[] files = dir.listFiles();
+            if (files != null) for (File f : files) //noinspection ResultOfMethodCallIgnored
+                f.delete();
+        });
+    }
+
+    @Nullable
+    private Bitmap loadFromDisk(String imagePath) {
+        File thumb = thumbFileFor(imagePath);
+        Bitmap bmp = null;
+        if (thumb.exists()) bmp = BitmapFactory.decodeFile(thumb.getAbsolutePath());
+        if (bmp == null) {
+            // Older entry without a thumbnail: sampled decode of the original
+            Bitmap sampled = decodeSampled(imagePath, THUMB_SIZE_PX);
+            if (sampled != null) {
+                bmp = scaleToThumb(sampled);
+                writeThumb(imagePath, bmp);
+            }
+        }
+        if (bmp != null) memory.put(imagePath, bmp);
+        return bmp;
+    }
+
+    @Nullable
+    private Bitmap decodeSampled(String imagePath, int reqSize) {
+        try {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            try (InputStream in = open(imagePath)) {
+                if (in == null) return null;
+                BitmapFactory.decodeStream(in, null, bounds);
+            }
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+
+            BitmapFactory.Options opts = new BitmapFactory.Options();
+            opts.inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, reqSize);
+            try (InputStream in = open(imagePath)) {
+                if (in == null) return null;
+                return BitmapFactory.decodeStream(in, null, opts);
+            }
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "sampled decode failed for " + imagePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private InputStream open(String imagePath) throws java.io.IOException {
+        if (imagePath.startsWith("content:")) {
+            return appContext.getContentResolver().openInputStream(Uri.parse(imagePath));
+        }
+        File f = imagePath.startsWith("file:") ? new File(Uri.parse(imagePath).getPath()) : new File(imagePath);
+        return f.exists() ? new java.io.FileInputStream(f) : null;
+    }
+
+    static int sampleSizeFor(int w, int h, int reqSize) {
+        int sample = 1;
+        int shortEdge = Math.min(w, h);
+        while (shortEdge / (sample * 2) >= reqSize) sample *= 2;
+        return sample;
+    }
+
+    private static Bitmap scaleToThumb(Bitmap src) {
+        int w = src.getWidth(), h = src.getHeight();
+        int shortEdge = Math.min(w, h);
+        if (shortEdge <= THUMB_SIZE_PX) return src;
+        float s = (float) THUMB_SIZE_PX / shortEdge;
+        return Bitmap.createScaledBitmap(src, Math.max(1, Math.round(w * s)), Math.max(1, Math.round(h * s)), true);
+    }
+
+    private void writeThumb(String imagePath, Bitmap thumb) {
+        if (!dir.exists() && !dir.mkdirs()) return;
+        File out = thumbFileFor(imagePath);
+        File tmp = new File(dir, out.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            thumb.compress(Bitmap.CompressFormat.JPEG, THUMB_QUALITY, fos);
+        } catch (Exception e) {
+            android.util.Log.w(TAG, "thumbnail write failed: " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(out)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+}
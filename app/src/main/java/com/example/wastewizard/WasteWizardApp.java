@@ -15,6 +15,22 @@ public class WasteWizardApp extends Application {
             androidx.appcompat.app.AppCompatDelegate.MODE_NIGHT_NO :
             androidx.appcompat.app.AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM
         );
+        // Finish a history purge the process was killed in, then trim leftover captures
+        HistoryPurge.get(this).resumeIfPending();
+        CaptureStorage.get(this).compactAsync();
+        // Model updates: a configured URL, else a local drop directory
+        String modelSource = getString(R.string.model_update_source);
+        java.io.File drop = getExternalFilesDir("model_drop");
+        ModelUpdater.get(this).setSource(!modelSource.isEmpty() ? new HttpModelSource(modelSource)
+                : drop != null ? new LocalModelSource(drop) : null);
+        ModelUpdater.get(this).checkAsync(null);
+        // Pick the fastest accurate model variant after an install or update (queued behind
+        // the update check), then re-label history left behind by a model change (resumes a previous run)
+        ModelSelector.get(this).runIfNeeded();
+        Reclassifier.get(this).startIfNeeded();
+        // Score sync stays off until an endpoint is configured
+        String endpoint = getString(R.string.sync_endpoint);
+        if (!endpoint.isEmpty()) SyncManager.get(this).setTransport(new HttpSyncTransport(endpoint));
     }
 }
 
@@ -0,0 +1,170 @@
+package com.example.wastewizard;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link HttpSyncTransport} against {@link LocalSyncServer} behind a real
+ * loopback socket: conditional GETs, gzip in both directions.
+ */
+public class HttpSyncTransportTest {
+
+    private final LocalSyncServer backend = new LocalSyncServer();
+    private HttpServer http;
+    private HttpSyncTransport transport;
+    // Headers of the last request, as the server saw them
+    private volatile String lastAcceptEncoding;
+    private volatile String lastContentEncoding;
+    private volatile String lastIfNoneMatch;
+
+    @Before
+    public void setUp() throws IOException {
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        http.createContext("/events", ex -> {
+            record(ex);
+            byte[] body = readAll(ex.getRequestBody());
+            respond(ex, backend.upload(body));
+        });
+        http.createContext("/leaderboard", ex -> {
+            record(ex);
+            String query = ex.getRequestURI().getQuery();
+            long since = Long.parseLong(query.substring(query.indexOf('=') + 1));
+            respond(ex, backend.fetchLeaderboard(since, lastIfNoneMatch));
+        });
+        http.start();
+        transport = new HttpSyncTransport("http://127.0.0.1:" + http.getAddress().getPort() + "/");
+    }
+
+    @After
+    public void tearDown() {
+        http.stop(0);
+    }
+
+    @Test
+    public void leaderboardAnswers304WhenEtagIsCurrent() throws Exception {
+        backend.put("other/local", "Sam", 120, 2);
+
+        SyncTransport.Response first = transport.fetchLeaderboard(0, null);
+        assertEquals(200, first.code);
+        assertNotNull(first.etag);
+        assertNull(lastIfNoneMatch);
+
+        long version = new JSONObject(new String(first.body, StandardCharsets.UTF_8)).getLong("version");
+        SyncTransport.Response second = transport.fetchLeaderboard(version, first.etag);
+        assertEquals(304, second.code);
+        assertEquals(first.etag, lastIfNoneMatch);
+        assertEquals(first.etag, second.etag);
+        assertNull(second.body);
+    }
+
+    @Test
+    public void staleEtagGetsOnlyNewerEntries() throws Exception {
+        backend.put("a/local", "Ann", 10, 1);
+        SyncTransport.Response first = transport.fetchLeaderboard(0, null);
+        long version = new JSONObject(new String(first.body, StandardCharsets.UTF_8)).getLong("version");
+
+        backend.put("b/local", "Ben", 20, 1);
+        backend.remove("a/local");
+        SyncTransport.Response second = transport.fetchLeaderboard(version, first.etag);
+        assertEquals(200, second.code);
+
+        JSONObject delta = new JSONObject(new String(second.body, StandardCharsets.UTF_8));
+        JSONArray profiles = delta.getJSONArray("profiles");
+        assertEquals(1, profiles.length());
+        assertEquals("b/local", profiles.getJSONObject(0).getString("id"));
+        assertEquals("a/local", delta.getJSONArray("removed").getString(0));
+    }
+
+    @Test
+    public void gzipResponseIsDecoded() throws Exception {
+        for (int i = 0; i < 50; i++) backend.put("d/" + i, "Player " + i, i * 10, 1);
+
+        SyncTransport.Response r = transport.fetchLeaderboard(0, null);
+        assertEquals("gzip", lastAcceptEncoding);
+        assertEquals(50, new JSONObject(new String(r.body, StandardCharsets.UTF_8)).getJSONArray("profiles").length());
+    }
+
+    @Test
+    public void uploadSendsGzipBodyAndIsIdempotent() throws Exception {
+        JSONArray events = new JSONArray();
+        for (int seq = 1; seq <= 3; seq++) events.put(new JSONObject().put("seq", seq));
+        byte[] body = gzip(new JSONObject().put("device", "dev1").put("events", events).toString());
+
+        SyncTransport.Response r = transport.upload(body);
+        assertEquals(200, r.code);
+        assertEquals("gzip", lastContentEncoding);
+        assertEquals(body.length, backend.bytesReceived());
+        assertEquals(3, backend.eventCount());
+
+        // A retried batch must not double-count
+        transport.upload(body);
+        assertEquals(3, backend.eventCount());
+    }
+
+    @Test
+    public void serverErrorIsReported() throws Exception {
+        backend.failNext(1);
+        assertEquals(503, transport.fetchLeaderboard(0, null).code);
+        assertEquals(200, transport.fetchLeaderboard(0, null).code);
+    }
+
+    private void record(HttpExchange ex) {
+        lastAcceptEncoding = ex.getRequestHeaders().getFirst("Accept-Encoding");
+        lastContentEncoding = ex.getRequestHeaders().getFirst("Content-Encoding");
+        lastIfNoneMatch = ex.getRequestHeaders().getFirst("If-None-Match");
+    }
+
+    // Writes r like a real server would: ETag header, gzip body when accepted
+    private void respond(HttpExchange ex, SyncTransport.Response r) throws IOException {
+        if (r.etag != null) ex.getResponseHeaders().set("ETag", r.etag);
+        if (r.body == null) {
+            ex.sendResponseHeaders(r.code, -1);
+            ex.close();
+            return;
+        }
+        byte[] out = r.body;
+        if ("gzip".equals(lastAcceptEncoding)) {
+            out = gzip(new String(r.body, StandardCharsets.UTF_8));
+            ex.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        ex.sendResponseHeaders(r.code, out.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(out);
+        }
+    }
+
+    private static byte[] gzip(String s) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            out.write(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return buf.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) > 0) buf.write(chunk, 0, n);
+        return buf.toByteArray();
+    }
+}
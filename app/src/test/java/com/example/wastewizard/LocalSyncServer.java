@@ -0,0 +1,160 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process stand-in for the sync endpoint, speaking the same protocol as
+ * {@link HttpSyncTransport}'s server. Tests use it directly as a
+ * {@link SyncTransport}, or behind a real socket (see HttpSyncTransportTest).
+ *
+ * Every leaderboard entry carries the server version at which it last changed,
+ * so {@link #fetchLeaderboard} returns only entries newer than the caller's
+ * version, and answers 304 when the caller's ETag is current.
+ */
+public class LocalSyncServer implements SyncTransport {
+
+    private static final class Entry {
+        final String name;
+        final int points;
+        final int level;
+        final long version;
+
+        Entry(String name, int points, int level, long version) {
+            this.name = name;
+            this.points = points;
+            this.level = level;
+            this.version = version;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Long> removed = new HashMap<>(); // id -> version of removal
+    private final Set<String> seenEvents = new HashSet<>();    // device/seq, for idempotent uploads
+    private final Set<String> seenScans = new HashSet<>();
+    private long version;
+    private int failNext;
+    private int uploads;
+    private long bytesReceived;
+
+    /** Make the next n calls fail with HTTP 503, to exercise backoff. */
+    public synchronized void failNext(int n) {
+        failNext = n;
+    }
+
+    /** Add or change another player's score, as if uploaded by another device. */
+    public synchronized void put(@NonNull String id, @NonNull String name, int points, int level) {
+        entries.put(id, new Entry(name, points, level, ++version));
+        removed.remove(id);
+    }
+
+    public synchronized void remove(@NonNull String id) {
+        if (entries.remove(id) != null) removed.put(id, ++version);
+    }
+
+    public synchronized int uploadCount() {
+        return uploads;
+    }
+
+    public synchronized long bytesReceived() {
+        return bytesReceived;
+    }
+
+    public synchronized int eventCount() {
+        return seenEvents.size();
+    }
+
+    public synchronized int scanCount() {
+        return seenScans.size();
+    }
+
+    @NonNull
+    @Override
+    public synchronized Response upload(@NonNull byte[] gzippedJson) throws IOException {
+        if (failNext > 0) {
+            failNext--;
+            return new Response(503, null, null);
+        }
+        uploads++;
+        bytesReceived += gzippedJson.length;
+        try {
+            JSONObject batch = new JSONObject(new String(gunzip(gzippedJson), StandardCharsets.UTF_8));
+            String device = batch.getString("device");
+            JSONArray events = batch.optJSONArray("events");
+            for (int i = 0; events != null && i < events.length(); i++) {
+                seenEvents.add(device + "/" + events.getJSONObject(i).getLong("seq"));
+            }
+            JSONArray scans = batch.optJSONArray("scans");
+            for (int i = 0; scans != null && i < scans.length(); i++) {
+                seenScans.add(device + "/" + scans.getJSONObject(i).getLong("id"));
+            }
+            JSONArray profiles = batch.optJSONArray("profiles");
+            for (int i = 0; profiles != null && i < profiles.length(); i++) {
+                JSONObject p = profiles.getJSONObject(i);
+                put(device + "/" + p.getString("id"), p.getString("name"), p.getInt("points"), p.getInt("level"));
+            }
+            return new Response(200, null, null);
+        } catch (JSONException e) {
+            return new Response(400, null, null);
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized Response fetchLeaderboard(long sinceVersion, @Nullable String etag) throws IOException {
+        if (failNext > 0) {
+            failNext--;
+            return new Response(503, null, null);
+        }
+        String current = "\"v" + version + "\"";
+        if (current.equals(etag)) return new Response(304, current, null);
+        try {
+            JSONArray changed = new JSONArray();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry v = e.getValue();
+                if (v.version <= sinceVersion) continue;
+                changed.put(new JSONObject()
+                        .put("id", e.getKey())
+                        .put("name", v.name)
+                        .put("points", v.points)
+                        .put("level", v.level));
+            }
+            JSONArray gone = new JSONArray();
+            for (Map.Entry<String, Long> e : removed.entrySet()) {
+                if (e.getValue() > sinceVersion) gone.put(e.getKey());
+            }
+            JSONObject body = new JSONObject()
+                    .put("version", version)
+                    .put("profiles", changed)
+                    .put("removed", gone);
+            return new Response(200, current, body.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) out.write(chunk, 0, n);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.wastewizard;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The install checks behind {@link ModelUpdater}: a download whose digest
+ * doesn't match, a model that fails validation, and an installed model
+ * changed on disk before startup. Files come from {@link HttpModelSource}
+ * over a loopback server.
+ */
+public class ModelFilesTest {
+
+    private static final byte[] MODEL = "not really a tflite model".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LABELS = "paper\nplastic\nglass\n".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private final Map<String, byte[]> served = new ConcurrentHashMap<>();
+    private HttpServer http;
+    private HttpModelSource source;
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        served.put("m.tflite", MODEL);
+        served.put("l.txt", LABELS);
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        http.createContext("/", ex -> {
+            byte[] body = served.get(ex.getRequestURI().getPath().substring(1));
+            if (body == null) {
+                ex.sendResponseHeaders(404, -1);
+                ex.close();
+                return;
+            }
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        http.start();
+        source = new HttpModelSource("http://127.0.0.1:" + http.getAddress().getPort() + "/");
+        root = tmp.newFolder("models");
+    }
+
+    @After
+    public void tearDown() {
+        http.stop(0);
+    }
+
+    @Test
+    public void fetchMovesVerifiedFilesIntoPlace() throws Exception {
+        File dir = ModelFiles.fetch(source, manifest("1.1", sha256(MODEL), sha256(LABELS)), root);
+
+        assertEquals(new File(root, "1.1"), dir);
+        assertArrayEquals(MODEL, Files.readAllBytes(new File(dir, ModelFiles.MODEL_NAME).toPath()));
+        assertArrayEquals(LABELS, Files.readAllBytes(new File(dir, ModelFiles.LABELS_NAME).toPath()));
+        assertFalse(new File(root, "1.1.tmp").exists());
+    }
+
+    @Test
+    public void checksumMismatchLeavesNothingBehind() throws Exception {
+        String wrong = sha256("something else".getBytes(StandardCharsets.UTF_8));
+        try {
+            ModelFiles.fetch(source, manifest("1.2", wrong, sha256(LABELS)), root);
+            fail("digest mismatch accepted");
+        } catch (ModelFiles.DigestMismatch expected) {
+            // The updater remembers the version as failed
+        }
+        assertEquals(0, root.list().length);
+    }
+
+    @Test
+    public void missingFileIsNotADigestMismatch() throws Exception {
+        served.remove("l.txt");
+        try {
+            ModelFiles.fetch(source, manifest("1.3", sha256(MODEL), sha256(LABELS)), root);
+            fail("missing labels accepted");
+        } catch (ModelFiles.DigestMismatch e) {
+            fail("a network error must stay retryable");
+        } catch (IOException expected) {
+            // Retried on the next check
+        }
+        assertEquals(0, root.list().length);
+    }
+
+    @Test
+    public void validationRejectsLabelCountMismatch() throws Exception {
+        File dir = ModelFiles.fetch(source, manifest("1.4", sha256(MODEL), sha256(LABELS)), root);
+        File labels = new File(dir, ModelFiles.LABELS_NAME);
+
+        ModelFiles.checkLabels(3, labels);
+        try {
+            ModelFiles.checkLabels(5, labels);
+            fail("5 outputs for 3 labels accepted");
+        } catch (IOException expected) {
+            // Rolled back before it becomes active
+        }
+    }
+
+    @Test
+    public void validationRejectsOutputsThatAreNotADistribution() throws Exception {
+        ModelFiles.checkProbs(new float[]{0.2f, 0.5f, 0.3f});
+        assertRejected(new float[]{0.2f, 0.5f, 0.2f});
+        assertRejected(new float[]{1.2f, -0.2f, 0f});
+        assertRejected(new float[]{Float.NaN, 0.5f, 0.5f});
+    }
+
+    @Test
+    public void startupCheckCatchesChangedFiles() throws Exception {
+        File dir = ModelFiles.fetch(source, manifest("1.5", sha256(MODEL), sha256(LABELS)), root);
+        File model = new File(dir, ModelFiles.MODEL_NAME);
+        long size = model.length();
+        long mtime = model.lastModified();
+        assertTrue(ModelFiles.unchanged(dir, size, mtime));
+
+        // Rewritten in place: same size, new mtime
+        Files.write(model.toPath(), new byte[MODEL.length]);
+        assertTrue(model.setLastModified(mtime + 2000));
+        assertFalse(ModelFiles.unchanged(dir, size, mtime));
+
+        // Truncated but mtime restored
+        Files.write(model.toPath(), new byte[1]);
+        assertTrue(model.setLastModified(mtime));
+        assertFalse(ModelFiles.unchanged(dir, size, mtime));
+
+        Files.write(model.toPath(), MODEL);
+        assertTrue(model.setLastModified(mtime));
+        assertTrue(ModelFiles.unchanged(dir, size, mtime));
+        assertTrue(new File(dir, ModelFiles.LABELS_NAME).delete());
+        assertFalse(ModelFiles.unchanged(dir, size, mtime));
+    }
+
+    private static void assertRejected(float[] p) {
+        try {
+            ModelFiles.checkProbs(p);
+            fail("accepted " + java.util.Arrays.toString(p));
+        } catch (IOException expected) {
+            // Not a probability distribution
+        }
+    }
+
+    private static ModelSource.Manifest manifest(String version, String modelSha, String labelsSha) {
+        return new ModelSource.Manifest(version, "m.tflite", modelSha, "l.txt", labelsSha, 180);
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
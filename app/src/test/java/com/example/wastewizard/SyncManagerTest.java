@@ -0,0 +1,41 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class SyncManagerTest {
+
+    private static final long BASE_MS = 30_000;
+    private static final long MAX_MS = 60 * 60_000;
+
+    @Test
+    public void backoffDoublesWithHalfToFullJitter() {
+        for (int failures = 1; failures <= 7; failures++) {
+            long full = BASE_MS << (failures - 1);
+            for (int i = 0; i < 200; i++) {
+                long d = SyncManager.backoffMs(failures);
+                assertTrue("failures=" + failures + " delay=" + d, d >= full / 2 && d <= full);
+            }
+        }
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        // 30s << 7 already exceeds the one-hour cap
+        for (int failures : new int[]{ 8, 17, 40, Integer.MAX_VALUE }) {
+            for (int i = 0; i < 200; i++) {
+                long d = SyncManager.backoffMs(failures);
+                assertTrue("failures=" + failures + " delay=" + d, d >= MAX_MS / 2 && d <= MAX_MS);
+            }
+        }
+    }
+
+    @Test
+    public void backoffIsJittered() {
+        long first = SyncManager.backoffMs(5);
+        boolean differs = false;
+        for (int i = 0; i < 50 && !differs; i++) differs = SyncManager.backoffMs(5) != first;
+        assertTrue("devices would retry in lockstep", differs);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.wastewizard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** History migration and stat aggregation over 1000 scans. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HistoryBenchmark {
+
+    private static final int SCANS = 1000;
+    private static final String[] LABELS = { "cardboard", "glass", "metal", "paper", "plastic" };
+
+    private List<LegacyHistoryFormat.Entry> entries;
+    private String encoded;
+    private int[] outcomes;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long[] latencies;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        entries = new ArrayList<>(SCANS);
+        outcomes = new int[SCANS];
+        latencies = new long[SCANS];
+        long ts = 1_700_000_000_000L;
+        for (int i = 0; i < SCANS; i++) {
+            Boolean correct = r.nextInt(10) == 0 ? null : r.nextInt(5) != 0;
+            entries.add(new LegacyHistoryFormat.Entry("content://media/external/images/media/" + (100000 + i),
+                    LABELS[r.nextInt(LABELS.length)], r.nextFloat(), ts + i * 60_000L, correct));
+            outcomes[i] = Boolean.FALSE.equals(correct) ? 0 : 1;
+            latencies[i] = 5_000_000L + (long) (r.nextGaussian() * 1_000_000);
+        }
+        encoded = LegacyHistoryFormat.format(entries);
+    }
+
+    @Benchmark
+    public String format() {
+        return LegacyHistoryFormat.format(entries);
+    }
+
+    @Benchmark
+    public List<LegacyHistoryFormat.Entry> parse() {
+        return LegacyHistoryFormat.parse(encoded);
+    }
+
+    /** Rebuilding game state from the event log, as after a rules change. */
+    @Benchmark
+    public GameState foldEvents() {
+        GameState s = new GameState();
+        for (int i = 0; i < SCANS; i++) s.apply(i + 1, GameState.EVENT_PREDICTION, outcomes[i], null);
+        return s;
+    }
+
+    @Benchmark
+    public long latencyPercentiles() {
+        histogram.reset();
+        for (long l : latencies) histogram.record(l);
+        return histogram.percentileNanos(0.5) + histogram.percentileNanos(0.95) + histogram.percentileNanos(0.99);
+    }
+}
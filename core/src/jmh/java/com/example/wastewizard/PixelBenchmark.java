@@ -0,0 +1,63 @@
+package com.example.wastewizard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Per-frame pixel conversion at the live analyzer's 640x480. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PixelBenchmark {
+
+    private static final int W = 640, H = 480, OUT = 224;
+
+    private ByteBuffer rgba;
+    private byte[] row;
+    private int[] argb;
+    private ByteBuffer y, u, v;
+    private int[] cropped;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        byte[] px = new byte[W * H * 4];
+        r.nextBytes(px);
+        rgba = ByteBuffer.allocateDirect(px.length);
+        rgba.put(px);
+        row = new byte[W * 4];
+        argb = new int[W * H];
+
+        byte[] luma = new byte[W * H];
+        byte[] chroma = new byte[W * H / 2];
+        r.nextBytes(luma);
+        r.nextBytes(chroma);
+        y = ByteBuffer.allocateDirect(luma.length).put(luma);
+        // Semi-planar chroma, as most devices deliver it: pixel stride 2
+        u = ByteBuffer.allocateDirect(chroma.length).put(chroma);
+        v = u.duplicate();
+        v.position(1);
+        v = v.slice();
+        cropped = new int[OUT * OUT];
+    }
+
+    @Benchmark
+    public int[] rgbaToArgb() {
+        PixelOps.rgbaToArgb(rgba, W, H, W * 4, 4, row, argb);
+        return argb;
+    }
+
+    @Benchmark
+    public int[] yuv420CenterCrop() {
+        PixelOps.yuv420CenterCrop(y, W, 1, u, W, 2, v, W, 2, W, H, OUT, cropped);
+        return cropped;
+    }
+}
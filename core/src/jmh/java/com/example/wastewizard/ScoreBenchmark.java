@@ -0,0 +1,74 @@
+package com.example.wastewizard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Postprocessing of one output vector; 5 is the bundled model, 1000 an ImageNet-size head. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScoreBenchmark {
+
+    @Param({"5", "1000"})
+    public int classes;
+
+    private float[] logits;
+    private float[] work;
+    private float[] ema;
+    private byte[] quantized;
+    private float[] lut;
+    private int[] topIdx;
+    private float[] topScores;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        logits = new float[classes];
+        for (int i = 0; i < classes; i++) logits[i] = (float) r.nextGaussian() * 3f;
+        work = new float[classes];
+        ema = new float[classes];
+        quantized = new byte[classes];
+        r.nextBytes(quantized);
+        lut = ScoreOps.dequantLut(0.00390625f, 0);
+        topIdx = new int[5];
+        topScores = new float[5];
+    }
+
+    @Benchmark
+    public float[] softmax() {
+        System.arraycopy(logits, 0, work, 0, classes);
+        ScoreOps.softmax(work);
+        return work;
+    }
+
+    @Benchmark
+    public float[] dequantize() {
+        ScoreOps.dequantize(quantized, lut, work);
+        return work;
+    }
+
+    @Benchmark
+    public float[] emaSmoothing() {
+        ScoreOps.ema(ema, logits, 0.6f);
+        return ema;
+    }
+
+    @Benchmark
+    public int argmax() {
+        return ScoreOps.argmax(logits);
+    }
+
+    @Benchmark
+    public int top5() {
+        return ScoreOps.topK(logits, 5, topIdx, topScores);
+    }
+}
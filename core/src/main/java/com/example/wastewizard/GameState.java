@@ -0,0 +1,107 @@
+package com.example.wastewizard;
+
+/**
+ * Gamification state derived by folding {@link GameLedger} events in order.
+ *
+ * This is the only place scoring rules live. Changing them means bumping
+ * {@link #RULES_VERSION}; snapshots taken under other versions are then ignored
+ * and the state is rebuilt from the full event log.
+ */
+public final class GameState {
+
+    /** Bump whenever {@link #apply} changes behaviour. */
+    public static final int RULES_VERSION = 2;
+
+    public static final int EVENT_PREDICTION = 1; // value: 1 correct, 0 wrong
+    public static final int EVENT_POINTS = 2;     // value: points delta
+    public static final int EVENT_BASELINE = 3;   // payload: legacy counters
+    public static final int EVENT_CORRECTION = 4; // value: CORRECTION_*; feedback reinterpreted after re-labelling
+
+    /** A prediction confirmed correct no longer is (its label changed). */
+    public static final long CORRECTION_NOW_WRONG = 0;
+    /** A prediction marked wrong has a new label nobody has judged yet. */
+    public static final long CORRECTION_NOW_UNKNOWN = 1;
+
+    public long seq;       // last event folded in
+    public int points;
+    public int level = 1;
+    public int total;
+    public int correct;
+    public int streak;
+    public int bestStreak;
+
+    public GameState copy() {
+        GameState s = new GameState();
+        s.seq = seq;
+        s.points = points;
+        s.level = level;
+        s.total = total;
+        s.correct = correct;
+        s.streak = streak;
+        s.bestStreak = bestStreak;
+        return s;
+    }
+
+    public double accuracy() {
+        if (total == 0) return 0.0;
+        return (double) correct / total * 100;
+    }
+
+    /** Fold one event into this state. */
+    public void apply(long eventSeq, int type, long value, String payload) {
+        switch (type) {
+            case EVENT_PREDICTION:
+                if (value != 0) {
+                    // Same formula as before event sourcing: the streak bonus counts this
+                    // prediction, the accuracy bonus uses the counts before it.
+                    int accuracyBonus = (int) (accuracy() / 10);
+                    streak++;
+                    if (streak > bestStreak) bestStreak = streak;
+                    points += 10 + streak * 2 + accuracyBonus;
+                    correct++;
+                } else {
+                    streak = 0;
+                }
+                total++;
+                break;
+            case EVENT_POINTS:
+                points += (int) value;
+                break;
+            case EVENT_BASELINE:
+                applyBaseline(payload);
+                break;
+            case EVENT_CORRECTION:
+                // Accuracy only; points and streaks already earned stay
+                if (value == CORRECTION_NOW_WRONG) {
+                    if (correct > 0) correct--;
+                } else if (value == CORRECTION_NOW_UNKNOWN) {
+                    if (total > correct) total--;
+                }
+                break;
+            default:
+                // Unknown types come from newer app versions; skip them
+                break;
+        }
+        level = Math.max(level, Math.max(1, points / 100));
+        seq = eventSeq;
+    }
+
+    /** Payload for {@link #EVENT_BASELINE}: points,level,total,correct,streak,best. */
+    public static String baselinePayload(int points, int level, int total, int correct, int streak, int best) {
+        return points + "," + level + "," + total + "," + correct + "," + streak + "," + best;
+    }
+
+    private void applyBaseline(String payload) {
+        if (payload == null) return;
+        String[] p = payload.split(",");
+        if (p.length < 6) return;
+        try {
+            points = Integer.parseInt(p[0]);
+            level = Integer.parseInt(p[1]);
+            total = Integer.parseInt(p[2]);
+            correct = Integer.parseInt(p[3]);
+            streak = Integer.parseInt(p[4]);
+            bestStreak = Integer.parseInt(p[5]);
+        } catch (NumberFormatException ignored) { }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.wastewizard;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BK-tree over 64-bit {@link PerceptualHash} values with Hamming distance ({@link HashOps#distance}).
+ *
+ * Children are keyed by their distance to the parent, so by the triangle
+ * inequality a radius-r query only descends into children whose key lies in
+ * [d - r, d + r]. For small radii this visits a small fraction of the nodes.
+ * There is no removal; rows are only ever deleted a whole profile at a time,
+ * which drops the tree. Not thread-safe; {@link HistoryStore} guards it.
+ */
+public class HashIndex {
+
+    public static final class Match {
+        public final long id;
+        public final long originalId; // id itself unless the entry is a marked duplicate
+        public final long timestamp;
+        public final int distance;
+
+        Match(long id, long originalId, long timestamp, int distance) {
+            this.id = id;
+            this.originalId = originalId;
+            this.timestamp = timestamp;
+            this.distance = distance;
+        }
+    }
+
+    private static final class Node {
+        final long hash;
+        final long id;
+        final long originalId;
+        final long timestamp;
+        // Sparse children: most nodes have few, so no 65-slot array per node
+        byte[] keys;
+        Node[] children;
+        int childCount;
+
+        Node(long hash, long id, long originalId, long timestamp) {
+            this.hash = hash;
+            this.id = id;
+            this.originalId = originalId;
+            this.timestamp = timestamp;
+        }
+
+        Node child(int d) {
+            for (int i = 0; i < childCount; i++) if (keys[i] == d) return children[i];
+            return null;
+        }
+
+        void addChild(int d, Node n) {
+            if (keys == null) {
+                keys = new byte[2];
+                children = new Node[2];
+            } else if (childCount == keys.length) {
+                keys = java.util.Arrays.copyOf(keys, childCount * 2);
+                children = java.util.Arrays.copyOf(children, childCount * 2);
+            }
+            keys[childCount] = (byte) d;
+            children[childCount++] = n;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    public void add(long hash, long id, long originalId, long timestamp) {
+        Node n = new Node(hash, id, originalId, timestamp);
+        size++;
+        if (root == null) {
+            root = n;
+            return;
+        }
+        Node cur = root;
+        while (true) {
+            int d = HashOps.distance(cur.hash, hash);
+            Node next = cur.child(d);
+            if (next == null) {
+                cur.addChild(d, n);
+                return;
+            }
+            cur = next;
+        }
+    }
+
+    /** Every entry within maxDistance bits of hash, in no particular order. */
+    @NonNull
+    public List<Match> within(long hash, int maxDistance) {
+        List<Match> out = new ArrayList<>();
+        if (root == null) return out;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            int d = HashOps.distance(n.hash, hash);
+            if (d <= maxDistance) out.add(new Match(n.id, n.originalId, n.timestamp, d));
+            for (int i = 0; i < n.childCount; i++) {
+                if (Math.abs(n.keys[i] - d) <= maxDistance) stack.push(n.children[i]);
+            }
+        }
+        return out;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.wastewizard;
+
+/**
+ * Bit logic of the 64-bit difference hash behind {@link PerceptualHash}.
+ *
+ * The image is area-averaged into a 9x8 grid of luma cells, and each bit
+ * records whether a cell is brighter than its right neighbour. Averaging many
+ * pixels per cell is what makes the hash follow image structure rather than
+ * sensor noise. Callers feed rows with {@link #accumulateRow}, so a full-size
+ * photo never needs a second full-size copy.
+ */
+public final class HashOps {
+
+    public static final int GRID_W = 9;
+    public static final int GRID_H = 8;
+    public static final int CELLS = GRID_W * GRID_H;
+
+    private HashOps() { }
+
+    /**
+     * Add every xStep-th pixel of row y of a w x h ARGB image to the luma sums
+     * of the cells it falls in. sums and counts hold {@link #CELLS} entries.
+     */
+    public static void accumulateRow(int[] row, int w, int xStep, int y, int h, long[] sums, int[] counts) {
+        int base = (int) ((long) y * GRID_H / h) * GRID_W;
+        for (int x = 0; x < w; x += xStep) {
+            int cell = base + (int) ((long) x * GRID_W / w);
+            sums[cell] += luma(row[x]);
+            counts[cell]++;
+        }
+    }
+
+    /** The hash of accumulated cells: bit set where a cell's mean luma exceeds its right neighbour's. */
+    public static long dHash(long[] sums, int[] counts) {
+        long hash = 0;
+        for (int y = 0; y < GRID_H; y++) {
+            for (int x = 0; x < GRID_W - 1; x++) {
+                int a = y * GRID_W + x, b = a + 1;
+                hash <<= 1;
+                // Compare means without dividing; empty cells (images under 9 px wide) count as black
+                if (counts[a] > 0 && (counts[b] == 0 || sums[a] * counts[b] > sums[b] * counts[a])) hash |= 1;
+            }
+        }
+        return hash;
+    }
+
+    /** Number of differing bits, 0..64. */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // Integer Rec. 601 weights; exact values don't matter for a relative comparison
+    static int luma(int argb) {
+        return (((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114) / 1000;
+    }
+}
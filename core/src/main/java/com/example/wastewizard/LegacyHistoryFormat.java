@@ -0,0 +1,59 @@
+package com.example.wastewizard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The scan history string kept in SharedPreferences before the SQLite store:
+ * entries separated by '|', fields by ','. The fields are
+ * {@code imagePath,label,confidence,timestamp[,correct]}. Only read during
+ * migration now; kept separate so parsing can be benchmarked.
+ */
+public final class LegacyHistoryFormat {
+
+    public static final class Entry {
+        public final String imagePath;
+        public final String label;
+        public final float confidence;
+        public final long timestamp;
+        public final Boolean correct; // null = never answered
+
+        public Entry(String imagePath, String label, float confidence, long timestamp, Boolean correct) {
+            this.imagePath = imagePath;
+            this.label = label;
+            this.confidence = confidence;
+            this.timestamp = timestamp;
+            this.correct = correct;
+        }
+    }
+
+    private LegacyHistoryFormat() { }
+
+    /** Entries in stored order (oldest first); malformed entries are skipped. */
+    public static List<Entry> parse(String history) {
+        List<Entry> list = new ArrayList<>();
+        if (history == null || history.isEmpty() || "[]".equals(history)) return list;
+        for (String entry : history.split("\\|")) {
+            String[] p = entry.split(",");
+            try {
+                if (p.length >= 5) {
+                    list.add(new Entry(p[0], p[1], Float.parseFloat(p[2]), Long.parseLong(p[3]), Boolean.parseBoolean(p[4])));
+                } else if (p.length >= 4) {
+                    list.add(new Entry(p[0], p[1], Float.parseFloat(p[2]), Long.parseLong(p[3]), null));
+                }
+            } catch (NumberFormatException ignored) { }
+        }
+        return list;
+    }
+
+    public static String format(List<Entry> entries) {
+        StringBuilder sb = new StringBuilder(entries.size() * 64);
+        for (Entry e : entries) {
+            if (sb.length() > 0) sb.append('|');
+            sb.append(e.imagePath).append(',').append(e.label).append(',').append(e.confidence)
+                    .append(',').append(e.timestamp);
+            if (e.correct != null) sb.append(',').append(e.correct);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.wastewizard;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Camera frame pixel loops, kept free of Android types so they can be
+ * benchmarked on the JVM. Callers wrap the resulting ARGB ints in a Bitmap.
+ */
+public final class PixelOps {
+
+    private PixelOps() { }
+
+    /**
+     * RGBA_8888 plane (CameraX analysis output) to packed ARGB. row is scratch of
+     * at least rowStride bytes; out holds w * h pixels.
+     */
+    public static void rgbaToArgb(ByteBuffer buf, int w, int h, int rowStride, int pixelStride, byte[] row, int[] out) {
+        buf.rewind();
+        for (int y = 0; y < h; y++) {
+            // The last row may be shorter than the stride
+            buf.get(row, 0, Math.min(rowStride, buf.remaining()));
+            for (int x = 0; x < w; x++) {
+                int o = x * pixelStride; // RGBA order
+                int r = row[o] & 0xFF;
+                int g = row[o + 1] & 0xFF;
+                int b = row[o + 2] & 0xFF;
+                int a = row[o + 3] & 0xFF;
+                out[y * w + x] = (a << 24) | (r << 16) | (g << 8) | b; // ARGB int
+            }
+        }
+    }
+
+    /**
+     * Center square of a YUV_420_888 frame, nearest-neighbour sampled to
+     * outSize x outSize ARGB pixels.
+     */
+    public static void yuv420CenterCrop(ByteBuffer yBuf, int yRowStride, int yPixelStride,
+                                        ByteBuffer uBuf, int uRowStride, int uPixelStride,
+                                        ByteBuffer vBuf, int vRowStride, int vPixelStride,
+                                        int width, int height, int outSize, int[] out) {
+        int crop = Math.min(width, height);
+        int startX = (width - crop) / 2;
+        int startY = (height - crop) / 2;
+        for (int oy = 0; oy < outSize; oy++) {
+            int sy = startY + (oy * crop) / outSize;
+            int uvY = sy / 2;
+            for (int ox = 0; ox < outSize; ox++) {
+                int sx = startX + (ox * crop) / outSize;
+                int uvX = sx / 2;
+                int yVal = yBuf.get(sy * yRowStride + sx * yPixelStride) & 0xFF;
+                int uVal = uBuf.get(uvY * uRowStride + uvX * uPixelStride) & 0xFF;
+                int vVal = vBuf.get(uvY * vRowStride + uvX * vPixelStride) & 0xFF;
+                out[oy * outSize + ox] = yuvToArgb(yVal, uVal, vVal);
+            }
+        }
+    }
+
+    public static int yuvToArgb(int y, int u, int v) {
+        // BT.601 full range
+        float yf = (float) y;
+        float uf = (float) (u - 128);
+        float vf = (float) (v - 128);
+
+        int r = clamp((int) (yf + 1.402f * vf));
+        int g = clamp((int) (yf - 0.344136f * uf - 0.714136f * vf));
+        int b = clamp((int) (yf + 1.772f * uf));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int v) {
+        if (v < 0) return 0;
+        if (v > 255) return 255;
+        return v;
+    }
+}
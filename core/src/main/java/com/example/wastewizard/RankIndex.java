@@ -0,0 +1,179 @@
+package com.example.wastewizard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Order-statistics tree (size-augmented treap) over leaderboard entries.
+ *
+ * Entries are ordered by points descending, then id, so position 0 is the
+ * leader. Insert, remove, rank lookup and select-by-position are all expected
+ * O(log n); top-N and neighbour queries are O(log n + k). Plain Java with no
+ * Android dependencies. Not thread-safe; {@link Leaderboard} guards it.
+ */
+public final class RankIndex {
+
+    private static final class Node {
+        final String id;
+        final int points;
+        final int priority;
+        Node left, right;
+        int size = 1;
+
+        Node(String id, int points, int priority) {
+            this.id = id;
+            this.points = points;
+            this.priority = priority;
+        }
+    }
+
+    /** One (id, points) pair returned from queries. */
+    public static final class Entry {
+        public final String id;
+        public final int points;
+
+        Entry(String id, int points) {
+            this.id = id;
+            this.points = points;
+        }
+    }
+
+    private final Random random = new Random(0x5eed);
+    private Node root;
+
+    public int size() {
+        return size(root);
+    }
+
+    public void insert(String id, int points) {
+        root = insert(root, new Node(id, points, random.nextInt()));
+    }
+
+    /** Remove the entry with this id and points; no-op if absent. */
+    public void remove(String id, int points) {
+        root = remove(root, id, points);
+    }
+
+    /** Zero-based position of (id, points) in leaderboard order, or -1 if absent. */
+    public int positionOf(String id, int points) {
+        Node n = root;
+        int before = 0;
+        while (n != null) {
+            int c = compare(points, id, n.points, n.id);
+            if (c == 0) return before + size(n.left);
+            if (c < 0) {
+                n = n.left;
+            } else {
+                before += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return -1;
+    }
+
+    /** Number of entries with strictly more points; 1 + this is the competition rank. */
+    public int countAbove(int points) {
+        Node n = root;
+        int above = 0;
+        while (n != null) {
+            if (n.points > points) {
+                above += size(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return above;
+    }
+
+    /** Entries at positions [from, from + count), clipped to the index. */
+    public List<Entry> range(int from, int count) {
+        List<Entry> out = new ArrayList<>(Math.max(0, Math.min(count, size() - from)));
+        if (from < 0) {
+            count += from;
+            from = 0;
+        }
+        collect(root, from, from + count, 0, out);
+        return out;
+    }
+
+    // In-order walk that skips whole subtrees outside [lo, hi)
+    private static void collect(Node n, int lo, int hi, int offset, List<Entry> out) {
+        if (n == null || lo >= hi) return;
+        int leftSize = size(n.left);
+        int pos = offset + leftSize;
+        if (lo < pos) collect(n.left, lo, hi, offset, out);
+        if (pos >= lo && pos < hi) out.add(new Entry(n.id, n.points));
+        if (hi > pos + 1) collect(n.right, lo, hi, pos + 1, out);
+    }
+
+    // Points descending, then id ascending
+    private static int compare(int pointsA, String idA, int pointsB, String idB) {
+        if (pointsA != pointsB) return pointsA > pointsB ? -1 : 1;
+        return idA.compareTo(idB);
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static void update(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private static Node insert(Node n, Node x) {
+        if (n == null) return x;
+        int c = compare(x.points, x.id, n.points, n.id);
+        if (c == 0) return n; // already present
+        if (c < 0) {
+            n.left = insert(n.left, x);
+            if (n.left.priority > n.priority) n = rotateRight(n);
+        } else {
+            n.right = insert(n.right, x);
+            if (n.right.priority > n.priority) n = rotateLeft(n);
+        }
+        update(n);
+        return n;
+    }
+
+    private static Node remove(Node n, String id, int points) {
+        if (n == null) return null;
+        int c = compare(points, id, n.points, n.id);
+        if (c < 0) {
+            n.left = remove(n.left, id, points);
+        } else if (c > 0) {
+            n.right = remove(n.right, id, points);
+        } else {
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+            if (n.left.priority > n.right.priority) {
+                n = rotateRight(n);
+                n.right = remove(n.right, id, points);
+            } else {
+                n = rotateLeft(n);
+                n.left = remove(n.left, id, points);
+            }
+        }
+        update(n);
+        return n;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.wastewizard;
+
+/**
+ * Postprocessing of classifier outputs. Everything works in place or into
+ * caller-owned arrays and never allocates, except {@link #dequantLut}, which
+ * is built once per model.
+ */
+public final class ScoreOps {
+
+    private ScoreOps() { }
+
+    public static void softmax(float[] v) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float x : v) if (x > max) max = x;
+        float sum = 0f;
+        for (int i = 0; i < v.length; i++) {
+            v[i] = (float) Math.exp(v[i] - max);
+            sum += v[i];
+        }
+        if (sum == 0f) return;
+        for (int i = 0; i < v.length; i++) {
+            v[i] /= sum;
+            if (v[i] < 0f) v[i] = 0f;
+            if (v[i] > 1f) v[i] = 1f;
+        }
+    }
+
+    // A softmax output layer sums to 1 (within quantization error)
+    public static boolean looksLikeProbs(float[] v) {
+        float sum = 0f;
+        for (float x : v) {
+            if (x < 0f || x > 1.001f) return false;
+            sum += x;
+        }
+        return Math.abs(sum - 1f) < 0.02f;
+    }
+
+    /** Score for every UINT8 output value: (q - zeroPoint) * scale. */
+    public static float[] dequantLut(float scale, int zeroPoint) {
+        float[] lut = new float[256];
+        for (int i = 0; i < 256; i++) lut[i] = (i - zeroPoint) * scale;
+        return lut;
+    }
+
+    public static void dequantize(byte[] q, float[] lut, float[] out) {
+        for (int i = 0; i < out.length; i++) out[i] = lut[q[i] & 0xFF];
+    }
+
+    /** ema = alpha * x + (1 - alpha) * ema, element-wise. */
+    public static void ema(float[] ema, float[] x, float alpha) {
+        for (int i = 0; i < x.length; i++) ema[i] = alpha * x[i] + (1f - alpha) * ema[i];
+    }
+
+    public static int argmax(float[] scores) {
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) if (scores[i] > scores[best]) best = i;
+        return best;
+    }
+
+    /**
+     * The k best of scores, best first, into caller-owned arrays of at least k
+     * entries. Returns how many were written (fewer if there are fewer scores,
+     * none if k is not positive).
+     */
+    public static int topK(float[] scores, int k, int[] outIndices, float[] outScores) {
+        if (k <= 0) return 0;
+        int n = 0;
+        for (int i = 0; i < scores.length; i++) {
+            float v = scores[i];
+            if (n == k && v <= outScores[n - 1]) continue;
+            // Insertion into the short sorted prefix
+            int j = n < k ? n++ : n - 1;
+            while (j > 0 && outScores[j - 1] < v) {
+                outScores[j] = outScores[j - 1];
+                outIndices[j] = outIndices[j - 1];
+                j--;
+            }
+            outScores[j] = v;
+            outIndices[j] = i;
+        }
+        return n;
+    }
+
+    // Top-1 minus top-2
+    public static float margin(float[] p) {
+        float a = 0f, b = 0f;
+        for (float x : p) {
+            if (x > a) { b = a; a = x; }
+            else if (x > b) b = x;
+        }
+        return a - b;
+    }
+}
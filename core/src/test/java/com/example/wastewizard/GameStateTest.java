@@ -0,0 +1,91 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GameStateTest {
+
+    @Test
+    public void predictionsScoreStreakAndAccuracyBonus() {
+        GameState s = new GameState();
+        s.apply(1, GameState.EVENT_PREDICTION, 1, null); // 10 + 1*2 + 0
+        assertEquals(12, s.points);
+        s.apply(2, GameState.EVENT_PREDICTION, 1, null); // 10 + 2*2 + 100%/10
+        assertEquals(36, s.points);
+        s.apply(3, GameState.EVENT_PREDICTION, 0, null);
+        assertEquals(0, s.streak);
+        assertEquals(36, s.points);
+        s.apply(4, GameState.EVENT_PREDICTION, 1, null); // 10 + 1*2 + 66%/10
+        assertEquals(54, s.points);
+
+        assertEquals(4, s.total);
+        assertEquals(3, s.correct);
+        assertEquals(2, s.bestStreak);
+        assertEquals(75.0, s.accuracy(), 1e-9);
+        assertEquals(4, s.seq);
+    }
+
+    @Test
+    public void levelNeverGoesDown() {
+        GameState s = new GameState();
+        s.apply(1, GameState.EVENT_POINTS, 250, null);
+        assertEquals(2, s.level);
+        s.apply(2, GameState.EVENT_POINTS, -200, null);
+        assertEquals(50, s.points);
+        assertEquals(2, s.level);
+    }
+
+    @Test
+    public void baselineReplacesCounters() {
+        GameState s = new GameState();
+        s.apply(1, GameState.EVENT_PREDICTION, 1, null);
+        s.apply(2, GameState.EVENT_BASELINE, 0, GameState.baselinePayload(500, 5, 10, 7, 2, 4));
+        assertEquals(500, s.points);
+        assertEquals(5, s.level);
+        assertEquals(10, s.total);
+        assertEquals(7, s.correct);
+        assertEquals(2, s.streak);
+        assertEquals(4, s.bestStreak);
+
+        // Malformed payloads change nothing
+        s.apply(3, GameState.EVENT_BASELINE, 0, "1,2,3");
+        s.apply(4, GameState.EVENT_BASELINE, 0, null);
+        assertEquals(500, s.points);
+        assertEquals(4, s.seq);
+    }
+
+    @Test
+    public void correctionsAdjustAccuracyOnly() {
+        GameState s = new GameState();
+        s.apply(1, GameState.EVENT_PREDICTION, 1, null);
+        s.apply(2, GameState.EVENT_PREDICTION, 0, null);
+        int points = s.points;
+
+        s.apply(3, GameState.EVENT_CORRECTION, GameState.CORRECTION_NOW_WRONG, null);
+        assertEquals(0, s.correct);
+        assertEquals(2, s.total);
+        s.apply(4, GameState.EVENT_CORRECTION, GameState.CORRECTION_NOW_UNKNOWN, null);
+        assertEquals(1, s.total);
+        assertEquals(points, s.points);
+        assertEquals(1, s.bestStreak);
+
+        // Never below zero, never fewer predictions than correct ones
+        s.apply(5, GameState.EVENT_CORRECTION, GameState.CORRECTION_NOW_WRONG, null);
+        s.apply(6, GameState.EVENT_CORRECTION, GameState.CORRECTION_NOW_UNKNOWN, null);
+        s.apply(7, GameState.EVENT_CORRECTION, GameState.CORRECTION_NOW_UNKNOWN, null);
+        assertEquals(0, s.correct);
+        assertEquals(0, s.total);
+    }
+
+    @Test
+    public void unknownEventsAreSkippedButAdvanceSeq() {
+        GameState s = new GameState();
+        s.apply(1, GameState.EVENT_POINTS, 30, null);
+        GameState before = s.copy();
+        s.apply(2, 99, 1000, "x");
+        assertEquals(before.points, s.points);
+        assertEquals(before.total, s.total);
+        assertEquals(2, s.seq);
+    }
+}
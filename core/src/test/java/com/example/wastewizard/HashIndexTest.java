@@ -0,0 +1,72 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** HashIndex radius queries against a brute-force scan. */
+public class HashIndexTest {
+
+    @Test
+    public void withinMatchesBruteForce() {
+        Random rnd = new Random(11);
+        HashIndex index = new HashIndex();
+        List<Long> hashes = new ArrayList<>();
+        // Clusters of near-duplicates around a few bases, plus unrelated images
+        long[] bases = new long[20];
+        for (int i = 0; i < bases.length; i++) bases[i] = rnd.nextLong();
+        for (int id = 0; id < 2000; id++) {
+            long h = id % 3 == 0 ? rnd.nextLong() : flip(bases[rnd.nextInt(bases.length)], rnd.nextInt(8), rnd);
+            hashes.add(h);
+            index.add(h, id, id, 1000L + id);
+        }
+        assertEquals(hashes.size(), index.size());
+
+        for (int q = 0; q < 200; q++) {
+            long query = q % 2 == 0 ? flip(bases[rnd.nextInt(bases.length)], rnd.nextInt(6), rnd)
+                    : hashes.get(rnd.nextInt(hashes.size()));
+            for (int r : new int[]{0, 1, 4, 6, 10, 16}) {
+                Map<Long, Integer> expected = new HashMap<>();
+                for (int id = 0; id < hashes.size(); id++) {
+                    int d = Long.bitCount(hashes.get(id) ^ query);
+                    if (d <= r) expected.put((long) id, d);
+                }
+                List<HashIndex.Match> got = index.within(query, r);
+                assertEquals("radius " + r, expected.size(), got.size());
+                for (HashIndex.Match m : got) {
+                    assertEquals(expected.get(m.id), Integer.valueOf(m.distance));
+                    assertEquals(1000L + m.id, m.timestamp);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void duplicateHashesAreAllKept() {
+        HashIndex index = new HashIndex();
+        index.add(42L, 1, 1, 0);
+        index.add(42L, 2, 1, 0);
+        index.add(43L, 3, 3, 0);
+        List<HashIndex.Match> exact = index.within(42L, 0);
+        assertEquals(2, exact.size());
+        for (HashIndex.Match m : exact) assertEquals(1, m.originalId);
+        assertEquals(3, index.within(42L, 1).size());
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        assertTrue(new HashIndex().within(0L, 64).isEmpty());
+    }
+
+    private static long flip(long h, int bits, Random rnd) {
+        for (int i = 0; i < bits; i++) h ^= 1L << rnd.nextInt(64);
+        return h;
+    }
+}
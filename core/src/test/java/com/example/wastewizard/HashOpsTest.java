@@ -0,0 +1,81 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HashOpsTest {
+
+    @Test
+    public void brightnessFallingLeftToRightSetsEveryBit() {
+        assertEquals(-1L, hash(image(90, 80, (x, y) -> 255 - x * 255 / 89), 1));
+        assertEquals(0L, hash(image(90, 80, (x, y) -> x * 255 / 89), 1));
+    }
+
+    @Test
+    public void sensorNoiseDoesNotMoveTheHash() {
+        Random rnd = new Random(7);
+        Scene scene = (x, y) -> clamp((int) (128 + 100 * Math.sin(x / 37.0) * Math.cos(y / 23.0)));
+        long clean = hash(image(640, 480, scene), 1);
+        long noisy = hash(image(640, 480, (x, y) -> clamp(scene.luma(x, y) + (int) (rnd.nextGaussian() * 40))), 1);
+        assertTrue(HashOps.distance(clean, noisy) <= 1);
+    }
+
+    @Test
+    public void rescaleAndSubsamplingKeepTheHash() {
+        Scene scene = (x, y) -> clamp((int) (128 + 100 * Math.sin(x / 37.0) * Math.cos(y / 23.0)));
+        long big = hash(image(1280, 960, (x, y) -> scene.luma(x / 2, y / 2)), 2);
+        long small = hash(image(640, 480, scene), 1);
+        assertTrue(HashOps.distance(big, small) <= 2);
+    }
+
+    @Test
+    public void tinyImagesStillHash() {
+        // Narrower than the grid: some cells stay empty
+        hash(image(3, 2, (x, y) -> x * 100), 1);
+    }
+
+    @Test
+    public void distanceCountsBits() {
+        assertEquals(0, HashOps.distance(0x5L, 0x5L));
+        assertEquals(2, HashOps.distance(0x5L, 0x0L));
+        assertEquals(64, HashOps.distance(0L, -1L));
+    }
+
+    private interface Scene {
+        int luma(int x, int y);
+    }
+
+    private static int[] image(int w, int h, Scene scene) {
+        int[] px = new int[w * h + 2];
+        px[0] = w;
+        px[1] = h;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int l = scene.luma(x, y);
+                px[2 + y * w + x] = 0xFF000000 | (l << 16) | (l << 8) | l;
+            }
+        }
+        return px;
+    }
+
+    // Same walk as PerceptualHash.dHash over a width/height-prefixed pixel array
+    private static long hash(int[] img, int step) {
+        int w = img[0], h = img[1];
+        int[] row = new int[w];
+        long[] sums = new long[HashOps.CELLS];
+        int[] counts = new int[HashOps.CELLS];
+        for (int y = 0; y < h; y += step) {
+            System.arraycopy(img, 2 + y * w, row, 0, w);
+            HashOps.accumulateRow(row, w, step, y, h, sums, counts);
+        }
+        return HashOps.dHash(sums, counts);
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesGetTheirOwnBucket() {
+        for (int v = 0; v < 16; v++) {
+            assertEquals(v, LatencyHistogram.bucketOf(v));
+            assertEquals(v, LatencyHistogram.upperEdge(v));
+        }
+    }
+
+    @Test
+    public void bucketEdgesAroundPowersOfTwo() {
+        // 16..31 still one per bucket, 32..63 two per bucket
+        assertEquals(16, LatencyHistogram.bucketOf(16));
+        assertEquals(31, LatencyHistogram.bucketOf(31));
+        assertEquals(32, LatencyHistogram.bucketOf(32));
+        assertEquals(32, LatencyHistogram.bucketOf(33));
+        assertEquals(33, LatencyHistogram.bucketOf(34));
+        assertEquals(33, LatencyHistogram.upperEdge(32));
+        assertEquals(35, LatencyHistogram.upperEdge(33));
+    }
+
+    @Test
+    public void everyValueLiesWithinItsBucket() {
+        long prevEdge = -1;
+        for (long v = 0; v < 1 << 20; v += 1 + v / 64) {
+            int b = LatencyHistogram.bucketOf(v);
+            long edge = LatencyHistogram.upperEdge(b);
+            assertTrue(v + " above edge " + edge, v <= edge);
+            // Within 6.25% of the value
+            assertTrue(v + " edge " + edge, edge - v <= Math.max(0, v / 16));
+            assertTrue(edge >= prevEdge);
+            prevEdge = edge;
+        }
+    }
+
+    @Test
+    public void percentilesAndClamping() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.percentileNanos(0.5));
+        for (int i = 1; i <= 100; i++) h.record(i * 1_000_000L);
+        h.record(-5);
+
+        assertEquals(101, h.count());
+        assertEquals(100_000_000L, h.maxNanos());
+        long p50 = h.percentileNanos(0.5);
+        assertTrue(p50 >= 49_000_000L && p50 <= 53_000_000L);
+        assertEquals(100_000_000L, h.percentileNanos(1.0)); // capped at the max seen
+        assertEquals(0, h.percentileNanos(0.0));            // the clamped negative sample
+
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0, h.maxNanos());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PixelOpsTest {
+
+    @Test
+    public void rgbaToArgbSkipsRowPadding() {
+        // 2x2 image, rows padded to 12 bytes; the last row is not padded
+        byte[] data = {
+                10, 20, 30, (byte) 255, 40, 50, 60, (byte) 255, 9, 9, 9, 9,
+                70, 80, 90, (byte) 128, 1, 2, 3, 0
+        };
+        int[] out = new int[4];
+        PixelOps.rgbaToArgb(ByteBuffer.wrap(data), 2, 2, 12, 4, new byte[12], out);
+        assertArrayEquals(new int[]{0xFF0A141E, 0xFF28323C, 0x8046505A, 0x00010203}, out);
+    }
+
+    @Test
+    public void yuvToArgbGreysAndClamps() {
+        assertEquals(0xFF000000, PixelOps.yuvToArgb(0, 128, 128));
+        assertEquals(0xFF808080, PixelOps.yuvToArgb(128, 128, 128));
+        assertEquals(0xFFFFFFFF, PixelOps.yuvToArgb(255, 128, 128));
+        // Strong V pushes red past 255 and green below 0
+        int c = PixelOps.yuvToArgb(200, 128, 255);
+        assertEquals(0xFF, (c >> 16) & 0xFF);
+        assertEquals(109, (c >> 8) & 0xFF);
+    }
+
+    @Test
+    public void yuv420CenterCropSamplesTheMiddleSquare() {
+        // 4x2 frame: the centre 2x2 square is columns 1..2. Luma encodes the column.
+        byte[] y = {0, 100, (byte) 200, (byte) 255, 0, 100, (byte) 200, (byte) 255};
+        byte[] u = {(byte) 128, (byte) 128};
+        byte[] v = {(byte) 128, (byte) 128};
+        int[] out = new int[4];
+        PixelOps.yuv420CenterCrop(ByteBuffer.wrap(y), 4, 1, ByteBuffer.wrap(u), 2, 1, ByteBuffer.wrap(v), 2, 1,
+                4, 2, 2, out);
+        assertArrayEquals(new int[]{0xFF646464, 0xFFC8C8C8, 0xFF646464, 0xFFC8C8C8}, out);
+    }
+
+    @Test
+    public void yuv420CenterCropScalesDown() {
+        // 4x4 grey ramp by row, sampled to 2x2: rows 0 and 2
+        byte[] y = new byte[16];
+        for (int i = 0; i < 16; i++) y[i] = (byte) ((i / 4) * 60);
+        byte[] uv = new byte[4];
+        java.util.Arrays.fill(uv, (byte) 128);
+        int[] out = new int[4];
+        PixelOps.yuv420CenterCrop(ByteBuffer.wrap(y), 4, 1, ByteBuffer.wrap(uv), 2, 1, ByteBuffer.wrap(uv), 2, 1,
+                4, 4, 2, out);
+        assertArrayEquals(new int[]{0xFF000000, 0xFF000000, 0xFF787878, 0xFF787878}, out);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** RankIndex against a plain sorted list under random inserts and removes. */
+public class RankIndexTest {
+
+    private static final class Ref {
+        final String id;
+        final int points;
+
+        Ref(String id, int points) {
+            this.id = id;
+            this.points = points;
+        }
+    }
+
+    // Leaderboard order: points descending, then id
+    private static int order(Ref a, Ref b) {
+        if (a.points != b.points) return a.points > b.points ? -1 : 1;
+        return a.id.compareTo(b.id);
+    }
+
+    @Test
+    public void matchesSortedListUnderRandomOps() {
+        Random rnd = new Random(42);
+        RankIndex index = new RankIndex();
+        List<Ref> ref = new ArrayList<>();
+        for (int op = 0; op < 5000; op++) {
+            if (ref.isEmpty() || rnd.nextInt(3) > 0) {
+                // Few distinct scores, so ties are common
+                Ref r = new Ref("p" + rnd.nextInt(400), rnd.nextInt(50));
+                boolean present = false;
+                for (Ref x : ref) if (x.id.equals(r.id) && x.points == r.points) present = true;
+                index.insert(r.id, r.points);
+                if (!present) ref.add(r);
+            } else {
+                Ref r = ref.remove(rnd.nextInt(ref.size()));
+                index.remove(r.id, r.points);
+            }
+            if (op % 50 == 0) check(index, ref, rnd);
+        }
+        check(index, ref, rnd);
+    }
+
+    @Test
+    public void removingAbsentEntryIsNoOp() {
+        RankIndex index = new RankIndex();
+        index.insert("a", 10);
+        index.remove("a", 11);
+        index.remove("b", 10);
+        assertEquals(1, index.size());
+        assertEquals(0, index.positionOf("a", 10));
+        assertEquals(-1, index.positionOf("a", 11));
+    }
+
+    @Test
+    public void rangeClipsAtBothEnds() {
+        RankIndex index = new RankIndex();
+        for (int i = 0; i < 5; i++) index.insert("p" + i, i * 10); // p4 leads
+        assertIds(index.range(-2, 4), "p4", "p3");
+        assertIds(index.range(3, 10), "p1", "p0");
+        assertIds(index.range(5, 3));
+        assertIds(index.range(-10, 3));
+        assertIds(index.range(1, 0));
+    }
+
+    private static void check(RankIndex index, List<Ref> ref, Random rnd) {
+        List<Ref> sorted = new ArrayList<>(ref);
+        sorted.sort(RankIndexTest::order);
+        assertEquals(sorted.size(), index.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            Ref r = sorted.get(i);
+            assertEquals(i, index.positionOf(r.id, r.points));
+        }
+        for (int points = -1; points <= 51; points++) {
+            int above = 0;
+            for (Ref r : sorted) if (r.points > points) above++;
+            assertEquals("countAbove(" + points + ")", above, index.countAbove(points));
+        }
+        for (int k = 0; k < 10; k++) {
+            int from = rnd.nextInt(sorted.size() + 10) - 5;
+            int count = rnd.nextInt(12);
+            List<RankIndex.Entry> got = index.range(from, count);
+            int lo = Math.max(0, from), hi = Math.min(sorted.size(), from + count);
+            assertEquals("range(" + from + ", " + count + ")", Math.max(0, hi - lo), got.size());
+            for (int i = lo; i < hi; i++) {
+                assertEquals(sorted.get(i).id, got.get(i - lo).id);
+                assertEquals(sorted.get(i).points, got.get(i - lo).points);
+            }
+        }
+    }
+
+    private static void assertIds(List<RankIndex.Entry> entries, String... ids) {
+        assertEquals(ids.length, entries.size());
+        for (int i = 0; i < ids.length; i++) assertEquals(ids[i], entries.get(i).id);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.wastewizard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScoreOpsTest {
+
+    @Test
+    public void softmaxSumsToOneAndKeepsOrder() {
+        float[] v = {1f, 3f, 2f};
+        ScoreOps.softmax(v);
+        assertEquals(1f, v[0] + v[1] + v[2], 1e-6f);
+        assertTrue(v[1] > v[2] && v[2] > v[0]);
+        assertEquals(0.6652f, v[1], 1e-4f);
+    }
+
+    @Test
+    public void softmaxIsStableForLargeLogits() {
+        float[] v = {1000f, 1000f};
+        ScoreOps.softmax(v);
+        assertArrayEquals(new float[]{0.5f, 0.5f}, v, 1e-6f);
+    }
+
+    @Test
+    public void topKReturnsBestFirst() {
+        float[] scores = {0.1f, 0.4f, 0.05f, 0.3f, 0.15f};
+        int[] idx = new int[3];
+        float[] top = new float[3];
+        assertEquals(3, ScoreOps.topK(scores, 3, idx, top));
+        assertArrayEquals(new int[]{1, 3, 4}, idx);
+        assertArrayEquals(new float[]{0.4f, 0.3f, 0.15f}, top, 0f);
+    }
+
+    @Test
+    public void topKWithMoreSlotsThanScores() {
+        int[] idx = new int[4];
+        float[] top = new float[4];
+        assertEquals(2, ScoreOps.topK(new float[]{0.2f, 0.8f}, 4, idx, top));
+        assertEquals(1, idx[0]);
+        assertEquals(0, idx[1]);
+    }
+
+    @Test
+    public void topKWithZeroKWritesNothing() {
+        int[] idx = {-1};
+        float[] top = {-1f};
+        assertEquals(0, ScoreOps.topK(new float[]{0.2f, 0.8f}, 0, idx, top));
+        assertEquals(-1, idx[0]);
+        assertEquals(0, ScoreOps.topK(new float[]{0.2f, 0.8f}, -1, new int[0], new float[0]));
+    }
+
+    @Test
+    public void argmaxPicksFirstOfTies() {
+        assertEquals(1, ScoreOps.argmax(new float[]{0.1f, 0.7f, 0.2f}));
+        assertEquals(0, ScoreOps.argmax(new float[]{0.5f, 0.5f}));
+    }
+
+    @Test
+    public void dequantizeThroughLut() {
+        float[] lut = ScoreOps.dequantLut(1f / 256, 0);
+        float[] out = new float[3];
+        ScoreOps.dequantize(new byte[]{0, (byte) 128, (byte) 255}, lut, out);
+        assertArrayEquals(new float[]{0f, 0.5f, 255f / 256}, out, 1e-6f);
+
+        // A zero point shifts the range below zero
+        assertEquals(-1f, ScoreOps.dequantLut(0.5f, 2)[0], 0f);
+    }
+
+    @Test
+    public void looksLikeProbs() {
+        assertTrue(ScoreOps.looksLikeProbs(new float[]{0.2f, 0.5f, 0.3f}));
+        assertTrue(ScoreOps.looksLikeProbs(new float[]{0.2f, 0.5f, 0.31f})); // quantization error
+        assertFalse(ScoreOps.looksLikeProbs(new float[]{2f, -1f}));           // logits
+        assertFalse(ScoreOps.looksLikeProbs(new float[]{0.2f, 0.2f}));
+    }
+}